@@ -0,0 +1,279 @@
+package io.canvasmc.canvas;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A log-bucketed histogram of tick durations over a sliding window.
+ * <p>
+ * Each power of two is split into 8 linear sub-buckets, so reported percentiles are within
+ * 12.5% of the recorded durations. Samples are stored in fixed time slices that are recycled
+ * as they age out, so the memory used is constant regardless of the tick rate or window.
+ * <p>
+ * Only the owning tick-loop records into the histogram, anyone may take a {@link Snapshot}.
+ */
+public final class TickHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // durations below 2^16ns (~65us) share the first bucket, durations above 2^34ns (~17s) share the last
+    private static final int MIN_MAGNITUDE = 16;
+    private static final int MAX_MAGNITUDE = 34;
+    private static final int BUCKETS = (MAX_MAGNITUDE - MIN_MAGNITUDE) * SUB_BUCKETS + 2;
+    private static final long EMPTY_SLICE = Long.MIN_VALUE;
+
+    public static final long DEFAULT_SLICE_NANOS = TimeUnit.SECONDS.toNanos(5);
+    public static final int DEFAULT_SLICES = 13;
+
+    private final long sliceNanos;
+    private final int slices;
+    private final AtomicIntegerArray counts;
+    private final long[] sliceEpochs;
+    private final long[] sliceSums;
+    private final long[] sliceMax;
+    private volatile long startNanos;
+
+    /**
+     * Creates a histogram able to report windows of up to 60 seconds
+     */
+    public TickHistogram() {
+        this(DEFAULT_SLICE_NANOS, DEFAULT_SLICES);
+    }
+
+    /**
+     * @param sliceNanos the length of each time slice, which is the granularity of the sliding window
+     * @param slices     the amount of slices kept, windows up to {@code (slices - 1) * sliceNanos} can be reported
+     */
+    public TickHistogram(long sliceNanos, int slices) {
+        if (sliceNanos <= 0L || slices < 2) {
+            throw new IllegalArgumentException("Need a positive slice length and at least 2 slices");
+        }
+        this.sliceNanos = sliceNanos;
+        this.slices = slices;
+        this.counts = new AtomicIntegerArray(slices * BUCKETS);
+        this.sliceEpochs = new long[slices];
+        this.sliceSums = new long[slices];
+        this.sliceMax = new long[slices];
+        this.reset();
+    }
+
+    static int bucketFor(long nanos) {
+        if (nanos < (1L << MIN_MAGNITUDE)) return 0;
+        if (nanos >= (1L << MAX_MAGNITUDE)) return BUCKETS - 1;
+        final int magnitude = 63 - Long.numberOfLeadingZeros(nanos);
+        final int sub = (int) (nanos >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return 1 + (magnitude - MIN_MAGNITUDE) * SUB_BUCKETS + sub;
+    }
+
+    static long lowerBound(int bucket) {
+        if (bucket == 0) return 0L;
+        if (bucket == BUCKETS - 1) return 1L << MAX_MAGNITUDE;
+        final int index = bucket - 1;
+        final int magnitude = MIN_MAGNITUDE + index / SUB_BUCKETS;
+        return (1L << magnitude) + ((long) (index % SUB_BUCKETS) << (magnitude - SUB_BUCKET_BITS));
+    }
+
+    /**
+     * This is for internal use to update timings, don't use
+     */
+    @ApiStatus.Internal
+    public void record(long now, long durationNanos) {
+        final long epoch = Math.floorDiv(now, this.sliceNanos);
+        final int slice = (int) Math.floorMod(epoch, (long) this.slices);
+        if (this.sliceEpochs[slice] != epoch) {
+            this.clearSlice(slice, epoch);
+        }
+        this.sliceSums[slice] += durationNanos;
+        if (durationNanos > this.sliceMax[slice]) {
+            this.sliceMax[slice] = durationNanos;
+        }
+        // the volatile increment publishes the plain writes above to readers
+        this.counts.getAndIncrement(slice * BUCKETS + bucketFor(durationNanos));
+    }
+
+    private void clearSlice(int slice, long epoch) {
+        final int base = slice * BUCKETS;
+        for (int i = 0; i < BUCKETS; i++) {
+            this.counts.set(base + i, 0);
+        }
+        this.sliceSums[slice] = 0L;
+        this.sliceMax[slice] = 0L;
+        this.sliceEpochs[slice] = epoch;
+    }
+
+    /**
+     * This is for internal use when merging tick-loops, don't use.
+     * Neither histogram may be recorded into while merging
+     */
+    @ApiStatus.Internal
+    public void merge(@NotNull TickHistogram from) {
+        if (from.sliceNanos != this.sliceNanos || from.slices != this.slices) {
+            throw new IllegalArgumentException("Cannot merge histograms with different slicing");
+        }
+        for (int slice = 0; slice < this.slices; slice++) {
+            final long epoch = from.sliceEpochs[slice];
+            if (epoch == EMPTY_SLICE || epoch < this.sliceEpochs[slice]) {
+                // nothing recorded, or older than what we have in this slice
+                continue;
+            }
+            if (epoch > this.sliceEpochs[slice]) {
+                this.clearSlice(slice, epoch);
+            }
+            final int base = slice * BUCKETS;
+            for (int i = 0; i < BUCKETS; i++) {
+                final int count = from.counts.get(base + i);
+                if (count != 0) {
+                    this.counts.getAndAdd(base + i, count);
+                }
+            }
+            this.sliceSums[slice] += from.sliceSums[slice];
+            this.sliceMax[slice] = Math.max(this.sliceMax[slice], from.sliceMax[slice]);
+        }
+        this.startNanos = Math.min(this.startNanos, from.startNanos);
+    }
+
+    /**
+     * Takes a snapshot of the ticks recorded in the given window ending now
+     *
+     * @param windowNanos the window length, capped to what this histogram retains
+     * @return the snapshot
+     */
+    public @NotNull Snapshot snapshot(long windowNanos) {
+        final long now = System.nanoTime();
+        final long currentEpoch = Math.floorDiv(now, this.sliceNanos);
+        final long windowSlices = Math.min(this.slices - 1, Math.max(1L, (windowNanos + this.sliceNanos - 1) / this.sliceNanos));
+        // include one extra slice, so the window never shrinks to a barely filled current slice
+        final long oldestEpoch = currentEpoch - windowSlices;
+
+        final int[] buckets = new int[BUCKETS];
+        long count = 0L;
+        long sum = 0L;
+        long max = 0L;
+        for (int slice = 0; slice < this.slices; slice++) {
+            final int base = slice * BUCKETS;
+            // read a count first so the plain slice fields are visible
+            this.counts.get(base);
+            final long epoch = this.sliceEpochs[slice];
+            if (epoch == EMPTY_SLICE || epoch < oldestEpoch || epoch > currentEpoch) continue;
+            for (int i = 0; i < BUCKETS; i++) {
+                final int bucketCount = this.counts.get(base + i);
+                buckets[i] += bucketCount;
+                count += bucketCount;
+            }
+            sum += this.sliceSums[slice];
+            max = Math.max(max, this.sliceMax[slice]);
+        }
+        // the oldest slice may be only partially covered by the window, so measure what was actually sampled
+        final long elapsed = now - Math.max(this.startNanos, oldestEpoch * this.sliceNanos);
+        return new Snapshot(buckets, count, sum, max, Math.max(1L, elapsed));
+    }
+
+    /**
+     * Resets the histogram. Used primarily when changing the tick rate
+     */
+    public void reset() {
+        for (int slice = 0; slice < this.slices; slice++) {
+            this.clearSlice(slice, EMPTY_SLICE);
+        }
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * An immutable view of the ticks recorded in a window
+     */
+    public static final class Snapshot {
+        private final int[] buckets;
+        private final long count;
+        private final long sum;
+        private final long max;
+        private final long elapsedNanos;
+
+        private Snapshot(int[] buckets, long count, long sum, long max, long elapsedNanos) {
+            this.buckets = buckets;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Gets the amount of ticks in the window
+         *
+         * @return tick count
+         */
+        public long getCount() {
+            return this.count;
+        }
+
+        /**
+         * Gets the average mspt in the window
+         *
+         * @return average mspt
+         */
+        public double getAverage() {
+            return this.count == 0L ? 0.0D : ((double) this.sum / (double) this.count) * 1.0E-6D;
+        }
+
+        /**
+         * Gets the mspt at the given percentile in the window, accurate to the bucket width
+         *
+         * @param percentile the percentile, from 0 to 1
+         * @return mspt at the percentile
+         */
+        public double getPercentile(double percentile) {
+            if (this.count == 0L) return 0.0D;
+            final long rank = Math.max(1L, (long) Math.ceil(Math.min(1.0D, Math.max(0.0D, percentile)) * this.count));
+            long seen = 0L;
+            for (int i = 0; i < this.buckets.length; i++) {
+                seen += this.buckets[i];
+                if (seen >= rank) {
+                    if (i == this.buckets.length - 1) return this.getMax();
+                    final long lower = lowerBound(i);
+                    final long mid = lower + ((lowerBound(i + 1) - lower) >> 1);
+                    return Math.min(mid, this.max) * 1.0E-6D;
+                }
+            }
+            return this.getMax();
+        }
+
+        public double getP50() {
+            return this.getPercentile(0.50D);
+        }
+
+        public double getP95() {
+            return this.getPercentile(0.95D);
+        }
+
+        public double getP99() {
+            return this.getPercentile(0.99D);
+        }
+
+        /**
+         * Gets the highest mspt in the window
+         *
+         * @return max mspt
+         */
+        public double getMax() {
+            return this.max * 1.0E-6D;
+        }
+
+        /**
+         * Gets the ticks per second in the window
+         *
+         * @return tps
+         */
+        public double getTps() {
+            return (double) this.count * 1.0E9D / (double) this.elapsedNanos;
+        }
+
+        /**
+         * Gets the percentage of the window spent ticking
+         *
+         * @return thread util
+         */
+        public double getUtilization() {
+            return ((double) this.sum / (double) this.elapsedNanos) * 100.0D;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package io.canvasmc.canvas.scheduler;
 
 import io.canvasmc.canvas.RollingAverage;
+import io.canvasmc.canvas.TickHistogram;
 import io.canvasmc.canvas.TickTimes;
 import java.util.function.BooleanSupplier;
 import net.kyori.adventure.text.Component;
@@ -87,12 +88,24 @@ public interface WrappedTickLoop {
      */
     @NotNull Logger getLogger();
 
+    /**
+     * Gets the tick duration histogram of the tick-loop.
+     * This reports percentiles, max mspt, tps and utilization over
+     * sliding windows of up to 60 seconds.
+     * See {@link TickHistogram#snapshot(long)}
+     *
+     * @return the tick duration histogram
+     */
+    @NotNull TickHistogram getTickHistogram();
+
     /**
      * Gets the tps data from the last 5 seconds.
      * See {@link RollingAverage#getAverage()}
      *
      * @return tps data from the last 5 seconds
+     * @deprecated use {@link #getTickHistogram()}, these timings are only tracked once first requested
      */
+    @Deprecated
     @NotNull RollingAverage getTps5s();
 
     /**
@@ -100,7 +113,9 @@ public interface WrappedTickLoop {
      * See {@link RollingAverage#getAverage()}
      *
      * @return tps data from the last 10 seconds
+     * @deprecated use {@link #getTickHistogram()}, these timings are only tracked once first requested
      */
+    @Deprecated
     @NotNull RollingAverage getTps10s();
 
     /**
@@ -108,7 +123,9 @@ public interface WrappedTickLoop {
      * See {@link RollingAverage#getAverage()}
      *
      * @return tps data from the last 15 seconds
+     * @deprecated use {@link #getTickHistogram()}, these timings are only tracked once first requested
      */
+    @Deprecated
     @NotNull RollingAverage getTps15s();
 
     /**
@@ -116,7 +133,9 @@ public interface WrappedTickLoop {
      * See {@link RollingAverage#getAverage()}
      *
      * @return tps data from the last 1 minute
+     * @deprecated use {@link #getTickHistogram()}, these timings are only tracked once first requested
      */
+    @Deprecated
     @NotNull RollingAverage getTps1m();
 
     /**
@@ -125,7 +144,9 @@ public interface WrappedTickLoop {
      * See {@link TickTimes#getAverage()} and {@link TickTimes#getUtilization()}
      *
      * @return the tick times in the last 5 seconds
+     * @deprecated use {@link #getTickHistogram()}, these timings are only tracked once first requested
      */
+    @Deprecated
     @NotNull TickTimes getTickTimes5s();
 
     /**
@@ -134,7 +155,9 @@ public interface WrappedTickLoop {
      * See {@link TickTimes#getAverage()} and {@link TickTimes#getUtilization()}
      *
      * @return the tick times in the last 10 seconds
+     * @deprecated use {@link #getTickHistogram()}, these timings are only tracked once first requested
      */
+    @Deprecated
     @NotNull TickTimes getTickTimes10s();
 
     /**
@@ -143,7 +166,9 @@ public interface WrappedTickLoop {
      * See {@link TickTimes#getAverage()} and {@link TickTimes#getUtilization()}
      *
      * @return the tick times in the last 15 seconds
+     * @deprecated use {@link #getTickHistogram()}, these timings are only tracked once first requested
      */
+    @Deprecated
     @NotNull TickTimes getTickTimes15s();
 
     /**
@@ -152,7 +177,9 @@ public interface WrappedTickLoop {
      * See {@link TickTimes#getAverage()} and {@link TickTimes#getUtilization()}
      *
      * @return the tick times in the last 1 minute
+     * @deprecated use {@link #getTickHistogram()}, these timings are only tracked once first requested
      */
+    @Deprecated
     @NotNull TickTimes getTickTimes60s();
 
     /**
@@ -4,6 +4,8 @@ import ca.spottedleaf.concurrentutil.executor.thread.PrioritisedThreadPool;
 import ca.spottedleaf.concurrentutil.util.Priority;
 import com.ishland.flowsched.structs.DynamicPriorityQueue;
 import com.ishland.flowsched.util.Assertions;
+import io.canvasmc.canvas.metrics.CanvasMetrics;
+import io.canvasmc.canvas.metrics.MetricsRegistry;
 import it.unimi.dsi.fastutil.objects.ReferenceArrayList;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -11,7 +13,20 @@ import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 
 public abstract class ExecutorManager extends PrioritisedThreadPool {
-
+    // Canvas start - lock metrics - only tasks with lock tokens are counted
+    private static final MetricsRegistry.Counter LOCK_RETRIES = CanvasMetrics.REGISTRY.counter(
+        "canvas_executor_lock_retries", "Lock attempts retried because the holder released its locks during the attempt"
+    );
+    private static final MetricsRegistry.Counter LOCK_DEFERRALS = CanvasMetrics.REGISTRY.counter(
+        "canvas_executor_lock_deferrals", "Tasks parked until the holder of one of their lock tokens releases it"
+    );
+    private static final MetricsRegistry.Histogram LOCK_WAIT = CanvasMetrics.REGISTRY.histogram(
+        "canvas_executor_lock_wait_seconds", "Time from a task first being parked on a lock token until it acquires its locks",
+        0.0001D, 0.0005D, 0.001D, 0.005D, 0.01D, 0.05D, 0.1D, 0.5D, 1.0D
+    );
+    // when each parked task was first parked
+    private final ConcurrentMap<Task, Long> parkedSince = new ConcurrentHashMap<>();
+    // Canvas end - lock metrics
     public final DynamicPriorityQueue<Task> globalWorkQueue; // Canvas - private -> protected
     protected final ConcurrentMap<LockToken, FreeableTaskList> lockListeners = new ConcurrentHashMap<>(); // Canvas - private -> protected
     protected final WorkerThread[] workerThreads; // Canvas - private -> protected
@@ -52,6 +67,11 @@ public abstract class ExecutorManager extends PrioritisedThreadPool {
      * @return {@code true} if the lock is acquired, {@code false} otherwise.
      */
     boolean tryLock(Task task) {
+        // Canvas start - no allocation for tasks without lock tokens, which every chunk system task is
+        if (task.lockTokens().length == 0) {
+            return true;
+        }
+        // Canvas end
         retry:
         while (true) {
             final FreeableTaskList listenerSet = new FreeableTaskList();
@@ -66,14 +86,25 @@ public abstract class ExecutorManager extends PrioritisedThreadPool {
                     callListeners(listenerSet); // synchronizes
                     synchronized (present) {
                         if (present.freed) {
+                            LOCK_RETRIES.inc(); // Canvas - lock metrics
                             continue retry;
                         } else {
+                            // Canvas start - lock metrics - before the task can be released and locked again
+                            LOCK_DEFERRALS.inc();
+                            this.parkedSince.putIfAbsent(task, System.nanoTime());
+                            // Canvas end - lock metrics
                             present.add(task);
                         }
                     }
                     return false;
                 }
             }
+            // Canvas start - lock metrics
+            final Long parkedAt = this.parkedSince.remove(task);
+            if (parkedAt != null) {
+                LOCK_WAIT.observeNanos(System.nanoTime() - parkedAt);
+            }
+            // Canvas end - lock metrics
             return true;
         }
     }
@@ -120,7 +151,7 @@ public abstract class ExecutorManager extends PrioritisedThreadPool {
      */
     Task pollExecutableTask() {
         Task task;
-        while ((task = this.globalWorkQueue.dequeue()) != null) {
+        while ((task = this.pollTask()) != null) { // Canvas - allow choosing between queues
             if (this.tryLock(task)) {
                 return task;
             }
@@ -128,6 +159,17 @@ public abstract class ExecutorManager extends PrioritisedThreadPool {
         return null;
     }
 
+    // Canvas start - allow choosing between queues
+    /**
+     * Polls the next task to try to lock, from the global work queue by default.
+     *
+     * @return the task, or {@code null} if no task is queued.
+     */
+    protected Task pollTask() {
+        return this.globalWorkQueue.dequeue();
+    }
+    // Canvas end
+
     /**
      * Shuts down the executor manager.
      */
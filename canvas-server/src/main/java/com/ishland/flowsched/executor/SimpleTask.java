@@ -1,12 +1,15 @@
 package com.ishland.flowsched.executor;
 
 import ca.spottedleaf.concurrentutil.util.Priority;
+import com.ishland.flowsched.structs.DynamicPriorityQueue;
 import java.util.Objects;
 
 public class SimpleTask implements Task {
 
+    private static final LockToken[] NO_LOCKS = new LockToken[0]; // Canvas - don't allocate per lock attempt
     private final Runnable wrapped;
     private final int priority;
+    private final DynamicPriorityQueue.Node<Task> queueNode = new DynamicPriorityQueue.Node<>(this); // Canvas - intrusive priority queue
 
     public SimpleTask(Runnable wrapped, int priority) {
         this.wrapped = Objects.requireNonNull(wrapped);
@@ -29,11 +32,18 @@ public class SimpleTask implements Task {
 
     @Override
     public LockToken[] lockTokens() {
-        return new LockToken[0];
+        return NO_LOCKS; // Canvas - don't allocate per lock attempt
     }
 
     @Override
     public int priority() {
         return this.priority;
     }
+
+    // Canvas start - intrusive priority queue
+    @Override
+    public DynamicPriorityQueue.Node<Task> queueNode() {
+        return this.queueNode;
+    }
+    // Canvas end - intrusive priority queue
 }
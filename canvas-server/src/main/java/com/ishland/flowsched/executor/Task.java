@@ -1,8 +1,9 @@
 package com.ishland.flowsched.executor;
 
 import ca.spottedleaf.concurrentutil.util.Priority;
+import com.ishland.flowsched.structs.DynamicPriorityQueue;
 
-public interface Task {
+public interface Task extends DynamicPriorityQueue.Element<Task> { // Canvas - intrusive priority queue
 
     void run(Runnable releaseLocks);
 
@@ -1,91 +1,199 @@
 package com.ishland.flowsched.structs;
 
 import ca.spottedleaf.moonrise.common.util.MoonriseConstants;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * A priority queue with fixed number of priorities and allows changing priorities of elements.
+ * <p>
+ * Canvas - the queue is intrusive, every element carries the node linking it into the list of its priority,
+ * so changing priorities and removing are a constant time unlink and relink instead of a scan of the
+ * priority's queue, and dequeue finds the highest non-empty priority from a bitmap. Each priority's list
+ * is guarded by its own lock, only a priority change holds two of them, taken in priority order.
  *
  * @param <E> the type of elements held in this collection
  */
-public class DynamicPriorityQueue<E> {
+public class DynamicPriorityQueue<E extends DynamicPriorityQueue.Element<E>> {
     public static final int MAX_PRIORITY = MoonriseConstants.MAX_VIEW_DISTANCE + 3;
     private final AtomicIntegerArray taskCount;
-    public final ConcurrentLinkedQueue<E>[] priorities;
-    private final ConcurrentHashMap<E, Integer> priorityMap = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final Level<E>[] priorities;
+    // bit set while the list of the priority is not empty, only changed while holding that list's lock
+    private final AtomicLongArray nonEmpty;
 
     public DynamicPriorityQueue() {
         this.taskCount = new AtomicIntegerArray(MAX_PRIORITY);
         //noinspection unchecked
-        this.priorities = new ConcurrentLinkedQueue[MAX_PRIORITY];
+        this.priorities = new Level[MAX_PRIORITY];
         for (int i = 0; i < (MAX_PRIORITY); i++) {
-            this.priorities[i] = new ConcurrentLinkedQueue<>();
+            this.priorities[i] = new Level<>();
         }
+        this.nonEmpty = new AtomicLongArray((MAX_PRIORITY + 63) >>> 6);
     }
 
     public void enqueue(E element, int priority) {
-        if (this.priorityMap.putIfAbsent(element, priority) != null)
-            throw new IllegalArgumentException("Element already in queue");
-
-        this.priorities[priority].add(element);
-        this.taskCount.incrementAndGet(priority);
+        final Node<E> node = element.queueNode();
+        final Level<E> level = this.priorities[priority];
+        synchronized (level) {
+            synchronized (node) {
+                if (node.owner != null)
+                    throw new IllegalArgumentException("Element already in queue");
+                node.owner = this;
+                node.priority = priority;
+            }
+            this.link(level, node, priority);
+        }
+        this.size.incrementAndGet();
     }
 
     public boolean changePriority(E element, int newPriority) {
-        Integer currentPriority = this.priorityMap.get(element);
-        if (currentPriority == null || currentPriority == newPriority) {
-            return false; // a clear failure
-        }
-
-        int currentIndex = currentPriority;
-        boolean removedFromQueue = this.priorities[currentIndex].remove(element);
-        if (!removedFromQueue) {
-            return false; // the element is dequeued while we are changing priority
-        }
-
-        this.taskCount.decrementAndGet(currentIndex);
-        final boolean changeSuccess = this.priorityMap.replace(element, currentPriority, newPriority);
-        if (!changeSuccess) {
-            return false; // something else may have called remove()
+        final Node<E> node = element.queueNode();
+        while (true) {
+            final int currentPriority = node.priority;
+            if (node.owner != this || currentPriority < 0 || currentPriority == newPriority) {
+                return false; // a clear failure
+            }
+            final Level<E> first = this.priorities[Math.min(currentPriority, newPriority)];
+            final Level<E> second = this.priorities[Math.max(currentPriority, newPriority)];
+            synchronized (first) {
+                synchronized (second) {
+                    if (node.owner != this || node.priority != currentPriority) {
+                        continue; // moved or dequeued while we were locking, look again
+                    }
+                    this.unlink(this.priorities[currentPriority], node, currentPriority);
+                    node.priority = newPriority;
+                    this.link(this.priorities[newPriority], node, newPriority);
+                    return true;
+                }
+            }
         }
-
-        this.priorities[newPriority].add(element);
-        this.taskCount.incrementAndGet(newPriority);
-        return true;
     }
 
     public E dequeue() {
-        for (int i = 0; i < this.priorities.length; i++) {
-            if (this.taskCount.get(i) == 0) continue;
-            E element = priorities[i].poll();
-            if (element != null) {
-                this.taskCount.decrementAndGet(i);
-                this.priorityMap.remove(element);
-                return element;
+        for (int word = 0; word < this.nonEmpty.length(); word++) {
+            long bits;
+            while ((bits = this.nonEmpty.get(word)) != 0L) {
+                final int priority = (word << 6) + Long.numberOfTrailingZeros(bits);
+                final Level<E> level = this.priorities[priority];
+                final Node<E> node;
+                synchronized (level) {
+                    node = level.head;
+                    if (node == null) {
+                        continue; // emptied by another thread, the bit is already cleared
+                    }
+                    this.unlink(level, node, priority);
+                    this.release(node);
+                }
+                this.size.decrementAndGet();
+                return node.element;
             }
         }
         return null;
     }
 
     public boolean contains(E element) {
-        return priorityMap.containsKey(element);
+        return element.queueNode().owner == this;
     }
 
     public void remove(E element) {
-        Integer priority = this.priorityMap.remove(element);
-        if (priority == null) return;
-
-        boolean removed = this.priorities[priority].remove(element); // best-effort
-        if (removed) this.taskCount.decrementAndGet(priority);
+        final Node<E> node = element.queueNode();
+        while (true) {
+            final int priority = node.priority;
+            if (node.owner != this || priority < 0) return;
+            final Level<E> level = this.priorities[priority];
+            synchronized (level) {
+                if (node.owner != this || node.priority != priority) {
+                    continue;
+                }
+                this.unlink(level, node, priority);
+                this.release(node);
+            }
+            this.size.decrementAndGet();
+            return;
+        }
     }
 
     public int size() {
-        return priorityMap.size();
+        return this.size.get();
     }
 
+    // Canvas start - metrics
+    public int size(int priority) {
+        return this.taskCount.get(priority);
+    }
+    // Canvas end - metrics
+
     public boolean isEmpty() {
         return size() == 0;
     }
+
+    // called with the level's lock held
+    private void link(Level<E> level, Node<E> node, int priority) {
+        node.next = null;
+        node.prev = level.tail;
+        if (level.tail == null) {
+            level.head = node;
+            this.nonEmpty.getAndAccumulate(priority >>> 6, 1L << priority, (bits, bit) -> bits | bit);
+        } else {
+            level.tail.next = node;
+        }
+        level.tail = node;
+        this.taskCount.incrementAndGet(priority);
+    }
+
+    // called with the level's lock held
+    private void unlink(Level<E> level, Node<E> node, int priority) {
+        if (node.prev == null) {
+            level.head = node.next;
+        } else {
+            node.prev.next = node.next;
+        }
+        if (node.next == null) {
+            level.tail = node.prev;
+        } else {
+            node.next.prev = node.prev;
+        }
+        node.prev = null;
+        node.next = null;
+        if (level.head == null) {
+            this.nonEmpty.getAndAccumulate(priority >>> 6, 1L << priority, (bits, bit) -> bits & ~bit);
+        }
+        this.taskCount.decrementAndGet(priority);
+    }
+
+    private void release(Node<E> node) {
+        synchronized (node) {
+            node.priority = -1;
+            node.owner = null;
+        }
+    }
+
+    /**
+     * An element of a queue, holding the node that links it into the queue
+     */
+    public interface Element<E extends Element<E>> {
+        Node<E> queueNode();
+    }
+
+    /**
+     * The links of an element, an element can be queued in one queue at a time
+     */
+    public static final class Node<E> {
+        private final E element;
+        private volatile DynamicPriorityQueue<?> owner;
+        private volatile int priority = -1;
+        private Node<E> prev;
+        private Node<E> next;
+
+        public Node(E element) {
+            this.element = element;
+        }
+    }
+
+    private static final class Level<E> {
+        private Node<E> head;
+        private Node<E> tail;
+    }
 }
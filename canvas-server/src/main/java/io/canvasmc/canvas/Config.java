@@ -88,6 +88,16 @@ public class Config {
 
         @Comment("Enables an optimized random tick system from Leaf upstream")
         public boolean optimizedRandomTick = false;
+
+        @Comment(value = {
+            "Ticks block entities grouped by type, all hoppers of a region, then all furnaces, and so on,",
+            "instead of in placement order. Keeps the same code hot across consecutive ticks, and moves",
+            "sleeping block entities out of the tick list entirely.",
+            "",
+            "This changes the relative tick order of block entities of different types within a tick,",
+            "contraptions relying on a hopper ticking before a nearby furnace may behave differently"
+        })
+        public boolean groupBlockEntityTicking = false;
     }
 
     public Chunks chunks = new Chunks();
@@ -131,6 +141,28 @@ public class Config {
         })
         public int threadPoolPriority = Thread.NORM_PRIORITY - 1;
 
+        public FairScheduling fairScheduling = new FairScheduling();
+        public static class FairScheduling {
+            @Comment(value = {
+                "Shares the chunk system workers between worlds by weighted fair queueing,",
+                "so a pregeneration or heavy generation in one world can't starve chunk loads in another"
+            })
+            public boolean enabled = false;
+
+            @Comment(value = {
+                "Weights of worlds by folder name, as name=weight. Worlds not listed have a weight of 1",
+                "A world with a weight of 4 gets four times the worker time of a world with a weight of 1 while both are busy"
+            })
+            public List<String> worldWeights = new ArrayList<>();
+
+            @Range(from = 0, to = 100, inclusive = true)
+            @Comment(value = {
+                "Percent of worker time reserved for tasks of player critical priorities, HIGHER and above.",
+                "Those tasks skip the fair ordering between worlds until they have used this share"
+            })
+            public int reservedCriticalShare = 25;
+        }
+
         public ChunkSending chunkSending = new ChunkSending();
         public static class ChunkSending {
             @AlwaysAtTop
@@ -145,6 +177,20 @@ public class Config {
                 "render distances higher than 32"
             })
             public int maxViewDistance = 32;
+
+            @Comment(value = {
+                "Loads and sends the chunks ahead of fast moving players first, like players flying with elytra",
+                "or riding boats on ice, based on their recent velocity. Chunks behind them are loaded last"
+            })
+            public boolean predictivePrefetch = true;
+
+            @Comment("How many seconds of movement ahead of a player are prefetched")
+            @PositiveNumericValue
+            public double prefetchLookaheadSeconds = 1.5D;
+
+            @Comment("The furthest ahead of a player, in chunks, the prefetch reaches")
+            @PositiveNumericValue
+            public int prefetchMaxLeadChunks = 8;
         }
 
         @Comment("Smoothens the bedrock layer at the bottom(and top if in the nether) of the world during world generation.")
@@ -170,11 +216,32 @@ public class Config {
             @Comment("Enables a port of the mod StructureLayoutOptimizer, which optimizes general Jigsaw structure generation")
             public boolean enableStructureLayoutOptimizer = true;
 
+            @Comment(value = {
+                "Checks which jigsaws of the candidate pieces can attach to the jigsaw being expanded all at once, on",
+                "the common pool when there are many, before the placer tries them. The placer still consumes the",
+                "answers in its own order, so layouts are identical. Requires enableStructureLayoutOptimizer"
+            })
+            public boolean parallelJigsawChecks = false;
+
             @Comment("Disables fluid ticking on chunk generation")
             public boolean disableFluidTickingInPostProcessGenerationStep = false;
 
             @Comment("Disables spawning mobs in the chunk generation step SPAWN which can bypass the mob cap")
             public boolean disableSpawnChunkStep = false;
+
+            @Experimental
+            @Comment(value = {
+                "Compiles the interpolated density functions of the noise router into generated classes, instead of",
+                "evaluating them as a tree of calls. Results are identical to the interpreter, noise samplers keep",
+                "their native batch paths."
+            })
+            public boolean compiledDensityFunctions = false;
+
+            @Comment(value = {
+                "Evaluates every distinct condition of the surface rules once per block or column, instead of once for",
+                "each place it appears in the rule tree. Results are identical."
+            })
+            public boolean shareSurfaceRuleConditions = false;
         }
 
         public Biomes biomes = new Biomes();
@@ -185,6 +252,62 @@ public class Config {
             @Comment("Seed obfuscation key for XXHash. Requires fastBiomeManagerSeedObfuscation to be enabled")
             public long seedObfuscationKey = ThreadLocalRandom.current().nextLong();
         }
+
+        public RegionCompression regionCompression = new RegionCompression();
+        public static class RegionCompression {
+            @Comment(value = {
+                "The codec used to compress chunks written to region files, one of \"deflate\", \"lz4\" or \"none\",",
+                "or a codec registered by a plugin. Existing chunks stay readable whatever their codec, so this",
+                "can be changed at any time, and chunks are converted as they are saved again or recompressed"
+            })
+            public String codec = "deflate";
+
+            @Range(from = 1, to = 9, inclusive = true)
+            @Comment("The deflate compression level, lower is faster but produces larger region files")
+            public int deflateLevel = 6;
+
+            @Comment(value = {
+                "Per-world codec overrides, in the format <world folder name>:<codec>",
+                "For example \"world_nether:lz4\""
+            })
+            public List<String> worldCodecs = new ArrayList<>();
+
+            @Comment(value = {
+                "The highest amount of chunks per second the recompress command converts. The recompressor",
+                "also backs off entirely while the chunk system or io workers have work queued"
+            })
+            @PositiveNumericValue
+            public int recompressChunksPerSecond = 200;
+        }
+
+        public MappedRegionReads mappedRegionReads = new MappedRegionReads();
+        public static class MappedRegionReads {
+            @Comment(value = {
+                "Serves region file reads from memory mappings of the region files instead of a read call per chunk.",
+                "Meant for read-mostly worlds with a lot of chunk loads, like hubs. Applies to region files opened",
+                "after it is enabled"
+            })
+            public boolean enabled = false;
+
+            @Comment("The seconds a region file mapping stays mapped without being read before it is released")
+            @PositiveNumericValue
+            public int idleUnmapSeconds = 60;
+        }
+
+        public SectionHibernation sectionHibernation = new SectionHibernation();
+        public static class SectionHibernation {
+            @Comment(value = {
+                "Moves the block states of loaded chunks that have not ticked for a while, like those beyond the simulation",
+                "distance of every player, into off heap memory, cutting the heap used by high view distances. Chunk sends",
+                "and saves read them there. A section moves back onto the heap when a block of it is looked up or written to, and",
+                "a whole chunk when it starts ticking or unloads"
+            })
+            public boolean enabled = false;
+
+            @Comment("The seconds a chunk has to go without ticking before its sections are moved off heap")
+            @PositiveNumericValue
+            public int idleSeconds = 300;
+        }
     }
 
     public Debug debug = new Debug();
@@ -255,6 +378,23 @@ public class Config {
 
             @Comment("Max TNT primed for merging logic to start. Requires 'mergeTntLogic' to be enabled")
             public int maxTntPrimedForMerge = 100;
+
+            @Comment(value = {
+                "Casts the block rays of explosions in parallel, reading the loaded chunks around the explosion",
+                "into a per-explosion resistance grid. The exploded blocks and the random are the same as vanilla,",
+                "explosions near unloaded chunks or with plugin/modded damage calculators are still cast serially"
+            })
+            public boolean parallelRayCasting = false;
+
+            @Comment(value = {
+                "Resolves the tnt and end crystal explosions of a region's entity tick together, after the entities",
+                "tick. Blocks are cast before any explosion of the batch breaks blocks, entities are hurt before",
+                "blocks break, every block is broken once, and explode packets are coalesced per center.",
+                "An entity's exposure is evaluated once for all explosions centered in the same block, and the",
+                "neighbour updates of the broken blocks are sent once, skipping those to blocks that are air by then.",
+                "Not vanilla: later explosions of a tick no longer see the holes of earlier ones, affecting cannons"
+            })
+            public boolean batchExplosions = false;
         }
 
         @Comment(value = {
@@ -299,6 +439,18 @@ public class Config {
             @Comment("How many ticks to throttle when teh Hopper is throttled")
             public int skipTicks = 8;
         }
+
+        @Comment(value = {
+            "Puts hoppers that have nothing to move to sleep until something they depend on changes,",
+            "the contents of the hopper or of the containers it pulls from and pushes into, a block next",
+            "to it, or an item or container entity entering its pickup area. Idle hoppers then cost",
+            "nothing per tick instead of looking up their containers every tick.",
+            "",
+            "Hoppers next to container entities, or to furnaces and brewing stands that are working, stay",
+            "awake. Plugins changing an item in a container in place, without setting it again, do not",
+            "wake hoppers. Overrides throttle-hopper-when-full"
+        })
+        public boolean hopperWakeups = false;
     }
 
     @Comment(value = {
@@ -380,6 +532,13 @@ public class Config {
         @Comment("Enables a modified version of Pufferfish's async mob spawning patch")
         public boolean enableAsyncSpawning = true;
 
+        @Comment(value = {
+            "Caches per chunk the mob categories the biomes and structures around it have spawners for, and skips",
+            "natural spawn attempts of the other categories, which could never spawn anything. Only whole categories",
+            "are skipped, spawn positions and mob counts are still found and counted like vanilla"
+        })
+        public boolean skipCategoriesWithoutSpawners = false;
+
         @Comment("Disables the ticking of a useless secondary poi sensor")
         public boolean skipUselessSecondaryPoiSensor = true;
 
@@ -419,6 +578,13 @@ public class Config {
 
             @Comment("The threshold for an entity to be considered \"crammed\"")
             public int crammedThreshold = 2;
+
+            @Comment(value = {
+                "Keeps a grid of each region's entities, updated as they move, and pushes entities using it.",
+                "Pushing stops looking once it found enough entities for the cramming rule and the collision cap,",
+                "so large mob stacks no longer cost quadratic time. Requires a restart"
+            })
+            public boolean entityBroadphase = false;
         }
 
         @Comment("The amount of ticks between in-wall checks")
@@ -619,6 +785,14 @@ public class Config {
             "Keep in mind the result is rounded to the nearest whole number."
         })
         public int playerNearChunkDetectionRange = 128;
+
+        @Comment(value = {
+            "Keeps a chunk resolution map of the players near each chunk of a region, rebuilt only when a player crosses into",
+            "another chunk. Despawn checks find the nearest player from the players listed for the mob's chunk, and entity",
+            "activation, including the dynamic activation of brain priority, looks up the players around each entity instead of",
+            "querying the entities around every player. The results are the same as without it"
+        })
+        public boolean playerDistanceField = false;
     }
 
     @Comment("Configure the amount of ticks between updating chunk precipitation")
@@ -726,7 +900,11 @@ public class Config {
     })
     public boolean skipMapItemDataUpdates = false;
 
-    @Comment("Makes PlayerData save asynchronously")
+    @Comment(value = {
+        "Makes PlayerData save asynchronously",
+        "Repeated saves of the same player are coalesced and written in batches,",
+        "and player data is read ahead while the player is still logging in"
+    })
     public boolean asyncPlayerDataSave = false;
 
     @Comment("Reduces chunk source updates on inter-chunk player moves. Recommended to enable")
@@ -742,6 +920,27 @@ public class Config {
         public boolean enabled = false;
         public int asyncLocatorThreads = 1;
         public int asyncLocatorKeepalive = 60;
+        @Comment(value = {
+            "Keeps a persistent index of the structure starts of every chunk with known structures,",
+            "and answers locates from it when it knows every candidate the search would look at.",
+            "Locates that skip known structures, like treasure maps, always search"
+        })
+        public boolean structureIndex = false;
+    }
+
+    public Metrics metrics = new Metrics();
+    public static class Metrics {
+        @Comment(value = {
+            "Enables the OpenMetrics exporter, which can be scraped by Prometheus",
+            "or any compatible collector at http://<bindAddress>:<port>/metrics",
+            "Exposes tick durations, tick runner utilization, chunk system queue",
+            "depth, io worker pending writes and async pool statistics"
+        })
+        public boolean enabled = false;
+        @Comment("The address the exporter binds to. Keep this on loopback unless the port is firewalled")
+        public String bindAddress = "127.0.0.1";
+        @Range(from = 1, to = 65535, inclusive = true)
+        public int port = 9225;
     }
 
     @Comment("Determines the amount of joins that can be processed per tick, can help buffer joins to the server with lots of players joining at once")
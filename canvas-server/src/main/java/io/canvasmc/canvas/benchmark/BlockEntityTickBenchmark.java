@@ -0,0 +1,206 @@
+package io.canvasmc.canvas.benchmark;
+
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import org.jetbrains.annotations.NotNull;
+
+// compares ticking a region's block entities in placement order, where hoppers, furnaces, campfires and
+// brewing stands alternate at random, against ticking them grouped by type, as with group-block-entity-ticking,
+// once from a single loop and once with every type ticked by its own hidden copy of the loop, which is how the
+// tick list runs its buckets. the tickers are synthetic stand-ins for the vanilla ones, each touching its own
+// fields and a shared array like a container would, so the difference measured is dispatch and locality, not
+// the game logic
+public class BlockEntityTickBenchmark {
+
+    private static final int TICKERS = 20_000;
+    private static final int WARMUP_TICKS = 2_000;
+    private static final int RUN_TICKS = 5_000;
+
+    public static void main(String[] args) {
+        final SplittableRandom random = new SplittableRandom(TICKERS);
+        final Ticker[] placement = new Ticker[TICKERS];
+        for (int i = 0; i < TICKERS; i++) {
+            placement[i] = switch (random.nextInt(4)) {
+                case 0 -> new Hopper(random.nextInt(8));
+                case 1 -> new Furnace(random.nextInt(200));
+                case 2 -> new Campfire(random.nextInt(600));
+                default -> new BrewingStand(random.nextInt(400));
+            };
+        }
+        final Ticker[] grouped = placement.clone();
+        // stable, so the placement order is kept within each type, as in a bucket
+        Arrays.sort(grouped, Comparator.comparing(ticker -> ticker.getClass().getName()));
+
+        // the start of each type in the grouped order, and the loop copy that ticks it
+        final int[] starts = new int[5];
+        final Loop[] loops = new Loop[4];
+        int type = 0;
+        for (int i = 0; i < grouped.length; i++) {
+            if (i == 0 || grouped[i].getClass() != grouped[i - 1].getClass()) {
+                starts[type] = i;
+                loops[type++] = defineLoop();
+            }
+        }
+        starts[type] = grouped.length;
+
+        final long[] sink = new long[1];
+        for (int round = 0; round < 3; round++) {
+            tick(placement, WARMUP_TICKS, sink);
+            tick(grouped, WARMUP_TICKS, sink);
+            tick(grouped, starts, loops, WARMUP_TICKS, sink);
+            final long placementNanos = tick(placement, RUN_TICKS, sink);
+            final long groupedNanos = tick(grouped, RUN_TICKS, sink);
+            final long perTypeNanos = tick(grouped, starts, loops, RUN_TICKS, sink);
+            System.out.printf("round %d: placement order %6.1f us/tick, grouped %6.1f us/tick (%.2fx), grouped with a loop per type %6.1f us/tick (%.2fx)\n",
+                round, placementNanos / (RUN_TICKS * 1_000.0D), groupedNanos / (RUN_TICKS * 1_000.0D),
+                (double) placementNanos / groupedNanos, perTypeNanos / (RUN_TICKS * 1_000.0D), (double) placementNanos / perTypeNanos);
+        }
+        System.out.println("(checksum " + sink[0] + ")");
+    }
+
+    private static @NotNull Loop defineLoop() {
+        final String name = TypeLoop.class.getName();
+        try (InputStream in = TypeLoop.class.getResourceAsStream(name.substring(name.lastIndexOf('.') + 1) + ".class")) {
+            if (in == null) throw new IllegalStateException("Missing class file of " + name);
+            return (Loop) MethodHandles.lookup().defineHiddenClass(in.readAllBytes(), true).lookupClass().getDeclaredConstructor().newInstance();
+        } catch (Exception exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private static long tick(Ticker @NotNull [] tickers, int ticks, long @NotNull [] sink) {
+        final long start = System.nanoTime();
+        long checksum = 0L;
+        for (int tick = 0; tick < ticks; tick++) {
+            for (final Ticker ticker : tickers) {
+                checksum += ticker.tick(tick);
+            }
+        }
+        sink[0] += checksum;
+        return System.nanoTime() - start;
+    }
+
+    private static long tick(Ticker @NotNull [] tickers, int @NotNull [] starts, Loop @NotNull [] loops, int ticks, long @NotNull [] sink) {
+        final long start = System.nanoTime();
+        long checksum = 0L;
+        for (int tick = 0; tick < ticks; tick++) {
+            for (int type = 0; type < loops.length; type++) {
+                checksum += loops[type].tick(tickers, starts[type], starts[type + 1], tick);
+            }
+        }
+        sink[0] += checksum;
+        return System.nanoTime() - start;
+    }
+
+    interface Ticker {
+        int tick(int gameTime);
+    }
+
+    abstract static class Loop {
+        abstract long tick(Ticker[] tickers, int from, int to, int gameTime);
+    }
+
+    static final class TypeLoop extends Loop {
+
+        @Override
+        long tick(Ticker[] tickers, int from, int to, int gameTime) {
+            long checksum = 0L;
+            for (int i = from; i < to; i++) {
+                checksum += tickers[i].tick(gameTime);
+            }
+            return checksum;
+        }
+    }
+
+    private static final class Hopper implements Ticker {
+        private final int[] items = new int[5];
+        private int cooldown;
+
+        private Hopper(int cooldown) {
+            this.cooldown = cooldown;
+        }
+
+        @Override
+        public int tick(int gameTime) {
+            if (--this.cooldown > 0) return 0;
+            this.cooldown = 8;
+            for (int slot = 0; slot < this.items.length; slot++) {
+                if (this.items[slot] < 64) {
+                    this.items[slot]++;
+                    return slot;
+                }
+            }
+            Arrays.fill(this.items, 0);
+            return -1;
+        }
+    }
+
+    private static final class Furnace implements Ticker {
+        private int litTime;
+        private int cookingProgress;
+        private int smelted;
+
+        private Furnace(int litTime) {
+            this.litTime = litTime;
+        }
+
+        @Override
+        public int tick(int gameTime) {
+            if (this.litTime > 0) {
+                this.litTime--;
+                if (++this.cookingProgress == 200) {
+                    this.cookingProgress = 0;
+                    this.smelted++;
+                }
+            } else {
+                this.litTime = 1600;
+            }
+            return this.smelted;
+        }
+    }
+
+    private static final class Campfire implements Ticker {
+        private final int[] cookingProgress = new int[4];
+        private final int cookingTime;
+
+        private Campfire(int cookingTime) {
+            this.cookingTime = cookingTime + 1;
+        }
+
+        @Override
+        public int tick(int gameTime) {
+            int done = 0;
+            for (int slot = 0; slot < this.cookingProgress.length; slot++) {
+                if (++this.cookingProgress[slot] >= this.cookingTime) {
+                    this.cookingProgress[slot] = 0;
+                    done++;
+                }
+            }
+            return done;
+        }
+    }
+
+    private static final class BrewingStand implements Ticker {
+        private int brewTime;
+        private int fuel = 20;
+
+        private BrewingStand(int brewTime) {
+            this.brewTime = brewTime;
+        }
+
+        @Override
+        public int tick(int gameTime) {
+            if (this.brewTime > 0) {
+                return --this.brewTime == 0 ? 1 : 0;
+            }
+            if (this.fuel > 0 && (gameTime & 31) == 0) {
+                this.fuel--;
+                this.brewTime = 400;
+            }
+            return 0;
+        }
+    }
+}
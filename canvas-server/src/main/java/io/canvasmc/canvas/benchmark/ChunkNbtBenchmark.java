@@ -0,0 +1,205 @@
+package io.canvasmc.canvas.benchmark;
+
+import com.mojang.serialization.Codec;
+import com.mojang.serialization.Lifecycle;
+import io.canvasmc.canvas.server.chunk.nbt.PaletteCodecs;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import net.minecraft.SharedConstants;
+import net.minecraft.core.Holder;
+import net.minecraft.core.MappedRegistry;
+import net.minecraft.core.RegistrationInfo;
+import net.minecraft.core.Registry;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.data.registries.VanillaRegistries;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtOps;
+import net.minecraft.nbt.Tag;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.world.level.biome.Biome;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.PalettedContainer;
+import net.minecraft.world.level.chunk.PalettedContainerRO;
+import net.minecraft.world.level.chunk.storage.RegionFileVersion;
+import org.jetbrains.annotations.NotNull;
+
+// loads every chunk of a fixed region folder into memory, then compares decoding and encoding the block
+// state and biome containers of their sections through the vanilla container codecs against the direct
+// palette codecs chunk loads and saves use, in time and bytes allocated per chunk. run with the region
+// folder of a copied world as the argument, for example world/region
+public class ChunkNbtBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int TEST_ITERATIONS = 10;
+    private static final String SECTIONS = "sections";
+    private static final String BLOCK_STATES = "block_states";
+    private static final String BIOMES = "biomes";
+    private static final Codec<PalettedContainer<BlockState>> VANILLA_BLOCK_STATES = PalettedContainer.codecRW(
+        Block.BLOCK_STATE_REGISTRY, BlockState.CODEC, PalettedContainer.Strategy.SECTION_STATES, Blocks.AIR.defaultBlockState(), null
+    );
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.out.println("Usage: ChunkNbtBenchmark <region folder>");
+            return;
+        }
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+        final Registry<Biome> biomeRegistry = biomeRegistry();
+        final PaletteCodecs.Biomes biomes = new PaletteCodecs.Biomes(biomeRegistry);
+        final Codec<PalettedContainerRO<Holder<Biome>>> biomeCodec = PalettedContainer.codecRO(
+            biomes.registry(), biomeRegistry.holderByNameCodec(), PalettedContainer.Strategy.SECTION_BIOMES, biomes.defaultValue(), null
+        );
+        final List<byte[]> chunks = loadCorpus(Path.of(args[0]));
+        System.out.printf("Loaded %d chunks\n\n", chunks.size());
+        if (chunks.isEmpty()) return;
+
+        final List<CompoundTag> sections = new ArrayList<>();
+        for (final byte[] chunk : chunks) {
+            for (final Tag section : NbtIo.read(input(chunk)).getListOrEmpty(SECTIONS)) {
+                if (section instanceof CompoundTag tag) sections.add(tag);
+            }
+        }
+        verify(sections, biomes, biomeCodec);
+
+        final List<PalettedContainer<BlockState>> states = new ArrayList<>(sections.size());
+        final List<PalettedContainerRO<Holder<Biome>>> biomeContainers = new ArrayList<>(sections.size());
+        for (final CompoundTag section : sections) {
+            section.getCompound(BLOCK_STATES).map(tag -> VANILLA_BLOCK_STATES.parse(NbtOps.INSTANCE, tag).getOrThrow()).ifPresent(states::add);
+            section.getCompound(BIOMES).map(tag -> biomeCodec.parse(NbtOps.INSTANCE, tag).getOrThrow()).ifPresent(biomeContainers::add);
+        }
+
+        benchmark("Decode (vanilla codecs)", chunks.size(), () -> {
+            for (final CompoundTag section : sections) {
+                section.getCompound(BLOCK_STATES).ifPresent(tag -> VANILLA_BLOCK_STATES.parse(NbtOps.INSTANCE, tag));
+                section.getCompound(BIOMES).ifPresent(tag -> biomeCodec.parse(NbtOps.INSTANCE, tag));
+            }
+        });
+        benchmark("Decode (direct)", chunks.size(), () -> {
+            for (final CompoundTag section : sections) {
+                section.getCompound(BLOCK_STATES).ifPresent(tag -> PaletteCodecs.unpack(PaletteCodecs.BlockStates.INSTANCE, tag));
+                section.getCompound(BIOMES).ifPresent(tag -> PaletteCodecs.unpack(biomes, tag));
+            }
+        });
+        benchmark("Encode (vanilla codecs)", chunks.size(), () -> {
+            for (final PalettedContainer<BlockState> container : states) VANILLA_BLOCK_STATES.encodeStart(NbtOps.INSTANCE, container);
+            for (final PalettedContainerRO<Holder<Biome>> container : biomeContainers) biomeCodec.encodeStart(NbtOps.INSTANCE, container);
+        });
+        benchmark("Encode (direct)", chunks.size(), () -> {
+            for (final PalettedContainer<BlockState> container : states) PaletteCodecs.pack(PaletteCodecs.BlockStates.INSTANCE, container);
+            for (final PalettedContainerRO<Holder<Biome>> container : biomeContainers) PaletteCodecs.pack(biomes, container);
+        });
+    }
+
+    private static @NotNull Registry<Biome> biomeRegistry() {
+        final MappedRegistry<Biome> registry = new MappedRegistry<>(Registries.BIOME, Lifecycle.stable());
+        VanillaRegistries.createLookup().lookupOrThrow(Registries.BIOME).listElements()
+            .forEach(biome -> registry.register(biome.key(), biome.value(), RegistrationInfo.BUILT_IN));
+        return registry.freeze();
+    }
+
+    private static void benchmark(String name, int chunks, @NotNull IOAction action) throws IOException {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            action.run();
+        }
+        long totalTime = 0L, totalAllocated = 0L;
+        for (int i = 0; i < TEST_ITERATIONS; i++) {
+            final long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+            final long start = System.nanoTime();
+            action.run();
+            totalTime += System.nanoTime() - start;
+            totalAllocated += THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        }
+        final double perChunk = (double) TEST_ITERATIONS * chunks;
+        System.out.printf("%s: %.2f us/chunk, %.0f bytes allocated/chunk\n", name, totalTime / perChunk / 1_000.0, totalAllocated / perChunk);
+    }
+
+    // the direct codecs must decode every container to one that holds the same values as the vanilla decoded one,
+    // and encode it to the same tag vanilla does
+    private static void verify(@NotNull List<CompoundTag> sections, PaletteCodecs.@NotNull Biomes biomes, @NotNull Codec<PalettedContainerRO<Holder<Biome>>> biomeCodec) {
+        int mismatches = 0;
+        for (final CompoundTag section : sections) {
+            if (!section.getCompound(BLOCK_STATES).map(tag -> matches(tag, PaletteCodecs.BlockStates.INSTANCE, VANILLA_BLOCK_STATES)).orElse(true)
+                || !section.getCompound(BIOMES).map(tag -> matches(tag, biomes, biomeCodec)).orElse(true)) {
+                mismatches++;
+            }
+        }
+        System.out.printf("Verified %d sections, %d mismatches\n\n", sections.size(), mismatches);
+    }
+
+    private static <T, C extends PalettedContainerRO<T>> boolean matches(@NotNull CompoundTag tag, PaletteCodecs.@NotNull Entries<T> entries, @NotNull Codec<C> vanilla) {
+        final C expected = vanilla.parse(NbtOps.INSTANCE, tag).getOrThrow();
+        final PalettedContainer<T> direct = PaletteCodecs.unpack(entries, tag);
+        if (direct == null) {
+            return false;
+        }
+        // 16 blocks or 4 biomes along each axis
+        final int edge = (int) Math.round(Math.cbrt(entries.strategy().size()));
+        for (int y = 0; y < edge; y++) {
+            for (int z = 0; z < edge; z++) {
+                for (int x = 0; x < edge; x++) {
+                    if (expected.get(x, y, z) != direct.get(x, y, z)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return vanilla.encodeStart(NbtOps.INSTANCE, expected).getOrThrow().equals(PaletteCodecs.pack(entries, expected));
+    }
+
+    private static @NotNull DataInputStream input(byte @NotNull [] data) {
+        return new DataInputStream(new ByteArrayInputStream(data));
+    }
+
+    private static @NotNull List<byte[]> loadCorpus(@NotNull Path folder) throws IOException {
+        final List<byte[]> chunks = new ArrayList<>();
+        final List<Path> regions;
+        try (Stream<Path> files = Files.list(folder)) {
+            regions = files.filter(path -> path.getFileName().toString().endsWith(".mca")).sorted().toList();
+        }
+        for (final Path region : regions) {
+            try (FileChannel channel = FileChannel.open(region, StandardOpenOption.READ)) {
+                final ByteBuffer header = ByteBuffer.allocate(4096);
+                if (channel.read(header, 0L) < 4096) continue;
+                header.flip();
+                for (int i = 0; i < 1024; i++) {
+                    final int location = header.getInt(i * 4);
+                    if (location == 0) continue;
+                    final ByteBuffer chunk = ByteBuffer.allocate((location & 0xFF) * 4096);
+                    channel.read(chunk, (long) (location >>> 8) * 4096L);
+                    chunk.flip();
+                    if (chunk.remaining() < 5) continue;
+                    final int length = chunk.getInt();
+                    final byte version = chunk.get();
+                    // chunks stored in external files are left out of the corpus
+                    final RegionFileVersion codec = RegionFileVersion.fromId(version);
+                    if (codec == null || length - 1 > chunk.remaining()) continue;
+                    try (InputStream in = codec.wrap(new ByteArrayInputStream(chunk.array(), 5, length - 1))) {
+                        chunks.add(in.readAllBytes());
+                    }
+                }
+            }
+        }
+        return chunks;
+    }
+
+    @FunctionalInterface
+    private interface IOAction {
+        void run() throws IOException;
+    }
+}
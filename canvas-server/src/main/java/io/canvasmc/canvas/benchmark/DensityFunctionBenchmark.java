@@ -0,0 +1,179 @@
+package io.canvasmc.canvas.benchmark;
+
+import io.canvasmc.canvas.server.level.density.CompiledDensityFunction;
+import io.canvasmc.canvas.server.level.density.DensityFunctionCompiler;
+import java.util.List;
+import java.util.SplittableRandom;
+import net.minecraft.SharedConstants;
+import net.minecraft.core.HolderLookup;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.data.registries.VanillaRegistries;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.levelgen.Aquifer;
+import net.minecraft.world.level.levelgen.DensityFunction;
+import net.minecraft.world.level.levelgen.DensityFunctions;
+import net.minecraft.world.level.levelgen.NoiseChunk;
+import net.minecraft.world.level.levelgen.NoiseGeneratorSettings;
+import net.minecraft.world.level.levelgen.NoiseSettings;
+import net.minecraft.world.level.levelgen.RandomState;
+import net.minecraft.world.level.levelgen.blending.Blender;
+import org.jetbrains.annotations.NotNull;
+
+// compiles the interpolator fillers of noise chunks of the vanilla noise settings the way chunk generation does, the
+// first chunk of every settings through the compiler and the rest through the templates it leaves, and checks that
+// the fillers the noise chunks end up with return exactly the same doubles as the interpreted fillers they replaced,
+// for random coordinates in and around the chunk, through both compute and fillArray. then compares their speed, and
+// what compiling the fillers of one more chunk costs. exits with a non-zero status on any mismatch
+public class DensityFunctionBenchmark {
+
+    private static final int VERIFY_CHUNKS = 4;
+    private static final int VERIFY_POINTS = 25_000;
+    private static final int BENCHMARK_POINTS = 1_000_000;
+    private static final int BENCHMARK_CHUNKS = 1_000;
+    private static final int FILL_SIZE = 128;
+    private static final long SEED = 0x5EEDL;
+    private static final List<ResourceKey<NoiseGeneratorSettings>> SETTINGS = List.of(
+        NoiseGeneratorSettings.OVERWORLD, NoiseGeneratorSettings.LARGE_BIOMES, NoiseGeneratorSettings.AMPLIFIED,
+        NoiseGeneratorSettings.NETHER, NoiseGeneratorSettings.END, NoiseGeneratorSettings.CAVES, NoiseGeneratorSettings.FLOATING_ISLANDS
+    );
+    private static final Aquifer.FluidPicker NO_FLUID = (x, y, z) -> new Aquifer.FluidStatus(Integer.MIN_VALUE, Blocks.AIR.defaultBlockState());
+
+    public static void main(String[] args) {
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+        final HolderLookup.Provider registries = VanillaRegistries.createLookup();
+        final SplittableRandom random = new SplittableRandom(SEED);
+
+        long mismatches = 0L;
+        for (final ResourceKey<NoiseGeneratorSettings> key : SETTINGS) {
+            final NoiseGeneratorSettings settings = registries.lookupOrThrow(Registries.NOISE_SETTINGS).getOrThrow(key).value();
+            final RandomState randomState = RandomState.create(registries, key, SEED);
+            for (int chunk = 0; chunk < VERIFY_CHUNKS; chunk++) {
+                final ChunkPos pos = new ChunkPos(random.nextInt(-1_800_000, 1_800_000), random.nextInt(-1_800_000, 1_800_000));
+                final NoiseChunk noiseChunk = noiseChunk(randomState, settings, pos);
+                final DensityFunction[] interpreted = fillers(noiseChunk);
+                DensityFunctionCompiler.compileInterpolators(noiseChunk);
+                final DensityFunction[] compiled = fillers(noiseChunk);
+                for (int i = 0; i < compiled.length; i++) {
+                    if (!(compiled[i] instanceof CompiledDensityFunction)) continue;
+                    final long failed = verify(interpreted[i], compiled[i], pos, random);
+                    mismatches += failed;
+                    System.out.printf("%s %s interpolator %d: %d mismatches\n", key.location(), pos, i, failed);
+                }
+            }
+        }
+        System.out.printf("\n%d mismatches in total\n\n", mismatches);
+        if (mismatches != 0L) {
+            System.exit(1);
+        }
+
+        final NoiseGeneratorSettings settings = registries.lookupOrThrow(Registries.NOISE_SETTINGS).getOrThrow(NoiseGeneratorSettings.OVERWORLD).value();
+        final RandomState randomState = RandomState.create(registries, NoiseGeneratorSettings.OVERWORLD, SEED);
+        final NoiseChunk noiseChunk = noiseChunk(randomState, settings, new ChunkPos(0, 0));
+        final DensityFunction[] interpreted = fillers(noiseChunk);
+        DensityFunctionCompiler.compileInterpolators(noiseChunk);
+        final DensityFunction[] compiled = fillers(noiseChunk);
+        for (int i = 0; i < compiled.length; i++) {
+            if (!(compiled[i] instanceof CompiledDensityFunction)) continue;
+            benchmark("overworld interpolator " + i + " (interpreted)", interpreted[i]);
+            benchmark("overworld interpolator " + i + " (compiled)", compiled[i]);
+        }
+
+        final NoiseChunk[] chunks = new NoiseChunk[BENCHMARK_CHUNKS];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = noiseChunk(randomState, settings, new ChunkPos(i, 0));
+        }
+        final long start = System.nanoTime();
+        for (final NoiseChunk chunk : chunks) {
+            DensityFunctionCompiler.compileInterpolators(chunk);
+        }
+        System.out.printf("compiling the fillers of a chunk: %.1f us\n", (System.nanoTime() - start) / 1_000.0 / chunks.length);
+    }
+
+    private static @NotNull NoiseChunk noiseChunk(@NotNull RandomState randomState, @NotNull NoiseGeneratorSettings settings, @NotNull ChunkPos pos) {
+        final NoiseSettings noiseSettings = settings.noiseSettings();
+        return new NoiseChunk(
+            16 / noiseSettings.getCellWidth(), randomState, pos.getMinBlockX(), pos.getMinBlockZ(), noiseSettings,
+            DensityFunctions.BeardifierMarker.INSTANCE, settings, NO_FLUID, Blender.empty()
+        );
+    }
+
+    private static DensityFunction @NotNull [] fillers(@NotNull NoiseChunk noiseChunk) {
+        return noiseChunk.interpolators.stream().map(interpolator -> interpolator.noiseFiller).toArray(DensityFunction[]::new);
+    }
+
+    private static long verify(@NotNull DensityFunction interpreted, @NotNull DensityFunction compiled, @NotNull ChunkPos pos, @NotNull SplittableRandom random) {
+        long mismatches = 0L;
+        for (int i = 0; i < VERIFY_POINTS; i++) {
+            final DensityFunction.SinglePointContext context = randomPoint(random, pos);
+            if (Double.doubleToRawLongBits(interpreted.compute(context)) != Double.doubleToRawLongBits(compiled.compute(context))) {
+                mismatches++;
+            }
+        }
+        final double[] expected = new double[FILL_SIZE];
+        final double[] actual = new double[FILL_SIZE];
+        for (int i = 0; i < VERIFY_POINTS / FILL_SIZE; i++) {
+            final PointProvider points = new PointProvider(random, pos);
+            interpreted.fillArray(expected, points);
+            compiled.fillArray(actual, points);
+            for (int j = 0; j < FILL_SIZE; j++) {
+                if (Double.doubleToRawLongBits(expected[j]) != Double.doubleToRawLongBits(actual[j])) {
+                    mismatches++;
+                }
+            }
+        }
+        return mismatches;
+    }
+
+    private static void benchmark(String name, @NotNull DensityFunction function) {
+        final SplittableRandom random = new SplittableRandom(SEED);
+        final DensityFunction.SinglePointContext[] points = new DensityFunction.SinglePointContext[BENCHMARK_POINTS];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = randomPoint(random, new ChunkPos(0, 0));
+        }
+        double sink = 0.0D;
+        for (int iteration = 0; iteration < 5; iteration++) {
+            final long start = System.nanoTime();
+            for (final DensityFunction.SinglePointContext point : points) {
+                sink += function.compute(point);
+            }
+            if (iteration >= 2) {
+                System.out.printf("%s: %.1f ns/sample\n", name, (double) (System.nanoTime() - start) / points.length);
+            }
+        }
+        if (sink == Double.MIN_VALUE) System.out.println(sink);
+    }
+
+    // half of the points fall in the chunk, where the caches of the noise chunk answer, the rest anywhere
+    private static DensityFunction.@NotNull SinglePointContext randomPoint(@NotNull SplittableRandom random, @NotNull ChunkPos pos) {
+        if (random.nextBoolean()) {
+            return new DensityFunction.SinglePointContext(pos.getMinBlockX() + random.nextInt(16), random.nextInt(-64, 320), pos.getMinBlockZ() + random.nextInt(16));
+        }
+        return new DensityFunction.SinglePointContext(random.nextInt(-30_000_000, 30_000_000), random.nextInt(-64, 320), random.nextInt(-30_000_000, 30_000_000));
+    }
+
+    private static final class PointProvider implements DensityFunction.ContextProvider {
+        private final DensityFunction.SinglePointContext[] points = new DensityFunction.SinglePointContext[FILL_SIZE];
+
+        private PointProvider(SplittableRandom random, ChunkPos pos) {
+            for (int i = 0; i < FILL_SIZE; i++) {
+                this.points[i] = randomPoint(random, pos);
+            }
+        }
+
+        @Override
+        public DensityFunction.@NotNull FunctionContext forIndex(int index) {
+            return this.points[index];
+        }
+
+        @Override
+        public void fillAllDirectly(double @NotNull [] values, @NotNull DensityFunction function) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = function.compute(this.points[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package io.canvasmc.canvas.benchmark;
+
+import io.canvasmc.canvas.server.level.explosion.ExplosionRays;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import org.jetbrains.annotations.NotNull;
+
+// compares casting the block rays of a burst of tnt explosions on one thread, one explosion after another, against
+// casting each explosion's rays on a small pool with the calling thread taking a share, as with parallel-ray-casting. the terrain is a synthetic mix
+// of air, stone, dirt and water with obsidian walls, standing in for a tnt cannon or a flattened test world, and
+// the exploded cells of both casts are checked to be identical
+public class ExplosionRayBenchmark {
+
+    private static final int EXPLOSIONS = 1_000;
+    private static final float TNT_RADIUS = 4.0F;
+    private static final int WORLD_SIZE = 256;
+    private static final float STONE = (6.0F + 0.3F) * 0.3F;
+    private static final float DIRT = (0.5F + 0.3F) * 0.3F;
+    private static final float WATER = (100.0F + 0.3F) * 0.3F;
+    private static final float OBSIDIAN = (1200.0F + 0.3F) * 0.3F;
+    private static final int WORKERS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    private static final ForkJoinPool POOL = new ForkJoinPool(WORKERS);
+
+    public static void main(String[] args) {
+        final SplittableRandom random = new SplittableRandom(EXPLOSIONS);
+        final float[] world = new float[WORLD_SIZE * WORLD_SIZE * WORLD_SIZE];
+        for (int i = 0; i < world.length; i++) {
+            final int roll = random.nextInt(100);
+            world[i] = roll < 55 ? 0.0F : roll < 80 ? STONE : roll < 92 ? DIRT : roll < 97 ? WATER : OBSIDIAN;
+        }
+        final double[] centers = new double[EXPLOSIONS * 3];
+        for (int i = 0; i < centers.length; i++) {
+            centers[i] = 16.0D + random.nextDouble() * (WORLD_SIZE - 32);
+        }
+        final float[][] powers = new float[EXPLOSIONS][ExplosionRays.RAY_COUNT];
+        for (final float[] explosion : powers) {
+            for (int ray = 0; ray < explosion.length; ray++) {
+                explosion[ray] = TNT_RADIUS * (0.7F + (float) random.nextDouble() * 0.6F);
+            }
+        }
+
+        System.out.println("ray workers " + WORKERS);
+        for (int round = 0; round < 5; round++) {
+            long checksum = 0L;
+            long start = System.nanoTime();
+            final IntArrayList[] serial = new IntArrayList[EXPLOSIONS];
+            for (int i = 0; i < EXPLOSIONS; i++) {
+                serial[i] = castSerial(world, centers, i, powers[i]);
+                checksum += serial[i].size();
+            }
+            final long serialNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < EXPLOSIONS; i++) {
+                final IntArrayList parallel = castParallel(world, centers, i, powers[i]);
+                if (!parallel.equals(serial[i])) {
+                    throw new IllegalStateException("Explosion " + i + " differs between the serial and parallel cast");
+                }
+                checksum -= parallel.size();
+            }
+            final long parallelNanos = System.nanoTime() - start;
+            System.out.printf("round %d: serial %6.2f ms, parallel %6.2f ms (%.2fx) for %d explosions\n",
+                round, serialNanos / 1_000_000.0D, parallelNanos / 1_000_000.0D, (double) serialNanos / parallelNanos, EXPLOSIONS);
+            if (checksum != 0L) {
+                throw new IllegalStateException("Checksum mismatch");
+            }
+        }
+    }
+
+    private static @NotNull IntArrayList castSerial(float @NotNull [] world, double @NotNull [] centers, int explosion, float @NotNull [] powers) {
+        final WorldGrid grid = new WorldGrid(world, centers, explosion);
+        final IntArrayList cells = new IntArrayList();
+        ExplosionRays.cast(grid, centers[explosion * 3], centers[explosion * 3 + 1], centers[explosion * 3 + 2], powers,
+            0, ExplosionRays.RAY_COUNT, cells, new int[ExplosionRays.RAY_COUNT]);
+        return firstOccurrences(grid, List.of(cells));
+    }
+
+    private static @NotNull IntArrayList castParallel(float @NotNull [] world, double @NotNull [] centers, int explosion, float @NotNull [] powers) {
+        final WorldGrid grid = new WorldGrid(world, centers, explosion);
+        final int tasks = Math.max(1, Math.min(WORKERS + 1, ExplosionRays.RAY_COUNT / 128));
+        final List<RecursiveAction> casts = new ArrayList<>(tasks);
+        final List<IntArrayList> cells = new ArrayList<>(tasks);
+        for (int task = 0; task < tasks; task++) {
+            final int from = ExplosionRays.RAY_COUNT * task / tasks;
+            final int to = ExplosionRays.RAY_COUNT * (task + 1) / tasks;
+            final IntArrayList taskCells = new IntArrayList();
+            cells.add(taskCells);
+            casts.add(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    ExplosionRays.cast(grid, centers[explosion * 3], centers[explosion * 3 + 1], centers[explosion * 3 + 2], powers,
+                        from, to, taskCells, new int[to - from]);
+                }
+            });
+        }
+        for (int task = 1; task < tasks; task++) {
+            POOL.execute(casts.get(task));
+        }
+        casts.getFirst().compute();
+        for (int task = 1; task < tasks; task++) {
+            casts.get(task).join();
+        }
+        return firstOccurrences(grid, cells);
+    }
+
+    private static @NotNull IntArrayList firstOccurrences(@NotNull WorldGrid grid, @NotNull List<IntArrayList> cells) {
+        final boolean[] seen = new boolean[grid.size * grid.size * grid.size];
+        final IntArrayList exploded = new IntArrayList();
+        for (final IntArrayList taskCells : cells) {
+            for (int i = 0; i < taskCells.size(); i++) {
+                final int cell = taskCells.getInt(i);
+                if (!seen[cell]) {
+                    seen[cell] = true;
+                    exploded.add(cell);
+                }
+            }
+        }
+        return exploded;
+    }
+
+    private static final class WorldGrid extends ExplosionRays.Grid {
+        private final float[] world;
+
+        private WorldGrid(float @NotNull [] world, double @NotNull [] centers, int explosion) {
+            super((int) Math.floor(centers[explosion * 3]), (int) Math.floor(centers[explosion * 3 + 1]), (int) Math.floor(centers[explosion * 3 + 2]),
+                ExplosionRays.reach(TNT_RADIUS * 1.3F));
+            this.world = world;
+        }
+
+        @Override
+        protected float load(int cell, int x, int y, int z) {
+            final float resistance = this.world[(y * WORLD_SIZE + z) * WORLD_SIZE + x];
+            this.resistances[cell] = resistance;
+            return resistance;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package io.canvasmc.canvas.benchmark;
+
+import ca.spottedleaf.concurrentutil.util.Priority;
+import ca.spottedleaf.moonrise.common.util.MoonriseCommon;
+import io.canvasmc.canvas.Config;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import net.minecraft.Util;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.chunk.status.ChunkStatus;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+// generates a square of chunks that were never generated before, far out in the world, up to the surface
+// status, and measures the throughput. noise filling, aquifers and surface rules are the work measured,
+// so run it on seeds heavy in oceans and caves, and compare runs with the generation options toggled.
+// the generated proto chunks are saved like any other, so run it on a throwaway copy of the world
+public final class GenerationBenchmark {
+    private static final Logger LOGGER = LogManager.getLogger("Canvas Generation Benchmark");
+    private static final long BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(5L);
+    private static final Map<ServerLevel, GenerationBenchmark> RUNS = new ConcurrentHashMap<>();
+
+    private final ServerLevel world;
+    private final int chunks;
+    private final int originX;
+    private final int originZ;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger completed = new AtomicInteger();
+    private volatile long startNanos;
+    private volatile long endNanos;
+
+    private GenerationBenchmark(ServerLevel world, int chunks) {
+        this.world = world;
+        this.chunks = chunks;
+        // a random far away origin, so repeated runs don't hit already generated chunks
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        this.originX = random.nextInt(12_500, 60_000) * (random.nextBoolean() ? 1 : -1);
+        this.originZ = random.nextInt(12_500, 60_000) * (random.nextBoolean() ? 1 : -1);
+    }
+
+    public static @Nullable GenerationBenchmark start(@NotNull ServerLevel world, int chunks) {
+        final GenerationBenchmark benchmark = new GenerationBenchmark(world, chunks);
+        final GenerationBenchmark previous = RUNS.get(world);
+        if (previous != null && !previous.isFinished()) {
+            return null;
+        }
+        RUNS.put(world, benchmark);
+        final Thread thread = new Thread(benchmark::run, "Canvas Generation Benchmark - " + world.convertable.getLevelId());
+        thread.setDaemon(true);
+        thread.setUncaughtExceptionHandler(Util::onThreadException);
+        thread.start();
+        return benchmark;
+    }
+
+    // the running or last finished benchmark of this world
+    public static @Nullable GenerationBenchmark get(@NotNull ServerLevel world) {
+        return RUNS.get(world);
+    }
+
+    private void run() {
+        final int side = (int) Math.ceil(Math.sqrt(this.chunks));
+        this.startNanos = System.nanoTime();
+        for (int i = 0; i < this.chunks; i++) {
+            final int workers = Math.max(1, MoonriseCommon.WORKER_POOL.getCoreThreads().length);
+            while (this.inFlight.get() >= workers * 4) {
+                LockSupport.parkNanos(BACKOFF_NANOS);
+            }
+            this.inFlight.incrementAndGet();
+            this.world.moonrise$getChunkTaskScheduler().scheduleChunkLoad(
+                this.originX + i % side, this.originZ + i / side, ChunkStatus.SURFACE, true, Priority.NORMAL, (chunk) -> {
+                    this.completed.incrementAndGet();
+                    this.inFlight.decrementAndGet();
+                }
+            );
+        }
+        while (this.inFlight.get() > 0) {
+            LockSupport.parkNanos(BACKOFF_NANOS);
+        }
+        this.endNanos = System.nanoTime();
+        LOGGER.info("Generation benchmark of {}: {}", this.world.convertable.getLevelId(), this.status());
+    }
+
+    public boolean isFinished() {
+        return this.endNanos != 0L;
+    }
+
+    public @NotNull String status() {
+        final long end = this.isFinished() ? this.endNanos : System.nanoTime();
+        final double seconds = Math.max(1.0E-3D, (end - this.startNanos) * 1.0E-9D);
+        final Config.Chunks.Generation generation = Config.INSTANCE.chunks.generation;
+        return String.format(
+            "%s%d/%d chunks to surface around chunk %d, %d in %.2fs, %.1f chunks/s (compiled density functions: %s, shared surface rule conditions: %s, native acceleration: %s)",
+            this.isFinished() ? "" : "running, ", this.completed.get(), this.chunks, this.originX, this.originZ, seconds, this.completed.get() / seconds,
+            generation.compiledDensityFunctions, generation.shareSurfaceRuleConditions, Config.INSTANCE.chunks.nativeAcceleration.nativeAccelerationEnabled
+        );
+    }
+}
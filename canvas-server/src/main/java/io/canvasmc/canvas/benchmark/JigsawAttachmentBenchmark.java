@@ -0,0 +1,119 @@
+package io.canvasmc.canvas.benchmark;
+
+import io.canvasmc.canvas.util.structure.GeneralUtils;
+import io.canvasmc.canvas.util.structure.JigsawAttachments;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2BooleanOpenHashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import net.minecraft.SharedConstants;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.FrontAndTop;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.JigsawBlock;
+import net.minecraft.world.level.levelgen.structure.templatesystem.StructureTemplate;
+import org.jetbrains.annotations.NotNull;
+
+// checks that attachment checks computed ahead on the common pool, as with parallel-jigsaw-checks, give the placer
+// the same answers as checking each candidate when it is reached, and compares the time of both. for a fixed seed,
+// every expansion draws a shuffled walk over the jigsaws of its candidates and records which ones attach, the way
+// the placer consumes them, and both walks have to record exactly the same jigsaws. the jigsaws are synthetic, with
+// a handful of names and targets like a large modded village pool
+public class JigsawAttachmentBenchmark {
+
+    private static final long SEED = 0x5EEDL;
+    private static final int JIGSAWS = 4_096;
+    private static final int EXPANSIONS = 2_000;
+    private static final int CANDIDATES_PER_EXPANSION = 2_048;
+    private static final String[] NAMES = {"street", "house", "plaza", "wall", "tower", "bridge", "empty"};
+    private static final String[] JOINTS = {"rollable", "aligned"};
+
+    public static void main(String[] args) {
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+        final SplittableRandom random = new SplittableRandom(SEED);
+        final List<StructureTemplate.JigsawBlockInfo> jigsaws = new ArrayList<>(JIGSAWS);
+        for (int i = 0; i < JIGSAWS; i++) {
+            jigsaws.add(jigsaw(random, i));
+        }
+        final int[][] candidates = new int[EXPANSIONS][];
+        final int[] parents = new int[EXPANSIONS];
+        for (int expansion = 0; expansion < EXPANSIONS; expansion++) {
+            parents[expansion] = random.nextInt(JIGSAWS);
+            candidates[expansion] = random.ints(CANDIDATES_PER_EXPANSION, 0, JIGSAWS).toArray();
+        }
+
+        System.out.println("common pool parallelism " + ForkJoinPool.getCommonPoolParallelism());
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            final IntArrayList[] serial = new IntArrayList[EXPANSIONS];
+            for (int expansion = 0; expansion < EXPANSIONS; expansion++) {
+                serial[expansion] = walkSerial(jigsaws, parents[expansion], candidates[expansion], new SplittableRandom(SEED + expansion));
+            }
+            final long serialNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int expansion = 0; expansion < EXPANSIONS; expansion++) {
+                final IntArrayList parallel = walkPrecomputed(jigsaws, parents[expansion], candidates[expansion], new SplittableRandom(SEED + expansion));
+                if (!parallel.equals(serial[expansion])) {
+                    throw new IllegalStateException("Expansion " + expansion + " differs between the serial and precomputed checks");
+                }
+            }
+            final long parallelNanos = System.nanoTime() - start;
+            System.out.printf("round %d: serial %.2fms, precomputed %.2fms, identical%n", round, serialNanos * 1.0E-6D, parallelNanos * 1.0E-6D);
+        }
+    }
+
+    private static StructureTemplate.@NotNull JigsawBlockInfo jigsaw(@NotNull SplittableRandom random, int index) {
+        final FrontAndTop[] orientations = FrontAndTop.values();
+        final CompoundTag nbt = new CompoundTag();
+        nbt.putString("name", "canvas:" + NAMES[random.nextInt(NAMES.length)]);
+        nbt.putString("target", "canvas:" + NAMES[random.nextInt(NAMES.length)]);
+        nbt.putString("pool", "minecraft:empty");
+        nbt.putString("joint", JOINTS[random.nextInt(JOINTS.length)]);
+        nbt.putString("final_state", "minecraft:air");
+        return StructureTemplate.JigsawBlockInfo.of(new StructureTemplate.StructureBlockInfo(
+            new BlockPos(index, 0, 0), Blocks.JIGSAW.defaultBlockState().setValue(JigsawBlock.ORIENTATION, orientations[random.nextInt(orientations.length)]), nbt
+        ));
+    }
+
+    // the candidates the placer reaches, in its order, and which of them attach
+    private static @NotNull IntArrayList walkSerial(@NotNull List<StructureTemplate.JigsawBlockInfo> jigsaws, int parent, int @NotNull [] candidates, @NotNull SplittableRandom random) {
+        final IntArrayList attached = new IntArrayList();
+        for (final int candidate : shuffle(candidates, random)) {
+            if (GeneralUtils.canJigsawsAttach(jigsaws.get(parent), jigsaws.get(candidate))) {
+                attached.add(candidate);
+            }
+        }
+        return attached;
+    }
+
+    private static @NotNull IntArrayList walkPrecomputed(@NotNull List<StructureTemplate.JigsawBlockInfo> jigsaws, int parent, int @NotNull [] candidates, @NotNull SplittableRandom random) {
+        final List<StructureTemplate.JigsawBlockInfo> reached = new ArrayList<>(candidates.length);
+        for (final int candidate : candidates) {
+            reached.add(jigsaws.get(candidate));
+        }
+        final Reference2BooleanOpenHashMap<StructureTemplate.JigsawBlockInfo> results = JigsawAttachments.check(jigsaws.get(parent), reached);
+        final IntArrayList attached = new IntArrayList();
+        for (final int candidate : shuffle(candidates, random)) {
+            if (results.getBoolean(jigsaws.get(candidate))) {
+                attached.add(candidate);
+            }
+        }
+        return attached;
+    }
+
+    private static int @NotNull [] shuffle(int @NotNull [] candidates, @NotNull SplittableRandom random) {
+        final int[] order = candidates.clone();
+        for (int i = order.length - 1; i > 0; i--) {
+            final int j = random.nextInt(i + 1);
+            final int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        return order;
+    }
+}
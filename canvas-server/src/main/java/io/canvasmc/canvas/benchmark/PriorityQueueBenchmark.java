@@ -0,0 +1,184 @@
+package io.canvasmc.canvas.benchmark;
+
+import com.ishland.flowsched.structs.DynamicPriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import org.jetbrains.annotations.NotNull;
+
+// compares the intrusive flowsched priority queue against the previous implementation under the load of
+// fast travel: tens of thousands of queued chunk tasks whose priorities keep changing while workers dequeue
+// and requeue. every element dequeued is enqueued again, so the queue must still hold every element after
+// the run, exits with a non-zero status if the intrusive queue lost or duplicated any
+public class PriorityQueueBenchmark {
+
+    private static final int ELEMENTS = 50_000;
+    private static final long WARMUP_MILLIS = 2_000L;
+    private static final long RUN_MILLIS = 5_000L;
+    // of every 100 operations, this many are priority changes, the rest dequeue and requeue
+    private static final int CHANGE_PERCENT = 80;
+
+    public static void main(String[] args) throws InterruptedException {
+        final int maxThreads = Math.max(1, Runtime.getRuntime().availableProcessors());
+        boolean lost = false;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            benchmark("legacy", threads, new LegacyQueue());
+            final IntrusiveQueue intrusive = new IntrusiveQueue();
+            lost |= benchmark("intrusive", threads, intrusive) != ELEMENTS;
+        }
+        if (lost) {
+            System.out.println("\nthe intrusive queue lost elements");
+            System.exit(1);
+        }
+    }
+
+    private static int benchmark(String name, int threads, @NotNull Queue queue) throws InterruptedException {
+        final BenchElement[] elements = new BenchElement[ELEMENTS];
+        final SplittableRandom seed = new SplittableRandom(ELEMENTS);
+        for (int i = 0; i < ELEMENTS; i++) {
+            elements[i] = new BenchElement();
+            queue.enqueue(elements[i], seed.nextInt(DynamicPriorityQueue.MAX_PRIORITY));
+        }
+        run(queue, elements, threads, WARMUP_MILLIS);
+        final long operations = run(queue, elements, threads, RUN_MILLIS);
+        int drained = 0;
+        while (queue.dequeue() != null) {
+            drained++;
+        }
+        System.out.printf("%-9s %2d threads: %6.2f Mops/s, %d/%d elements left queued\n",
+            name, threads, operations / (RUN_MILLIS * 1_000.0D), drained, ELEMENTS);
+        return drained;
+    }
+
+    private static long run(@NotNull Queue queue, BenchElement @NotNull [] elements, int threads, long millis) throws InterruptedException {
+        final AtomicBoolean stop = new AtomicBoolean();
+        final LongAdder operations = new LongAdder();
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final SplittableRandom random = new SplittableRandom(t);
+            final Thread thread = new Thread(() -> {
+                long count = 0L;
+                while (!stop.get()) {
+                    if (random.nextInt(100) < CHANGE_PERCENT) {
+                        queue.changePriority(elements[random.nextInt(ELEMENTS)], random.nextInt(DynamicPriorityQueue.MAX_PRIORITY));
+                    } else {
+                        final BenchElement element = queue.dequeue();
+                        if (element != null) {
+                            queue.enqueue(element, random.nextInt(DynamicPriorityQueue.MAX_PRIORITY));
+                        }
+                    }
+                    count++;
+                }
+                operations.add(count);
+                done.countDown();
+            }, "Priority Queue Benchmark #" + t);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        Thread.sleep(millis);
+        stop.set(true);
+        done.await();
+        return operations.sum();
+    }
+
+    private interface Queue {
+        void enqueue(BenchElement element, int priority);
+
+        void changePriority(BenchElement element, int priority);
+
+        BenchElement dequeue();
+    }
+
+    private static final class BenchElement implements DynamicPriorityQueue.Element<BenchElement> {
+        private final DynamicPriorityQueue.Node<BenchElement> queueNode = new DynamicPriorityQueue.Node<>(this);
+
+        @Override
+        public DynamicPriorityQueue.Node<BenchElement> queueNode() {
+            return this.queueNode;
+        }
+    }
+
+    private static final class IntrusiveQueue implements Queue {
+        private final DynamicPriorityQueue<BenchElement> queue = new DynamicPriorityQueue<>();
+
+        @Override
+        public void enqueue(BenchElement element, int priority) {
+            this.queue.enqueue(element, priority);
+        }
+
+        @Override
+        public void changePriority(BenchElement element, int priority) {
+            this.queue.changePriority(element, priority);
+        }
+
+        @Override
+        public BenchElement dequeue() {
+            return this.queue.dequeue();
+        }
+    }
+
+    // the queue as it was before it became intrusive
+    private static final class LegacyQueue implements Queue {
+        private final AtomicIntegerArray taskCount = new AtomicIntegerArray(DynamicPriorityQueue.MAX_PRIORITY);
+        private final ConcurrentLinkedQueue<BenchElement>[] priorities;
+        private final ConcurrentHashMap<BenchElement, Integer> priorityMap = new ConcurrentHashMap<>();
+
+        private LegacyQueue() {
+            //noinspection unchecked
+            this.priorities = new ConcurrentLinkedQueue[DynamicPriorityQueue.MAX_PRIORITY];
+            for (int i = 0; i < DynamicPriorityQueue.MAX_PRIORITY; i++) {
+                this.priorities[i] = new ConcurrentLinkedQueue<>();
+            }
+        }
+
+        @Override
+        public void enqueue(BenchElement element, int priority) {
+            if (this.priorityMap.putIfAbsent(element, priority) != null)
+                throw new IllegalArgumentException("Element already in queue");
+
+            this.priorities[priority].add(element);
+            this.taskCount.incrementAndGet(priority);
+        }
+
+        @Override
+        public void changePriority(BenchElement element, int newPriority) {
+            Integer currentPriority = this.priorityMap.get(element);
+            if (currentPriority == null || currentPriority == newPriority) {
+                return;
+            }
+
+            int currentIndex = currentPriority;
+            boolean removedFromQueue = this.priorities[currentIndex].remove(element);
+            if (!removedFromQueue) {
+                return;
+            }
+
+            this.taskCount.decrementAndGet(currentIndex);
+            final boolean changeSuccess = this.priorityMap.replace(element, currentPriority, newPriority);
+            if (!changeSuccess) {
+                return;
+            }
+
+            this.priorities[newPriority].add(element);
+            this.taskCount.incrementAndGet(newPriority);
+        }
+
+        @Override
+        public BenchElement dequeue() {
+            for (int i = 0; i < this.priorities.length; i++) {
+                if (this.taskCount.get(i) == 0) continue;
+                BenchElement element = this.priorities[i].poll();
+                if (element != null) {
+                    this.taskCount.decrementAndGet(i);
+                    this.priorityMap.remove(element);
+                    return element;
+                }
+            }
+            return null;
+        }
+    }
+}
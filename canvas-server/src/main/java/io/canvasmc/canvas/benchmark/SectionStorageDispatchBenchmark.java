@@ -0,0 +1,156 @@
+package io.canvasmc.canvas.benchmark;
+
+import io.canvasmc.canvas.server.chunk.OffHeapBitStorage;
+import io.canvasmc.canvas.server.chunk.SectionStoragePool;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.util.SplittableRandom;
+import net.minecraft.util.BitStorage;
+import net.minecraft.util.SimpleBitStorage;
+import net.minecraft.util.ZeroBitStorage;
+import org.jetbrains.annotations.NotNull;
+
+// measures what hibernated sections cost the block state reads of the sections around them. the sections mix simple
+// storages of 4 to 6 bits with one in ten single valued ones, like loaded terrain, and every variant reads them
+// through its own hidden copy of the read loop, so each has a type profile of its own. read in place, one in 64
+// sections hibernated is enough for the storage read to see a third type and dispatch through the interface for
+// every section. guarded, the loop checks for a hibernated section first and inflates it, like the container does
+// before a point read, so the storage read only ever sees the vanilla storages. the guarded sections hibernate
+// again between rounds, so every round pays for inflating them too
+public class SectionStorageDispatchBenchmark {
+
+    private static final int SECTIONS = 1_024;
+    private static final int HIBERNATED_EVERY = 64;
+    private static final int SIZE = 4_096;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int RUN_PASSES = 10;
+
+    public static void main(String[] args) {
+        final SectionStoragePool pool = SectionStoragePool.get();
+        final Section[] vanilla = sections(pool, false);
+        final Section[] inPlace = sections(pool, true);
+        final Section[] guarded = sections(pool, true);
+        final Loop vanillaLoop = defineLoop(InPlaceLoop.class);
+        final Loop inPlaceLoop = defineLoop(InPlaceLoop.class);
+        final Loop guardedLoop = defineLoop(GuardedLoop.class);
+
+        final long[] sink = new long[1];
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            read(vanillaLoop, vanilla, 1, sink);
+            read(inPlaceLoop, inPlace, 1, sink);
+            hibernate(guarded, pool);
+            read(guardedLoop, guarded, 1, sink);
+        }
+        for (int round = 0; round < 5; round++) {
+            hibernate(guarded, pool);
+            final double vanillaNanos = read(vanillaLoop, vanilla, RUN_PASSES, sink);
+            final double inPlaceNanos = read(inPlaceLoop, inPlace, RUN_PASSES, sink);
+            final double guardedNanos = read(guardedLoop, guarded, RUN_PASSES, sink);
+            System.out.printf("round %d: vanilla %.2f ns/read, hibernated read in place %.2f ns/read (%.2fx), hibernated behind the guard %.2f ns/read (%.2fx)\n",
+                round, vanillaNanos, inPlaceNanos, inPlaceNanos / vanillaNanos, guardedNanos, guardedNanos / vanillaNanos);
+        }
+        System.out.println("(checksum " + sink[0] + ")");
+    }
+
+    private static Section @NotNull [] sections(@NotNull SectionStoragePool pool, boolean hibernated) {
+        final SplittableRandom random = new SplittableRandom(SECTIONS);
+        final Section[] sections = new Section[SECTIONS];
+        for (int i = 0; i < SECTIONS; i++) {
+            if (i % 10 == 9) {
+                sections[i] = new Section(new ZeroBitStorage(SIZE));
+                continue;
+            }
+            final int bits = 4 + random.nextInt(3);
+            final SimpleBitStorage storage = new SimpleBitStorage(bits, SIZE);
+            for (int index = 0; index < SIZE; index++) {
+                storage.set(index, random.nextInt(1 << bits));
+            }
+            sections[i] = new Section(storage);
+        }
+        if (hibernated) {
+            hibernate(sections, pool);
+        }
+        return sections;
+    }
+
+    private static void hibernate(Section @NotNull [] sections, @NotNull SectionStoragePool pool) {
+        for (int i = 0; i < sections.length; i += HIBERNATED_EVERY) {
+            final Section section = sections[i];
+            if (section.hibernated == null && section.storage instanceof SimpleBitStorage storage) {
+                section.hibernated = new OffHeapBitStorage(storage, pool);
+                section.storage = section.hibernated;
+            }
+        }
+    }
+
+    private static @NotNull Loop defineLoop(@NotNull Class<? extends Loop> loop) {
+        final String name = loop.getName();
+        try (InputStream in = loop.getResourceAsStream(name.substring(name.lastIndexOf('.') + 1) + ".class")) {
+            if (in == null) throw new IllegalStateException("Missing class file of " + name);
+            return (Loop) MethodHandles.lookup().defineHiddenClass(in.readAllBytes(), true).lookupClass().getDeclaredConstructor().newInstance();
+        } catch (Exception exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    // the nanoseconds per read
+    private static double read(@NotNull Loop loop, Section @NotNull [] sections, int passes, long @NotNull [] sink) {
+        final long start = System.nanoTime();
+        long checksum = 0L;
+        for (int pass = 0; pass < passes; pass++) {
+            checksum += loop.read(sections);
+        }
+        sink[0] += checksum;
+        return (System.nanoTime() - start) / ((double) passes * sections.length * SIZE);
+    }
+
+    static final class Section {
+        BitStorage storage;
+        OffHeapBitStorage hibernated;
+
+        private Section(BitStorage storage) {
+            this.storage = storage;
+        }
+
+        void inflate() {
+            final OffHeapBitStorage hibernated = this.hibernated;
+            this.storage = hibernated.inflate();
+            this.hibernated = null;
+            hibernated.release();
+        }
+    }
+
+    abstract static class Loop {
+        abstract long read(Section[] sections);
+    }
+
+    static final class InPlaceLoop extends Loop {
+
+        @Override
+        long read(Section[] sections) {
+            long checksum = 0L;
+            for (final Section section : sections) {
+                final BitStorage storage = section.storage;
+                for (int index = 0; index < SIZE; index++) {
+                    checksum += storage.get(index);
+                }
+            }
+            return checksum;
+        }
+    }
+
+    static final class GuardedLoop extends Loop {
+
+        @Override
+        long read(Section[] sections) {
+            long checksum = 0L;
+            for (final Section section : sections) {
+                for (int index = 0; index < SIZE; index++) {
+                    if (section.hibernated != null) section.inflate();
+                    checksum += section.storage.get(index);
+                }
+            }
+            return checksum;
+        }
+    }
+}
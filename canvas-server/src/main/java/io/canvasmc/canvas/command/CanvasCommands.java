@@ -6,6 +6,7 @@ import com.mojang.brigadier.tree.LiteralCommandNode;
 import io.canvasmc.canvas.CanvasBootstrap;
 import io.canvasmc.canvas.command.debug.EntityDumpCommand;
 import io.canvasmc.canvas.command.debug.FlySpeedCommand;
+import io.canvasmc.canvas.command.debug.GenerationBenchmarkCommand;
 import io.canvasmc.canvas.command.debug.PriorityCommand;
 import io.canvasmc.canvas.command.debug.RandomTeleportCommand;
 import io.canvasmc.canvas.command.debug.ResendChunksCommand;
@@ -35,6 +36,8 @@ public final class CanvasCommands {
         register(SimulationDistanceCommand::new);
         register(ViewDistanceCommand::new);
         register(SetMaxPlayersCommand::new);
+        register(RecompressRegionsCommand::new);
+        register(PregenerateCommand::new);
         // debug commands
         if (CanvasBootstrap.RUNNING_IN_IDE) {
             CanvasBootstrap.LOGGER.info("Registering Canvas debug commands");
@@ -47,6 +50,7 @@ public final class CanvasCommands {
         register(TasksCommand::new);
         register(RandomTeleportCommand::new);
         register(EntityDumpCommand::new);
+        register(GenerationBenchmarkCommand::new);
         if (PurpurConfig.registerMinecraftDebugCommands || CanvasBootstrap.RUNNING_IN_IDE) {
             registerMinecraftDebugCommands(dispatcher, context);
         }
@@ -0,0 +1,90 @@
+package io.canvasmc.canvas.command;
+
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.tree.LiteralCommandNode;
+import io.canvasmc.canvas.server.chunk.ChunkPregenerator;
+import java.io.IOException;
+import net.minecraft.ChatFormatting;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.chat.Component;
+import net.minecraft.network.chat.Style;
+import net.minecraft.server.level.ServerLevel;
+import org.jetbrains.annotations.NotNull;
+
+import static net.minecraft.commands.Commands.argument;
+import static net.minecraft.commands.Commands.literal;
+
+public class PregenerateCommand implements CommandInstance {
+    @Override
+    public LiteralCommandNode<CommandSourceStack> register(@NotNull CommandDispatcher<CommandSourceStack> dispatcher) {
+        return dispatcher.register(
+            literal("pregenerate")
+                .requires(commandSourceStack -> commandSourceStack.hasPermission(3, "canvas.admin.command.pregenerate"))
+                .then(literal("start")
+                    .then(argument("radius", IntegerArgumentType.integer(1, 100_000))
+                        .executes(context -> start(context, ChunkPregenerator.Shape.SQUARE))
+                        .then(literal("square").executes(context -> start(context, ChunkPregenerator.Shape.SQUARE)))
+                        .then(literal("circle").executes(context -> start(context, ChunkPregenerator.Shape.CIRCLE)))
+                    )
+                )
+                .then(literal("resume").executes(context -> {
+                    final ServerLevel world = context.getSource().getLevel();
+                    final ChunkPregenerator pregenerator;
+                    try {
+                        pregenerator = ChunkPregenerator.resume(world);
+                    } catch (IOException exception) {
+                        context.getSource().sendFailure(Component.literal("Failed to read pregenerator progress: " + exception.getMessage()));
+                        return 0;
+                    }
+                    if (pregenerator == null) {
+                        context.getSource().sendFailure(Component.literal("No pregeneration to resume, or one is already running in this world"));
+                        return 0;
+                    }
+                    context.getSource().sendSystemMessage(Component.literal("Resumed pregenerating ").append(name(world)));
+                    return 1;
+                }))
+                .then(literal("stop").executes(context -> {
+                    final ServerLevel world = context.getSource().getLevel();
+                    final ChunkPregenerator pregenerator = ChunkPregenerator.get(world);
+                    if (pregenerator == null) {
+                        context.getSource().sendFailure(Component.literal("No pregeneration is running in this world"));
+                        return 0;
+                    }
+                    pregenerator.stop();
+                    context.getSource().sendSystemMessage(Component.literal("Stopped pregenerating ").append(name(world)).append(Component.literal(", resume it with /pregenerate resume")));
+                    return 1;
+                }))
+                .then(literal("status").executes(context -> {
+                    final ServerLevel world = context.getSource().getLevel();
+                    final ChunkPregenerator pregenerator = ChunkPregenerator.get(world);
+                    if (pregenerator == null) {
+                        context.getSource().sendSystemMessage(Component.literal("No pregeneration is running in ").append(name(world)));
+                        return 0;
+                    }
+                    context.getSource().sendSystemMessage(name(world).copy().append(Component.literal(": " + pregenerator.status()).setStyle(Style.EMPTY.withColor(ChatFormatting.WHITE))));
+                    return 1;
+                }))
+        );
+    }
+
+    private static int start(@NotNull CommandContext<CommandSourceStack> context, ChunkPregenerator.@NotNull Shape shape) {
+        final ServerLevel world = context.getSource().getLevel();
+        final int radius = IntegerArgumentType.getInteger(context, "radius");
+        final BlockPos center = BlockPos.containing(context.getSource().getPosition());
+        final ChunkPregenerator pregenerator = ChunkPregenerator.start(world, center.getX() >> 4, center.getZ() >> 4, radius, shape);
+        if (pregenerator == null) {
+            context.getSource().sendFailure(Component.literal("A pregeneration is already running in this world"));
+            return 0;
+        }
+        context.getSource().sendSystemMessage(Component.literal("Started pregenerating ").append(name(world))
+            .append(Component.literal(" with a radius of " + radius + " chunks around chunk " + (center.getX() >> 4) + ", " + (center.getZ() >> 4))));
+        return 1;
+    }
+
+    private static @NotNull Component name(@NotNull ServerLevel world) {
+        return Component.literal(world.convertable.getLevelId()).setStyle(Style.EMPTY.withColor(ChatFormatting.AQUA));
+    }
+}
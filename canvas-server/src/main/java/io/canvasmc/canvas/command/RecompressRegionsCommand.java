@@ -0,0 +1,65 @@
+package io.canvasmc.canvas.command;
+
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.tree.LiteralCommandNode;
+import io.canvasmc.canvas.server.chunk.compression.RegionRecompressor;
+import java.io.IOException;
+import net.minecraft.ChatFormatting;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.network.chat.Component;
+import net.minecraft.network.chat.Style;
+import net.minecraft.server.level.ServerLevel;
+import org.jetbrains.annotations.NotNull;
+
+import static net.minecraft.commands.Commands.literal;
+
+public class RecompressRegionsCommand implements CommandInstance {
+    @Override
+    public LiteralCommandNode<CommandSourceStack> register(@NotNull CommandDispatcher<CommandSourceStack> dispatcher) {
+        return dispatcher.register(
+            literal("recompressregions")
+                .requires(commandSourceStack -> commandSourceStack.hasPermission(3, "canvas.admin.command.recompressregions"))
+                .then(literal("start").executes(context -> {
+                    final ServerLevel world = context.getSource().getLevel();
+                    final RegionRecompressor recompressor;
+                    try {
+                        recompressor = RegionRecompressor.start(world);
+                    } catch (IOException exception) {
+                        context.getSource().sendFailure(Component.literal("Failed to list region files: " + exception.getMessage()));
+                        return 0;
+                    }
+                    if (recompressor == null) {
+                        context.getSource().sendFailure(Component.literal("Regions of this world are already being recompressed"));
+                        return 0;
+                    }
+                    context.getSource().sendSystemMessage(Component.literal("Started recompressing regions of ").append(name(world)));
+                    return 1;
+                }))
+                .then(literal("stop").executes(context -> {
+                    final ServerLevel world = context.getSource().getLevel();
+                    final RegionRecompressor recompressor = RegionRecompressor.get(world);
+                    if (recompressor == null) {
+                        context.getSource().sendFailure(Component.literal("Regions of this world are not being recompressed"));
+                        return 0;
+                    }
+                    recompressor.stop();
+                    context.getSource().sendSystemMessage(Component.literal("Stopped recompressing regions of ").append(name(world)).append(Component.literal(": " + recompressor.status())));
+                    return 1;
+                }))
+                .then(literal("status").executes(context -> {
+                    final ServerLevel world = context.getSource().getLevel();
+                    final RegionRecompressor recompressor = RegionRecompressor.get(world);
+                    if (recompressor == null) {
+                        context.getSource().sendSystemMessage(Component.literal("Regions of ").append(name(world)).append(Component.literal(" are not being recompressed")));
+                        return 0;
+                    }
+                    context.getSource().sendSystemMessage(name(world).copy().append(Component.literal(": " + recompressor.status()).setStyle(Style.EMPTY.withColor(ChatFormatting.WHITE))));
+                    return 1;
+                }))
+        );
+    }
+
+    private static @NotNull Component name(@NotNull ServerLevel world) {
+        return Component.literal(world.convertable.getLevelId()).setStyle(Style.EMPTY.withColor(ChatFormatting.AQUA));
+    }
+}
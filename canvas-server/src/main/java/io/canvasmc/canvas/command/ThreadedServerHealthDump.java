@@ -3,7 +3,7 @@ package io.canvasmc.canvas.command;
 import ca.spottedleaf.moonrise.patches.chunk_system.scheduling.task.ChunkFullTask;
 import io.canvasmc.canvas.CanvasBootstrap;
 import io.canvasmc.canvas.ThreadedBukkitServer;
-import io.canvasmc.canvas.TickTimes;
+import io.canvasmc.canvas.TickHistogram;
 import io.canvasmc.canvas.scheduler.TickScheduler;
 import io.papermc.paper.ServerBuildInfo;
 import io.papermc.paper.ServerBuildInfoImpl;
@@ -12,6 +12,7 @@ import it.unimi.dsi.fastutil.objects.Object2DoubleArrayMap;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import it.unimi.dsi.fastutil.objects.ObjectObjectImmutablePair;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.TextComponent;
@@ -62,8 +63,8 @@ public class ThreadedServerHealthDump {
         final DoubleArrayList tpsByRegion = new DoubleArrayList();
         for (final TickScheduler.FullTick<?> fullTick : TickScheduler.FullTick.ALL_REGISTERED) {
             if (fullTick.isSleeping()) continue;
-            TickTimes timings15 = fullTick.getTickTimes15s();
-            tpsByRegion.add(fullTick.getTps15s().getAverage());
+            TickHistogram.Snapshot timings15 = fullTick.tickHistogram.snapshot(TimeUnit.SECONDS.toNanos(15));
+            tpsByRegion.add(timings15.getTps());
             taskUtilization.put(fullTick, timings15.getUtilization());
         }
 
@@ -152,8 +153,9 @@ public class ThreadedServerHealthDump {
             final ObjectObjectImmutablePair<TickScheduler.FullTick<?>, Double> pair = regionsBellowThreshold.get(i);
             final TickScheduler.FullTick<?> tickTask = pair.left();
             String location = tickTask.toString();
-            double mspt5s = Math.min(tickTask.tickTimes5s.getAverage(), ThreadedBukkitServer.getInstance().getScheduler().getTimeBetweenTicks());
-            double tps5s = Math.min(tickTask.tps5s.getAverage(), ThreadedBukkitServer.getInstance().getScheduler().getTickRate());
+            TickHistogram.Snapshot timings5 = tickTask.tickHistogram.snapshot(TimeUnit.SECONDS.toNanos(5));
+            double mspt5s = Math.min(timings5.getAverage(), ThreadedBukkitServer.getInstance().getScheduler().getTimeBetweenTicks());
+            double tps5s = Math.min(timings5.getTps(), ThreadedBukkitServer.getInstance().getScheduler().getTickRate());
             double util = taskUtilization.getDouble(tickTask);
             Component namedClickable = text(location, INFORMATION);
             if (!tickTask.debugInfo().children().isEmpty()) {
@@ -183,7 +185,19 @@ public class ThreadedServerHealthDump {
                     .append(text(TWO_DECIMAL_PLACES.get().format(mspt5s), getColorForMSPT(mspt5s)))
                     .append(text(" MSPT at ", PRIMARY))
                     .append(text(TWO_DECIMAL_PLACES.get().format(tps5s), getColorForTPS(tps5s)))
-                    .append(text(" TPS", PRIMARY)));
+                    .append(text(" TPS", PRIMARY)))
+                .append(NEW_LINE)
+
+                .append(text()
+                    .append(text("    p50/p95/p99/max: ", PRIMARY, TextDecoration.BOLD))
+                    .append(text(TWO_DECIMAL_PLACES.get().format(timings5.getP50()), getColorForMSPT(timings5.getP50())))
+                    .append(text(" / ", PRIMARY))
+                    .append(text(TWO_DECIMAL_PLACES.get().format(timings5.getP95()), getColorForMSPT(timings5.getP95())))
+                    .append(text(" / ", PRIMARY))
+                    .append(text(TWO_DECIMAL_PLACES.get().format(timings5.getP99()), getColorForMSPT(timings5.getP99())))
+                    .append(text(" / ", PRIMARY))
+                    .append(text(TWO_DECIMAL_PLACES.get().format(timings5.getMax()), getColorForMSPT(timings5.getMax())))
+                    .append(text(" MSPT", PRIMARY)));
             if (i != len - 1) {
                 // last one, don't append
                 head.append(NEW_LINE);
@@ -0,0 +1,59 @@
+package io.canvasmc.canvas.command.debug;
+
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.tree.LiteralCommandNode;
+import io.canvasmc.canvas.benchmark.GenerationBenchmark;
+import io.canvasmc.canvas.command.CommandInstance;
+import net.minecraft.ChatFormatting;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.network.chat.Component;
+import net.minecraft.network.chat.Style;
+import net.minecraft.server.level.ServerLevel;
+import org.jetbrains.annotations.NotNull;
+
+import static net.minecraft.commands.Commands.argument;
+import static net.minecraft.commands.Commands.literal;
+
+public class GenerationBenchmarkCommand implements CommandInstance {
+    @Override
+    public LiteralCommandNode<CommandSourceStack> register(@NotNull CommandDispatcher<CommandSourceStack> dispatcher) {
+        return dispatcher.register(
+            literal("generationbenchmark")
+                .requires(commandSourceStack -> commandSourceStack.hasPermission(3, "canvas.admin.command.generationbenchmark"))
+                .then(literal("start")
+                    .then(argument("chunks", IntegerArgumentType.integer(1, 65_536)).executes(context -> {
+                        final ServerLevel world = context.getSource().getLevel();
+                        final int chunks = IntegerArgumentType.getInteger(context, "chunks");
+                        if (GenerationBenchmark.start(world, chunks) == null) {
+                            context.getSource().sendFailure(Component.literal("A generation benchmark is already running in this world"));
+                            return 0;
+                        }
+                        context.getSource().sendSystemMessage(Component.literal("Started generating " + chunks + " new chunks in ").append(name(world))
+                            .append(Component.literal(", see /generationbenchmark status")));
+                        return 1;
+                    }))
+                )
+                .then(literal("status").executes(context -> {
+                    final ServerLevel world = context.getSource().getLevel();
+                    final GenerationBenchmark benchmark = GenerationBenchmark.get(world);
+                    if (benchmark == null) {
+                        context.getSource().sendSystemMessage(Component.literal("No generation benchmark was run in ").append(name(world)));
+                        return 0;
+                    }
+                    context.getSource().sendSystemMessage(name(world).copy().append(Component.literal(": " + benchmark.status()).setStyle(Style.EMPTY.withColor(ChatFormatting.WHITE))));
+                    return 1;
+                }))
+        );
+    }
+
+    // it permanently generates and saves chunks far out in the world it is run in
+    @Override
+    public boolean isDebug() {
+        return true;
+    }
+
+    private static @NotNull Component name(@NotNull ServerLevel world) {
+        return Component.literal(world.convertable.getLevelId()).setStyle(Style.EMPTY.withColor(ChatFormatting.AQUA));
+    }
+}
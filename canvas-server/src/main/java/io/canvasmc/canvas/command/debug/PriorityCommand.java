@@ -1,11 +1,11 @@
 package io.canvasmc.canvas.command.debug;
 
 import ca.spottedleaf.moonrise.common.util.MoonriseCommon;
-import com.ishland.flowsched.executor.Task;
+import com.ishland.flowsched.structs.DynamicPriorityQueue;
 import com.mojang.brigadier.CommandDispatcher;
 import com.mojang.brigadier.tree.LiteralCommandNode;
 import io.canvasmc.canvas.command.CommandInstance;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import io.canvasmc.canvas.server.chunk.TheChunkSystem;
 import net.minecraft.commands.CommandSourceStack;
 import net.minecraft.network.chat.Component;
 import org.jetbrains.annotations.NotNull;
@@ -21,10 +21,15 @@ public class PriorityCommand implements CommandInstance {
                 .requires(commandSourceStack -> commandSourceStack.hasPermission(3, "canvas.debug.command.chunkpriority"))
                 .executes(context -> {
                     CommandSourceStack stack = context.getSource();
-                    for (int i = 0; i < MoonriseCommon.WORKER_POOL.globalWorkQueue.priorities.length; i++) {
-                        ConcurrentLinkedQueue<Task> tasks = MoonriseCommon.WORKER_POOL.globalWorkQueue.priorities[i];
-                        if (tasks == null) continue;
-                        stack.sendSystemMessage(Component.literal("Priority " + i + " count: " + tasks.size()));
+                    for (int i = 0; i < DynamicPriorityQueue.MAX_PRIORITY; i++) {
+                        stack.sendSystemMessage(Component.literal("Priority " + i + " count: " + MoonriseCommon.WORKER_POOL.queuedTasks(i)));
+                    }
+                    for (TheChunkSystem.Share share : MoonriseCommon.WORKER_POOL.getShares()) {
+                        final long executed = share.getExecutedTasks();
+                        stack.sendSystemMessage(Component.literal(String.format(
+                            "Share %s (weight %d): %d queued, %d executed, %.2fms average wait",
+                            share.getName(), share.getWeight(), share.getQueuedTasks(), executed, executed == 0L ? 0.0D : share.getWaitNanos() * 1.0E-6D / executed
+                        )));
                     }
                     return 1;
                 })
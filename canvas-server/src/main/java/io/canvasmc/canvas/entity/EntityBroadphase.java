@@ -0,0 +1,215 @@
+package io.canvasmc.canvas.entity;
+
+import io.canvasmc.canvas.metrics.CanvasMetrics;
+import io.canvasmc.canvas.metrics.MetricsRegistry;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import java.util.Arrays;
+import java.util.function.Predicate;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.util.Mth;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.EntitySelector;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.level.GameRules;
+import net.minecraft.world.phys.AABB;
+import net.minecraft.world.scores.Team;
+import org.jetbrains.annotations.NotNull;
+
+// a uniform grid of a region's entities, bucketed by the cell of the bottom center of their bounding box and kept
+// up to date as they are added, removed and moved, so pushing only looks at the few cells around an entity instead
+// of every entity of the chunk sections it overlaps. an entity of the grid remembers its cell and slot, making
+// moves and removals constant time. pushing stops looking once it has found enough entities for both the cramming
+// rule and the collision cap, which turns a stack of hundreds of mobs in one block from quadratic to linear
+public final class EntityBroadphase {
+    private static final int CELL_SHIFT = 1; // 2 block cells
+    private static final MetricsRegistry.Counter SHORT_CIRCUITS = CanvasMetrics.REGISTRY.counter(
+        "canvas_entity_push_short_circuits", "Entity push queries that stopped looking once they found enough entities"
+    );
+
+    private final Long2ObjectOpenHashMap<Cell> cells = new Long2ObjectOpenHashMap<>();
+    // the widest and tallest entity ever in the grid, queries reach this far into neighbouring cells
+    private double maxHalfWidth;
+    private double maxHeight;
+    // the entities a push query keeps, only used on the region's thread
+    private Entity[] found = new Entity[8];
+
+    public void add(@NotNull Entity entity) {
+        if (entity.canvas$broadphase != null) {
+            entity.canvas$broadphase.remove(entity);
+        }
+        entity.canvas$broadphase = this;
+        final AABB box = entity.getBoundingBox();
+        this.grow(box);
+        this.insert(entity, key(box));
+    }
+
+    public void remove(@NotNull Entity entity) {
+        if (entity.canvas$broadphase != this) {
+            return;
+        }
+        this.unlink(entity);
+        entity.canvas$broadphase = null;
+    }
+
+    /**
+     * Called whenever the entity's position or bounding box is set
+     */
+    public void moved(@NotNull Entity entity) {
+        final AABB box = entity.getBoundingBox();
+        this.grow(box);
+        final long key = key(box);
+        if (entity.canvas$broadphaseCell.key != key) {
+            this.unlink(entity);
+            this.insert(entity, key);
+        }
+    }
+
+    /**
+     * {@link LivingEntity#pushEntities()} over the grid. The pushed entities are the same, though the order they are
+     * found in, which decides the ones left out by the collision cap, is the grid's
+     */
+    public void pushEntities(@NotNull LivingEntity entity) {
+        // Paper start - don't run getEntities if we're not going to use its result
+        if (!entity.isPushable()) {
+            return;
+        }
+        final Team team = entity.getTeam();
+        if (team != null && team.getCollisionRule() == Team.CollisionRule.NEVER) {
+            return;
+        }
+        final ServerLevel level = (ServerLevel) entity.level();
+        final int maxCramming = level.getGameRules().getInt(GameRules.RULE_MAX_ENTITY_CRAMMING);
+        final int maxCollisions = level.paperConfig().collisions.maxEntityCollisions;
+        if (maxCramming <= 0 && maxCollisions <= 0) {
+            return;
+        }
+        // Paper end - don't run getEntities if we're not going to use its result
+        final Predicate<Entity> pushable = EntitySelector.pushable(entity, level.paperConfig().collisions.fixClimbingBypassingCrammingRule);
+        final int collisions = Math.max(0, entity.numCollisions - maxCollisions);
+        final int pushes = Math.max(0, maxCollisions - collisions);
+        // enough to know the cramming rule applies, to push as many as the cap allows, and that there is anyone
+        final int wanted = Math.max(1, Math.max(maxCramming, pushes));
+        final int size = this.collect(entity, pushable, pushes, wanted, false);
+        if (size == 0) {
+            return;
+        }
+        if (maxCramming > 0 && size > maxCramming - 1 && entity.getRandom().nextInt(4) == 0) {
+            if (this.collect(entity, pushable, 0, maxCramming, true) > maxCramming - 1) {
+                entity.hurtServer(level, entity.damageSources().cramming(), 6.0F);
+            }
+        }
+        entity.numCollisions = collisions; // Paper - Cap entity collisions
+        final Entity[] found = this.found;
+        for (int i = 0, kept = Math.min(size, pushes); i < kept && entity.numCollisions < maxCollisions; i++) {
+            final Entity other = found[i];
+            other.numCollisions++; // Paper - Cap entity collisions
+            entity.numCollisions++; // Paper - Cap entity collisions
+            entity.canvas$doPush(other);
+        }
+        Arrays.fill(found, 0, Math.min(size, pushes), null);
+    }
+
+    // counts up to wanted entities overlapping the entity and matching the predicate, only those not riding anything
+    // if asked, keeping the first ones in found
+    private int collect(@NotNull Entity entity, @NotNull Predicate<Entity> predicate, int keep, int wanted, boolean notPassengers) {
+        final AABB box = entity.getBoundingBox();
+        final int minX = Mth.floor(box.minX - this.maxHalfWidth) >> CELL_SHIFT;
+        final int maxX = Mth.floor(box.maxX + this.maxHalfWidth) >> CELL_SHIFT;
+        final int minY = Mth.floor(box.minY - this.maxHeight) >> CELL_SHIFT;
+        final int maxY = Mth.floor(box.maxY) >> CELL_SHIFT;
+        final int minZ = Mth.floor(box.minZ - this.maxHalfWidth) >> CELL_SHIFT;
+        final int maxZ = Mth.floor(box.maxZ + this.maxHalfWidth) >> CELL_SHIFT;
+        int size = 0;
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                for (int y = minY; y <= maxY; y++) {
+                    final Cell cell = this.cells.get(key(x, y, z));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (int i = 0; i < cell.size; i++) {
+                        final Entity other = cell.entities[i];
+                        if (other == entity || other.isRemoved() || (notPassengers && other.isPassenger())
+                            || !other.getBoundingBox().intersects(box) || !predicate.test(other)) {
+                            continue;
+                        }
+                        if (size < keep) {
+                            if (size == this.found.length) {
+                                this.found = Arrays.copyOf(this.found, size * 2);
+                            }
+                            this.found[size] = other;
+                        }
+                        if (++size == wanted) {
+                            SHORT_CIRCUITS.inc();
+                            return size;
+                        }
+                    }
+                }
+            }
+        }
+        return size;
+    }
+
+    private void grow(@NotNull AABB box) {
+        final double halfWidth = Math.max(box.getXsize(), box.getZsize()) * 0.5D;
+        if (halfWidth > this.maxHalfWidth) {
+            this.maxHalfWidth = halfWidth;
+        }
+        if (box.getYsize() > this.maxHeight) {
+            this.maxHeight = box.getYsize();
+        }
+    }
+
+    private void insert(@NotNull Entity entity, long key) {
+        Cell cell = this.cells.get(key);
+        if (cell == null) {
+            cell = new Cell(key);
+            this.cells.put(key, cell);
+        }
+        cell.add(entity);
+    }
+
+    private void unlink(@NotNull Entity entity) {
+        final Cell cell = entity.canvas$broadphaseCell;
+        cell.remove(entity);
+        if (cell.size == 0) {
+            this.cells.remove(cell.key);
+        }
+    }
+
+    private static long key(@NotNull AABB box) {
+        return key(Mth.floor((box.minX + box.maxX) * 0.5D) >> CELL_SHIFT, Mth.floor(box.minY) >> CELL_SHIFT, Mth.floor((box.minZ + box.maxZ) * 0.5D) >> CELL_SHIFT);
+    }
+
+    private static long key(int x, int y, int z) {
+        return ((long) x & 0x3FFFFFL) | (((long) z & 0x3FFFFFL) << 22) | (((long) y & 0xFFFFFL) << 44);
+    }
+
+    public static final class Cell {
+        private final long key;
+        private Entity[] entities = new Entity[4];
+        private int size;
+
+        private Cell(long key) {
+            this.key = key;
+        }
+
+        private void add(@NotNull Entity entity) {
+            if (this.size == this.entities.length) {
+                this.entities = Arrays.copyOf(this.entities, this.size * 2);
+            }
+            entity.canvas$broadphaseCell = this;
+            entity.canvas$broadphaseSlot = this.size;
+            this.entities[this.size++] = entity;
+        }
+
+        private void remove(@NotNull Entity entity) {
+            final int slot = entity.canvas$broadphaseSlot;
+            final Entity last = this.entities[--this.size];
+            this.entities[slot] = last;
+            last.canvas$broadphaseSlot = slot;
+            this.entities[this.size] = null;
+            entity.canvas$broadphaseCell = null;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package io.canvasmc.canvas.entity;
+
+import ca.spottedleaf.concurrentutil.map.ConcurrentLong2ReferenceChainedHashTable;
+import io.canvasmc.canvas.region.ServerRegions;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Consumer;
+import net.minecraft.world.entity.Entity;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+// world-wide lookup of entity id to entity and the tick data owning it. regions only ever hold
+// their own entities, so anything resolving an id, or asking about all tracked entities, would
+// otherwise need to walk every region in the world. updated from the tick data add/remove hooks,
+// region split/merge, and the entity tracker start/stop callbacks
+public final class EntityIdIndex {
+
+    private final ConcurrentLong2ReferenceChainedHashTable<Entry> byId = ConcurrentLong2ReferenceChainedHashTable.createWithCapacity(1024, 0.5F);
+    private final AtomicInteger trackedCount = new AtomicInteger();
+
+    public void add(final @NotNull Entity entity, final ServerRegions.@NotNull WorldTickData owner) {
+        final Entry existing = this.byId.get(entity.getId());
+        if (existing != null && existing.entity == entity) {
+            // already indexed, only the owner changed
+            existing.owner = owner;
+            return;
+        }
+        final Entry previous = this.byId.put(entity.getId(), new Entry(entity, owner));
+        if (previous != null && previous.setTracked(false)) {
+            this.trackedCount.decrementAndGet();
+        }
+    }
+
+    public void remove(final @NotNull Entity entity) {
+        final Entry entry = this.byId.get(entity.getId());
+        if (entry == null || entry.entity != entity) return;
+        if (this.byId.remove(entity.getId(), entry) == entry && entry.setTracked(false)) {
+            this.trackedCount.decrementAndGet();
+        }
+    }
+
+    public void transfer(final @NotNull Entity entity, final ServerRegions.@NotNull WorldTickData into) {
+        final Entry entry = this.byId.get(entity.getId());
+        if (entry != null && entry.entity == entity) {
+            entry.owner = into;
+        }
+    }
+
+    public void setTracked(final @NotNull Entity entity, final boolean tracked) {
+        final Entry entry = this.byId.get(entity.getId());
+        if (entry == null || entry.entity != entity) return;
+        if (entry.setTracked(tracked)) {
+            if (tracked) {
+                this.trackedCount.incrementAndGet();
+            } else {
+                this.trackedCount.decrementAndGet();
+            }
+        }
+    }
+
+    public @Nullable Entity get(final int id) {
+        final Entry entry = this.byId.get(id);
+        return entry == null ? null : entry.entity;
+    }
+
+    public @Nullable Entry getEntry(final int id) {
+        return this.byId.get(id);
+    }
+
+    public @Nullable Entry getTracked(final int id) {
+        final Entry entry = this.byId.get(id);
+        return entry == null || !entry.isTracked() ? null : entry;
+    }
+
+    public boolean isTracked(final @NotNull Entity entity) {
+        final Entry entry = this.byId.get(entity.getId());
+        return entry != null && entry.entity == entity && entry.isTracked();
+    }
+
+    public int size() {
+        return this.byId.size();
+    }
+
+    public int trackedSize() {
+        return this.trackedCount.get();
+    }
+
+    public void forEachTracked(final @NotNull Consumer<Entry> action) {
+        for (final Iterator<Entry> iterator = this.byId.valueIterator(); iterator.hasNext(); ) {
+            final Entry entry = iterator.next();
+            if (entry.isTracked()) action.accept(entry);
+        }
+    }
+
+    public static final class Entry {
+        private static final AtomicIntegerFieldUpdater<Entry> TRACKED = AtomicIntegerFieldUpdater.newUpdater(Entry.class, "tracked");
+
+        public final Entity entity;
+        private volatile ServerRegions.WorldTickData owner;
+        private volatile int tracked;
+
+        private Entry(final Entity entity, final ServerRegions.WorldTickData owner) {
+            this.entity = entity;
+            this.owner = owner;
+        }
+
+        public ServerRegions.WorldTickData getOwner() {
+            return this.owner;
+        }
+
+        public boolean isTracked() {
+            return this.tracked != 0;
+        }
+
+        // returns true if the state changed
+        private boolean setTracked(final boolean tracked) {
+            return TRACKED.compareAndSet(this, tracked ? 0 : 1, tracked ? 1 : 0);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package io.canvasmc.canvas.entity;
 
+import io.canvasmc.canvas.jfr.EntityLockSpinEvent;
 import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReentrantLock;
 import net.minecraft.server.level.ServerChunkCache;
@@ -27,7 +28,13 @@ public class EntityStatusLock extends ReentrantLock {
     public void acquire() {
         if (ServerChunkCache.MainThreadExecutor.ENTITY_OVERRIDE.contains(Thread.currentThread())) return; // pass
         int tries = 0;
+        EntityLockSpinEvent event = null;
         while (!this.tryLock()) {
+            if (event == null) {
+                // only profile contended acquires
+                event = new EntityLockSpinEvent();
+                event.begin();
+            }
             // attempt 40 times before we try and exit the lock. this is equivalent to at least 40 milliseconds
             // if we don't do this, then during intra-dimensional teleports we run the risk of infinite locking.
             if (tries++ >= this.attempts) {
@@ -37,6 +44,15 @@ public class EntityStatusLock extends ReentrantLock {
             LockSupport.parkNanos("wait for acquire", this.waitNanos);
             if (pollTasks) this.entity.level().level().getChunkSource().mainThreadProcessor.pollTask();
         }
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.entityType = this.entity.getType().toShortString();
+                event.attempts = tries;
+                event.acquired = tries <= this.attempts;
+                event.commit();
+            }
+        }
     }
 
     public void release() {
@@ -0,0 +1,329 @@
+package io.canvasmc.canvas.entity;
+
+import io.canvasmc.canvas.metrics.CanvasMetrics;
+import io.canvasmc.canvas.metrics.MetricsRegistry;
+import io.canvasmc.canvas.util.change_tracking.ChangeSubscriber;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ReferenceArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.util.Mth;
+import net.minecraft.world.CompoundContainer;
+import net.minecraft.world.Container;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.ChestBlock;
+import net.minecraft.world.level.block.HopperBlock;
+import net.minecraft.world.level.block.entity.AbstractFurnaceBlockEntity;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.block.entity.BrewingStandBlockEntity;
+import net.minecraft.world.level.block.entity.HopperBlockEntity;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.phys.Vec3;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+// hoppers that found nothing to move sleep until something they depend on changes, instead of looking up
+// their containers again every tick. a sleeping hopper subscribes to the content changes of its own inventory
+// and of the block entity containers it pulls from and pushes into, and registers the positions it reads in
+// the wakeups of its chunk, so block changes there and item or container entities moving into them wake it.
+// a hopper only sleeps when every neighbour it depends on is tracked one of these ways.
+//
+// the wakeups of a chunk only hold hoppers of that chunk, so they live and die with them. positions a hopper
+// watches across a chunk border are found by also looking in the neighbouring chunk for positions on the border
+public final class HopperWakeups {
+    // sleeping hoppers of every world, block changes and entity moves skip the lookups while there are none
+    private static final AtomicInteger SLEEPING = new AtomicInteger();
+    // ticks before a hopper that could not sleep tries again, it is still ticked normally meanwhile
+    private static final int RETRY_TICKS = 20;
+    private static final MetricsRegistry.Counter SLEEPS = CanvasMetrics.REGISTRY.counter(
+        "canvas_hopper_sleeps", "Hoppers put to sleep until something they depend on changes"
+    );
+    private static final MetricsRegistry.Counter WAKEUPS = CanvasMetrics.REGISTRY.counter(
+        "canvas_hopper_wakeups", "Sleeping hoppers woken by a change they depend on"
+    );
+
+    static {
+        CanvasMetrics.REGISTRY.gauge("canvas_hopper_sleeping", "Hoppers currently asleep", SLEEPING::get);
+    }
+
+    private final Long2ObjectOpenHashMap<ReferenceArrayList<Sleep>> watchers = new Long2ObjectOpenHashMap<>();
+
+    /**
+     * Puts the hopper to sleep if every neighbour it depends on can wake it, called when its tick moved nothing
+     */
+    public static void trySleep(@NotNull Level level, @NotNull BlockPos pos, @NotNull BlockState state, @NotNull HopperBlockEntity hopper) {
+        if (!(level instanceof ServerLevel) || hopper.isRemoved()) {
+            return;
+        }
+        Sleep sleep = hopper.canvas$hopperSleep;
+        if (sleep == null) {
+            hopper.canvas$hopperSleep = sleep = new Sleep(hopper);
+        }
+        final long gameTime = level.getRedstoneGameTime();
+        if (gameTime < sleep.nextAttempt) {
+            return;
+        }
+        final LevelChunk chunk = level.getChunkIfLoaded(pos);
+        if (chunk == null) {
+            return;
+        }
+        // a registration left behind by a wakeup that did not go through it, like another hopper inserting
+        sleep.cancel();
+        sleep.watch(pos);
+        sleep.subscribe(hopper);
+        if (state.getValue(HopperBlock.ENABLED)) {
+            final boolean canSleep = sleep.watchContainer(level, pos.above(), true)
+                && (hopper.isEmpty() || sleep.watchContainer(level, pos.relative(state.getValue(HopperBlock.FACING)), false));
+            if (!canSleep) {
+                sleep.clear();
+                sleep.nextAttempt = gameTime + RETRY_TICKS;
+                return;
+            }
+        }
+        sleep.start(chunk);
+    }
+
+    /**
+     * Wakes the hoppers depending on the block at the position, called before it changes
+     */
+    public static void onBlockChanged(@NotNull LevelChunk chunk, @NotNull BlockPos pos) {
+        if (SLEEPING.get() == 0) {
+            return;
+        }
+        wakeAt(chunk.level, chunk, pos.getX(), pos.getY(), pos.getZ());
+    }
+
+    /**
+     * Wakes the hoppers watching the blocks an item or container entity now overlaps, called when it moves
+     */
+    public static void onEntityMoved(@NotNull Entity entity) {
+        if (SLEEPING.get() == 0) {
+            return;
+        }
+        final Level level = entity.level();
+        if (!(level instanceof ServerLevel serverLevel)) {
+            return;
+        }
+        final Vec3 position = entity.position();
+        final double halfWidth = entity.getBbWidth() / 2.0D;
+        final int minX = Mth.floor(position.x - halfWidth);
+        final int maxX = Mth.floor(position.x + halfWidth);
+        final int minY = Mth.floor(position.y);
+        final int maxY = Mth.floor(position.y + entity.getBbHeight());
+        final int minZ = Mth.floor(position.z - halfWidth);
+        final int maxZ = Mth.floor(position.z + halfWidth);
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                final LevelChunk chunk = serverLevel.getChunkIfLoaded(x >> 4, z >> 4);
+                if (chunk == null) {
+                    continue;
+                }
+                for (int y = minY; y <= maxY; y++) {
+                    wakeAt(serverLevel, chunk, x, y, z);
+                }
+            }
+        }
+    }
+
+    private static void wakeAt(@NotNull ServerLevel level, @NotNull LevelChunk chunk, int x, int y, int z) {
+        final long key = BlockPos.asLong(x, y, z);
+        wake(chunk, key);
+        // hoppers right across the border watch this position too
+        final int chunkX = chunk.getPos().x;
+        final int chunkZ = chunk.getPos().z;
+        final int localX = x & 15;
+        final int localZ = z & 15;
+        if (localX == 0) {
+            wake(level.getChunkIfLoaded(chunkX - 1, chunkZ), key);
+        } else if (localX == 15) {
+            wake(level.getChunkIfLoaded(chunkX + 1, chunkZ), key);
+        }
+        if (localZ == 0) {
+            wake(level.getChunkIfLoaded(chunkX, chunkZ - 1), key);
+        } else if (localZ == 15) {
+            wake(level.getChunkIfLoaded(chunkX, chunkZ + 1), key);
+        }
+    }
+
+    private static void wake(@Nullable LevelChunk chunk, long key) {
+        if (chunk == null) {
+            return;
+        }
+        final HopperWakeups wakeups = chunk.canvas$hopperWakeups;
+        if (wakeups == null) {
+            return;
+        }
+        final Sleep[] sleeps;
+        synchronized (wakeups) {
+            final ReferenceArrayList<Sleep> watching = wakeups.watchers.get(key);
+            if (watching == null) {
+                return;
+            }
+            sleeps = watching.toArray(new Sleep[0]);
+        }
+        for (final Sleep sleep : sleeps) {
+            sleep.wake();
+        }
+    }
+
+    private static @NotNull HopperWakeups of(@NotNull LevelChunk chunk) {
+        HopperWakeups wakeups = chunk.canvas$hopperWakeups;
+        if (wakeups == null) {
+            synchronized (chunk) {
+                wakeups = chunk.canvas$hopperWakeups;
+                if (wakeups == null) {
+                    chunk.canvas$hopperWakeups = wakeups = new HopperWakeups();
+                }
+            }
+        }
+        return wakeups;
+    }
+
+    private synchronized void add(long pos, Sleep sleep) {
+        this.watchers.computeIfAbsent(pos, key -> new ReferenceArrayList<>(1)).add(sleep);
+    }
+
+    private synchronized void remove(long pos, Sleep sleep) {
+        final ReferenceArrayList<Sleep> watching = this.watchers.get(pos);
+        if (watching != null && watching.rem(sleep) && watching.isEmpty()) {
+            this.watchers.remove(pos);
+        }
+    }
+
+    /**
+     * The sleep of one hopper, what it watches while asleep
+     */
+    public static final class Sleep implements ChangeSubscriber<BlockEntity> {
+        private final HopperBlockEntity hopper;
+        private final LongArrayList watched = new LongArrayList(4);
+        private final ObjectArrayList<BlockEntity> subscribed = new ObjectArrayList<>(3);
+        private volatile HopperWakeups wakeups;
+        private long nextAttempt;
+
+        private Sleep(HopperBlockEntity hopper) {
+            this.hopper = hopper;
+        }
+
+        private void watch(@NotNull BlockPos pos) {
+            this.watched.add(pos.asLong());
+        }
+
+        private boolean subscribe(@Nullable BlockEntity blockEntity) {
+            if (blockEntity == null) {
+                return false;
+            }
+            // these change their own contents while working, without telling anyone
+            if ((blockEntity instanceof AbstractFurnaceBlockEntity || blockEntity instanceof BrewingStandBlockEntity)
+                && !((SleepingBlockEntity) blockEntity).isSleeping()) {
+                return false;
+            }
+            if (!this.subscribed.contains(blockEntity)) {
+                this.subscribed.add(blockEntity);
+            }
+            return true;
+        }
+
+        private boolean watchContainer(@NotNull Level level, @NotNull BlockPos pos, boolean source) {
+            this.watch(pos);
+            final Container container = HopperBlockEntity.getContainerAt(level, pos);
+            if (container == null) {
+                // picking up items, items already lying there could not be picked up, unless the hopper is full
+                return !source || isFull(this.hopper) || HopperBlockEntity.getItemsAtAndAbove(level, this.hopper).isEmpty();
+            }
+            if (container instanceof Entity) {
+                return false; // changes to the contents of container entities are not published
+            }
+            if (container instanceof CompoundContainer) {
+                final BlockPos other = pos.relative(ChestBlock.getConnectedDirection(level.getBlockState(pos)));
+                this.watch(other);
+                return this.subscribe(level.getBlockEntity(pos)) && this.subscribe(level.getBlockEntity(other));
+            }
+            if (container instanceof BlockEntity blockEntity) {
+                return this.subscribe(blockEntity);
+            }
+            return true; // kept in the block state, like the contents of a composter
+        }
+
+        private void start(@NotNull LevelChunk chunk) {
+            final HopperWakeups wakeups = of(chunk);
+            for (int i = 0; i < this.watched.size(); i++) {
+                wakeups.add(this.watched.getLong(i), this);
+            }
+            for (final BlockEntity blockEntity : this.subscribed) {
+                blockEntity.canvas$changeTracker().lithium$subscribe(this, 0);
+            }
+            this.wakeups = wakeups;
+            SLEEPING.incrementAndGet();
+            if (!this.hopper.lithium$startSleeping()) {
+                this.cancel();
+                return;
+            }
+            SLEEPS.inc();
+        }
+
+        private boolean cancel() {
+            final HopperWakeups wakeups;
+            synchronized (this) {
+                wakeups = this.wakeups;
+                this.wakeups = null;
+            }
+            if (wakeups == null) {
+                this.clear();
+                return false;
+            }
+            for (int i = 0; i < this.watched.size(); i++) {
+                wakeups.remove(this.watched.getLong(i), this);
+            }
+            for (final BlockEntity blockEntity : this.subscribed) {
+                blockEntity.canvas$changeTracker().lithium$unsubscribe(this);
+            }
+            this.clear();
+            SLEEPING.decrementAndGet();
+            return true;
+        }
+
+        private void clear() {
+            this.watched.clear();
+            this.subscribed.clear();
+        }
+
+        private void wake() {
+            if (!this.cancel()) {
+                return;
+            }
+            WAKEUPS.inc();
+            if (this.hopper.isRemoved()) {
+                // rebound to the null ticker already, waking would tick it again
+                this.hopper.lithium$setSleepingTicker(null);
+                return;
+            }
+            this.hopper.wakeUpNow();
+        }
+
+        @Override
+        public void lithium$notify(@Nullable BlockEntity publisher, int subscriberData) {
+            this.wake();
+        }
+
+        @Override
+        public void lithium$forceUnsubscribe(BlockEntity publisher, int subscriberData) {
+            this.wake();
+        }
+
+        private static boolean isFull(@NotNull HopperBlockEntity hopper) {
+            for (int i = 0; i < hopper.getContainerSize(); i++) {
+                final ItemStack stack = hopper.getItem(i);
+                if (stack.isEmpty() || stack.getCount() < stack.getMaxStackSize()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -6,6 +6,7 @@ import ca.spottedleaf.moonrise.common.util.TickThread;
 import ca.spottedleaf.moonrise.patches.entity_tracker.EntityTrackerEntity;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.canvasmc.canvas.Config;
+import io.canvasmc.canvas.metrics.ExecutorMetrics;
 import io.canvasmc.canvas.region.ServerRegions;
 import net.minecraft.Util;
 import net.minecraft.server.level.ChunkMap;
@@ -38,14 +39,14 @@ public class MultithreadedTracker {
 
     public static void init() {
         if (TRACKER_EXECUTOR == null) {
-            TRACKER_EXECUTOR = new ThreadPoolExecutor(
+            TRACKER_EXECUTOR = ExecutorMetrics.track("tracker", new ThreadPoolExecutor(
                 getCorePoolSize(),
                 getMaxPoolSize(),
                 getKeepAliveTime(), TimeUnit.SECONDS,
                 getQueueImpl(),
                 getThreadFactory(),
                 getRejectedPolicy()
-            );
+            ));
         } else {
             // Temp no-op
             //throw new IllegalStateException();
@@ -0,0 +1,127 @@
+package io.canvasmc.canvas.entity;
+
+import io.canvasmc.canvas.metrics.CanvasMetrics;
+import io.canvasmc.canvas.metrics.MetricsRegistry;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import java.lang.reflect.Method;
+import java.util.List;
+import net.minecraft.core.Holder;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.MobCategory;
+import net.minecraft.world.level.biome.Biome;
+import net.minecraft.world.level.chunk.ChunkAccess;
+import net.minecraft.world.level.chunk.ChunkGenerator;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.levelgen.structure.Structure;
+import org.jetbrains.annotations.NotNull;
+
+// the mob categories natural spawning could spawn anything of around a chunk, cached on the chunk. a spawn attempt
+// wanders up to 20 blocks from its start, so the biomes of the 5x5 chunks around decide what it can find, and a
+// chunk whose neighbourhood has no spawners of a category can skip that category's attempts, which would all fail.
+// structures near the chunk add the categories they override. biomes and structure references only change with
+// commands and generation, so the cache is dropped around chunks whose biomes are resent, which /fillbiome does,
+// and otherwise only refreshed periodically, and sooner while a neighbour is unloaded
+public final class SpawnableCategories {
+    private static final int RADIUS = 2;
+    // ticks before the categories of a chunk are computed again, picking up changed biomes
+    private static final long REFRESH_TICKS = 6000L;
+    private static final int ALL = -1;
+    private static final MetricsRegistry.Counter SKIPPED = CanvasMetrics.REGISTRY.counter(
+        "canvas_spawn_attempts_skipped", "Natural spawn attempts skipped because no spawner of the category is near the chunk"
+    );
+    // whether a generator picks spawns from the biome alone, others are never skipped
+    private static final ClassValue<Boolean> BIOME_SPAWNS = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(@NotNull Class<?> type) {
+            for (Class<?> current = type; current != ChunkGenerator.class && current != null; current = current.getSuperclass()) {
+                for (final Method method : current.getDeclaredMethods()) {
+                    if (method.getName().equals("getMobsAt")) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    };
+
+    private final int mask;
+    private final long expiresAt;
+
+    private SpawnableCategories(int mask, long expiresAt) {
+        this.mask = mask;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * Whether a spawn attempt of the category in the chunk could spawn anything. Counts the skipped attempts
+     */
+    public static boolean maySpawn(@NotNull ServerLevel level, @NotNull LevelChunk chunk, @NotNull MobCategory category) {
+        final long now = level.getGameTime();
+        SpawnableCategories cached = chunk.canvas$spawnableCategories;
+        if (cached == null || now >= cached.expiresAt) {
+            cached = compute(level, chunk, now);
+            chunk.canvas$spawnableCategories = cached;
+        }
+        if ((cached.mask & (1 << category.ordinal())) != 0) {
+            return true;
+        }
+        SKIPPED.inc();
+        return false;
+    }
+
+    /**
+     * Drops the cached categories of every loaded chunk whose neighbourhood includes one of the chunks, after
+     * their biomes changed
+     */
+    public static void invalidate(@NotNull ServerLevel level, @NotNull List<? extends ChunkAccess> chunks) {
+        for (final ChunkAccess changed : chunks) {
+            final int centerX = changed.getPos().x;
+            final int centerZ = changed.getPos().z;
+            for (int x = centerX - RADIUS; x <= centerX + RADIUS; x++) {
+                for (int z = centerZ - RADIUS; z <= centerZ + RADIUS; z++) {
+                    final LevelChunk chunk = level.getChunkIfLoaded(x, z);
+                    if (chunk != null) {
+                        chunk.canvas$spawnableCategories = null;
+                    }
+                }
+            }
+        }
+    }
+
+    private static @NotNull SpawnableCategories compute(@NotNull ServerLevel level, @NotNull LevelChunk chunk, long now) {
+        if (!BIOME_SPAWNS.get(level.getChunkSource().getGenerator().getClass())) {
+            return new SpawnableCategories(ALL, Long.MAX_VALUE);
+        }
+        final ReferenceOpenHashSet<Holder<Biome>> biomes = new ReferenceOpenHashSet<>();
+        final int centerX = chunk.getPos().x;
+        final int centerZ = chunk.getPos().z;
+        int mask = 0;
+        for (int x = centerX - RADIUS; x <= centerX + RADIUS; x++) {
+            for (int z = centerZ - RADIUS; z <= centerZ + RADIUS; z++) {
+                final LevelChunk neighbour = x == centerX && z == centerZ ? chunk : level.getChunkIfLoaded(x, z);
+                if (neighbour == null) {
+                    // try again soon, the neighbour may have loaded by then
+                    return new SpawnableCategories(ALL, now + REFRESH_TICKS / 10);
+                }
+                // structures like monuments and fortresses override the spawns of their biome
+                for (final Structure structure : neighbour.getAllReferences().keySet()) {
+                    for (final MobCategory category : structure.spawnOverrides().keySet()) {
+                        mask |= 1 << category.ordinal();
+                    }
+                }
+                for (final LevelChunkSection section : neighbour.getSections()) {
+                    section.getBiomes().getAll(biomes::add);
+                }
+            }
+        }
+        for (final Holder<Biome> biome : biomes) {
+            for (final MobCategory category : MobCategory.values()) {
+                if (!biome.value().getMobSettings().getMobs(category).isEmpty()) {
+                    mask |= 1 << category.ordinal();
+                }
+            }
+        }
+        return new SpawnableCategories(mask, now + REFRESH_TICKS);
+    }
+}
@@ -48,7 +48,7 @@ public class AsyncGoalExecutor {
     }
 
     private void wake(int id) {
-        Entity entity = this.world.getEntity(id);
+        Entity entity = this.world.entityIdIndex.get(id);
         if (entity == null || entity.isRemoved() || !(entity instanceof Mob mob)) {
             return;
         }
@@ -2,6 +2,7 @@ package io.canvasmc.canvas.entity.pathfinding;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.canvasmc.canvas.Config;
+import io.canvasmc.canvas.metrics.ExecutorMetrics;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
@@ -31,7 +32,7 @@ public class AsyncPathProcessor {
     private static long lastWarnMillis = System.currentTimeMillis();
 
     static {
-        pathProcessingExecutor = new ThreadPoolExecutor(
+        pathProcessingExecutor = ExecutorMetrics.track("pathfinding", new ThreadPoolExecutor(
             Config.INSTANCE.entities.pathfinding.maxProcessors,
             Config.INSTANCE.entities.pathfinding.maxProcessors,
             Config.INSTANCE.entities.pathfinding.keepAlive, TimeUnit.SECONDS,
@@ -41,7 +42,7 @@ public class AsyncPathProcessor {
                 .setPriority(Thread.NORM_PRIORITY - 2)
                 .build(),
             new RejectedTaskHandler()
-        );
+        ));
         LOGGER.info("Using {} threads for Async Pathfinding", Config.INSTANCE.entities.pathfinding.maxProcessors);
     }
 
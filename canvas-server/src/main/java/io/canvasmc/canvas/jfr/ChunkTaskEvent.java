@@ -0,0 +1,25 @@
+package io.canvasmc.canvas.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("io.canvasmc.ChunkTask")
+@Label("Chunk System Task")
+@Category({"Canvas", "Chunk System"})
+@Description("Execution of a task queued to the chunk system")
+@StackTrace(false)
+public class ChunkTaskEvent extends jdk.jfr.Event {
+    public static final EventType TYPE = EventType.getEventType(ChunkTaskEvent.class);
+
+    @Label("Priority")
+    public String priority;
+
+    @Label("Queue Wait Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long waitTime;
+}
@@ -0,0 +1,31 @@
+package io.canvasmc.canvas.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("io.canvasmc.ConnectionDock")
+@Label("Connection Dock")
+@Category({"Canvas", "Network"})
+@Description("A connection leaving the network router and docking onto its owning tick data")
+@StackTrace(false)
+public class ConnectionDockEvent extends jdk.jfr.Event {
+    public static final EventType TYPE = EventType.getEventType(ConnectionDockEvent.class);
+
+    @Label("Player")
+    public String player;
+
+    @Label("World")
+    public String world;
+
+    @Label("Docked To")
+    public String dockedTo;
+
+    @Label("Time In Router")
+    @Timespan(Timespan.NANOSECONDS)
+    public long routedTime;
+}
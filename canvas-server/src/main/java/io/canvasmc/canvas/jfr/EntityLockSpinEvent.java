@@ -0,0 +1,23 @@
+package io.canvasmc.canvas.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("io.canvasmc.EntityLockSpin")
+@Label("Entity Status Lock Spin")
+@Category({"Canvas", "Entities"})
+@Description("A contended acquire of an entity status lock")
+@StackTrace(false)
+public class EntityLockSpinEvent extends jdk.jfr.Event {
+    @Label("Entity Type")
+    public String entityType;
+
+    @Label("Attempts")
+    public int attempts;
+
+    @Label("Acquired")
+    public boolean acquired;
+}
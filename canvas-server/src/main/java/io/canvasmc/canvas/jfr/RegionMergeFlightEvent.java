@@ -0,0 +1,26 @@
+package io.canvasmc.canvas.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("io.canvasmc.RegionMerge")
+@Label("Region Merge")
+@Category({"Canvas", "Regionizer"})
+@Description("A region merging its data into another region")
+@StackTrace(false)
+public class RegionMergeFlightEvent extends jdk.jfr.Event {
+    @Label("World")
+    public String world;
+
+    @Label("From Region")
+    public String from;
+
+    @Label("Into Region")
+    public String into;
+
+    @Label("Entities")
+    public int entityCount;
+}
@@ -0,0 +1,26 @@
+package io.canvasmc.canvas.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("io.canvasmc.RegionSplit")
+@Label("Region Split")
+@Category({"Canvas", "Regionizer"})
+@Description("A region splitting its data into several new regions")
+@StackTrace(false)
+public class RegionSplitFlightEvent extends jdk.jfr.Event {
+    @Label("World")
+    public String world;
+
+    @Label("Region")
+    public String region;
+
+    @Label("Resulting Regions")
+    public int into;
+
+    @Label("Entities")
+    public int entityCount;
+}
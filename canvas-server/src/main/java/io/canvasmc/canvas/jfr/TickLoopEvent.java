@@ -0,0 +1,26 @@
+package io.canvasmc.canvas.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("io.canvasmc.TickLoop")
+@Label("Tick Loop")
+@Category({"Canvas", "Scheduler"})
+@Description("A single full tick of a world or region tick loop")
+@StackTrace(false)
+public class TickLoopEvent extends jdk.jfr.Event {
+    @Label("Tick Loop")
+    public String loop;
+
+    @Label("Tick Count")
+    public int tickCount;
+
+    @Label("Ticking Chunks")
+    public int chunkCount;
+
+    @Label("Loaded Entities")
+    public int entityCount;
+}
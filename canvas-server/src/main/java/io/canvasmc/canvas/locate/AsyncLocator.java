@@ -3,6 +3,8 @@ package io.canvasmc.canvas.locate;
 import ca.spottedleaf.moonrise.common.util.TickThread;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.mojang.datafixers.util.Pair;
+import io.canvasmc.canvas.metrics.ExecutorMetrics;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
@@ -26,7 +28,7 @@ public class AsyncLocator {
 
     static {
         int threads = io.canvasmc.canvas.Config.INSTANCE.asyncLocator.asyncLocatorThreads;
-        LOCATING_EXECUTOR_SERVICE = new ThreadPoolExecutor(
+        LOCATING_EXECUTOR_SERVICE = ExecutorMetrics.track("locator", new ThreadPoolExecutor(
             1,
             threads,
             io.canvasmc.canvas.Config.INSTANCE.asyncLocator.asyncLocatorKeepalive,
@@ -44,7 +46,7 @@ public class AsyncLocator {
                 .setNameFormat("Canvas Async Locator Thread - %d")
                 .setPriority(Thread.NORM_PRIORITY - 2)
                 .build()
-        );
+        ));
     }
 
     private AsyncLocator() {
@@ -101,7 +103,11 @@ public class AsyncLocator {
         int searchRadius,
         boolean skipExistingChunks
     ) {
-        BlockPos foundPos = level.findNearestMapStructure(structureTag, pos, searchRadius, skipExistingChunks);
+        // Canvas start - structure index
+        final StructureIndex index = StructureIndex.get(level);
+        final Optional<BlockPos> indexed = index == null ? null : index.locate(structureTag, pos, searchRadius, skipExistingChunks);
+        BlockPos foundPos = indexed != null ? indexed.orElse(null) : level.findNearestMapStructure(structureTag, pos, searchRadius, skipExistingChunks);
+        // Canvas end - structure index
         completableFuture.complete(new BlockPosInstance<BlockPos>() {
             @Override
             public BlockPos getBlockPos() {
@@ -123,8 +129,12 @@ public class AsyncLocator {
         int searchRadius,
         boolean skipExistingChunks
     ) {
-        Pair<BlockPos, Holder<Structure>> foundPair = level.getChunkSource().getGenerator()
+        // Canvas start - structure index
+        final StructureIndex index = StructureIndex.get(level);
+        final Optional<Pair<BlockPos, Holder<Structure>>> indexed = index == null ? null : index.locate(structureSet, pos, searchRadius, skipExistingChunks);
+        Pair<BlockPos, Holder<Structure>> foundPair = indexed != null ? indexed.orElse(null) : level.getChunkSource().getGenerator()
             .findNearestMapStructure(level, structureSet, pos, searchRadius, skipExistingChunks);
+        // Canvas end - structure index
         completableFuture.complete(new BlockPosInstance<>() {
             @Override
             public BlockPos getBlockPos() {
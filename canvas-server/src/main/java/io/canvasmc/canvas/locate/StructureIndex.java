@@ -0,0 +1,410 @@
+package io.canvasmc.canvas.locate;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mojang.datafixers.util.Pair;
+import io.canvasmc.canvas.Config;
+import io.canvasmc.canvas.metrics.CanvasMetrics;
+import io.canvasmc.canvas.metrics.MetricsRegistry;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Object2ObjectArrayMap;
+import it.unimi.dsi.fastutil.objects.ObjectArraySet;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Holder;
+import net.minecraft.core.HolderSet;
+import net.minecraft.core.Registry;
+import net.minecraft.core.SectionPos;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.tags.TagKey;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.chunk.ChunkGeneratorStructureState;
+import net.minecraft.world.level.levelgen.structure.Structure;
+import net.minecraft.world.level.levelgen.structure.StructureCheck;
+import net.minecraft.world.level.levelgen.structure.placement.ConcentricRingsStructurePlacement;
+import net.minecraft.world.level.levelgen.structure.placement.RandomSpreadStructurePlacement;
+import net.minecraft.world.level.levelgen.structure.placement.StructurePlacement;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+// a persistent index of the structure starts of every chunk whose structures are known, filled from the
+// full results the structure check learns when chunks generate their structure starts or are read from
+// disk. locating walks the placement candidates in exactly the order the chunk generator does, and only
+// answers if the index knows every candidate it had to look at, so answers are the same as the search.
+// otherwise the locate falls back to the search, whose results come back into the index as chunks load
+public final class StructureIndex {
+    private static final Logger LOGGER = LogManager.getLogger("Canvas Structure Index");
+    private static final String FILE = "canvas_structures.idx";
+    private static final int MAGIC = 0x43534958; // CSIX
+    private static final int VERSION = 1;
+    private static final Map<ServerLevel, StructureIndex> BY_WORLD = new ConcurrentHashMap<>();
+    private static final Map<StructureCheck, StructureIndex> BY_CHECK = new ConcurrentHashMap<>();
+    private static final MetricsRegistry.Counter ANSWERED = CanvasMetrics.REGISTRY.counter(
+        "canvas_structure_index_answered", "Structure locates answered from the structure index"
+    );
+    private static final MetricsRegistry.Counter FALLBACKS = CanvasMetrics.REGISTRY.counter(
+        "canvas_structure_index_fallbacks", "Structure locates that fell back to searching"
+    );
+
+    private static final ScheduledExecutorService SAVER = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder()
+            .setNameFormat("Canvas Structure Index Saver")
+            .setDaemon(true)
+            .setPriority(Thread.NORM_PRIORITY - 2)
+            .build()
+    );
+
+    static {
+        SAVER.scheduleWithFixedDelay(StructureIndex::saveAll, 5L, 5L, TimeUnit.MINUTES);
+    }
+
+    private final ServerLevel world;
+    private final Path file;
+    private final Registry<Structure> registry;
+    // a bitmap of the chunks with known structure starts per region, 1024 bits each
+    private final Long2ObjectMap<long[]> explored = new Long2ObjectOpenHashMap<>();
+    private final Map<ResourceLocation, LongOpenHashSet> starts = new HashMap<>();
+    private boolean dirty;
+    // held while writing the file, so the saver and an unload never write it at the same time
+    private final Object saveLock = new Object();
+
+    private StructureIndex(@NotNull ServerLevel world) {
+        this.world = world;
+        this.file = world.convertable.getDimensionPath(world.dimension()).resolve(FILE);
+        this.registry = world.registryAccess().lookupOrThrow(Registries.STRUCTURE);
+    }
+
+    // called whenever a chunk's structure starts become available, before they are given to the structure check
+    public static void attach(@NotNull ServerLevel world, @NotNull StructureCheck check) {
+        if (!Config.INSTANCE.asyncLocator.structureIndex || BY_WORLD.containsKey(world)) return;
+        BY_WORLD.computeIfAbsent(world, key -> {
+            final StructureIndex index = new StructureIndex(key);
+            index.load();
+            BY_CHECK.put(check, index);
+            return index;
+        });
+    }
+
+    public static @Nullable StructureIndex get(@NotNull ServerLevel world) {
+        return Config.INSTANCE.asyncLocator.structureIndex ? BY_WORLD.get(world) : null;
+    }
+
+    // called by the structure check whenever it learns every structure start of a chunk
+    public static void record(@NotNull StructureCheck check, long chunkPos, @NotNull Set<Structure> structures) {
+        final StructureIndex index = BY_CHECK.get(check);
+        if (index != null) {
+            index.record(chunkPos, structures);
+        }
+    }
+
+    public static void saveAll() {
+        for (final StructureIndex index : BY_WORLD.values()) {
+            // worlds unloaded without being closed are noticed here
+            if (index.world.getServer().getLevel(index.world.dimension()) != index.world) {
+                unload(index.world);
+            } else {
+                index.save();
+            }
+        }
+    }
+
+    // called when a world closes, saves its index a final time and forgets it
+    public static void unload(@NotNull ServerLevel world) {
+        final StructureIndex index = BY_WORLD.remove(world);
+        if (index == null) return;
+        BY_CHECK.values().remove(index);
+        index.save();
+    }
+
+    private synchronized void record(long chunkPos, @NotNull Set<Structure> structures) {
+        final int x = ChunkPos.getX(chunkPos);
+        final int z = ChunkPos.getZ(chunkPos);
+        final long[] bitmap = this.explored.computeIfAbsent(ChunkPos.asLong(x >> 5, z >> 5), key -> new long[16]);
+        final int bit = ((z & 31) << 5) | (x & 31);
+        final boolean known = (bitmap[bit >>> 6] & (1L << bit)) != 0L;
+        bitmap[bit >>> 6] |= 1L << bit;
+        for (final Structure structure : structures) {
+            final ResourceLocation key = this.registry.getKey(structure);
+            if (key != null && this.starts.computeIfAbsent(key, k -> new LongOpenHashSet()).add(chunkPos)) {
+                this.dirty = true;
+            }
+        }
+        this.dirty |= !known;
+    }
+
+    private synchronized boolean isExplored(int chunkX, int chunkZ) {
+        final long[] bitmap = this.explored.get(ChunkPos.asLong(chunkX >> 5, chunkZ >> 5));
+        final int bit = ((chunkZ & 31) << 5) | (chunkX & 31);
+        return bitmap != null && (bitmap[bit >>> 6] & (1L << bit)) != 0L;
+    }
+
+    private synchronized boolean hasStart(@NotNull ResourceLocation structure, long chunkPos) {
+        final LongOpenHashSet chunks = this.starts.get(structure);
+        return chunks != null && chunks.contains(chunkPos);
+    }
+
+    /**
+     * Locates like {@link ServerLevel#findNearestMapStructure(TagKey, BlockPos, int, boolean)}, or returns null
+     * if the index cannot answer and the search has to run
+     */
+    public @Nullable Optional<BlockPos> locate(@NotNull TagKey<Structure> structureTag, @NotNull BlockPos pos, int searchRadius, boolean skipKnownStructures) {
+        if (!this.world.getServer().getWorldData().worldGenOptions().generateStructures()) return null;
+        final Optional<HolderSet.Named<Structure>> structures = this.registry.get(structureTag);
+        if (structures.isEmpty()) return null;
+        final Optional<Pair<BlockPos, Holder<Structure>>> found = this.locate(structures.get(), pos, searchRadius, skipKnownStructures);
+        return found == null ? null : found.map(Pair::getFirst);
+    }
+
+    /**
+     * Locates like {@link net.minecraft.world.level.chunk.ChunkGenerator#findNearestMapStructure(ServerLevel, HolderSet, BlockPos, int, boolean)},
+     * or returns null if the index cannot answer and the search has to run
+     */
+    public @Nullable Optional<Pair<BlockPos, Holder<Structure>>> locate(@NotNull HolderSet<Structure> structures, @NotNull BlockPos pos, int searchRadius, boolean skipKnownStructures) {
+        // references are not indexed, and plugins listening to locates expect the search to run
+        if (skipKnownStructures || io.papermc.paper.event.world.StructuresLocateEvent.getHandlerList().getRegisteredListeners().length != 0
+            || !this.world.getWorldBorder().isWithinBounds(pos)) {
+            FALLBACKS.inc();
+            return null;
+        }
+        try {
+            final Optional<Pair<BlockPos, Holder<Structure>>> found = Optional.ofNullable(this.search(structures, pos, searchRadius));
+            ANSWERED.inc();
+            return found;
+        } catch (Unknown unknown) {
+            FALLBACKS.inc();
+            return null;
+        }
+    }
+
+    private @Nullable Pair<BlockPos, Holder<Structure>> search(@NotNull HolderSet<Structure> structures, @NotNull BlockPos pos, int searchRadius) throws Unknown {
+        final ChunkGeneratorStructureState state = this.world.getChunkSource().getGeneratorState();
+        final Map<StructurePlacement, Set<Holder<Structure>>> placements = new Object2ObjectArrayMap<>();
+        for (final Holder<Structure> holder : structures) {
+            for (final StructurePlacement placement : state.getPlacementsForStructure(holder)) {
+                placements.computeIfAbsent(placement, key -> new ObjectArraySet<>()).add(holder);
+            }
+        }
+        if (placements.isEmpty()) return null;
+
+        Pair<BlockPos, Holder<Structure>> nearest = null;
+        double nearestDistance = Double.MAX_VALUE;
+        final List<Map.Entry<StructurePlacement, Set<Holder<Structure>>>> spread = new ArrayList<>(placements.size());
+        for (final Map.Entry<StructurePlacement, Set<Holder<Structure>>> entry : placements.entrySet()) {
+            if (entry.getKey() instanceof ConcentricRingsStructurePlacement rings) {
+                final Pair<BlockPos, Holder<Structure>> found = this.searchRings(entry.getValue(), pos, state, rings);
+                if (found != null) {
+                    final double distance = pos.distSqr(found.getFirst());
+                    if (distance < nearestDistance) {
+                        nearestDistance = distance;
+                        nearest = found;
+                    }
+                }
+            } else if (entry.getKey() instanceof RandomSpreadStructurePlacement) {
+                spread.add(entry);
+            }
+        }
+        if (!spread.isEmpty()) {
+            final int chunkX = SectionPos.blockToSectionCoord(pos.getX());
+            final int chunkZ = SectionPos.blockToSectionCoord(pos.getZ());
+            for (int ring = 0; ring <= searchRadius; ring++) {
+                boolean anyFound = false;
+                for (final Map.Entry<StructurePlacement, Set<Holder<Structure>>> entry : spread) {
+                    final Pair<BlockPos, Holder<Structure>> found = this.searchSpreadRing(entry.getValue(), chunkX, chunkZ, ring, state.getLevelSeed(), (RandomSpreadStructurePlacement) entry.getKey());
+                    if (found != null) {
+                        anyFound = true;
+                        final double distance = pos.distSqr(found.getFirst());
+                        if (distance < nearestDistance) {
+                            nearestDistance = distance;
+                            nearest = found;
+                        }
+                    }
+                }
+                if (anyFound) {
+                    return nearest;
+                }
+            }
+        }
+        return nearest;
+    }
+
+    private @Nullable Pair<BlockPos, Holder<Structure>> searchRings(
+        @NotNull Set<Holder<Structure>> structures, @NotNull BlockPos pos, @NotNull ChunkGeneratorStructureState state, @NotNull ConcentricRingsStructurePlacement placement
+    ) throws Unknown {
+        final List<ChunkPos> positions = state.getRingPositionsFor(placement);
+        if (positions == null) throw new Unknown();
+        Pair<BlockPos, Holder<Structure>> nearest = null;
+        double nearestDistance = Double.MAX_VALUE;
+        final BlockPos.MutableBlockPos center = new BlockPos.MutableBlockPos();
+        for (final ChunkPos position : positions) {
+            center.set(SectionPos.sectionToBlockCoord(position.x, 8), 32, SectionPos.sectionToBlockCoord(position.z, 8));
+            final double distance = center.distSqr(pos);
+            if (nearest == null || distance < nearestDistance) {
+                final Pair<BlockPos, Holder<Structure>> found = this.startAt(structures, placement, position);
+                if (found != null) {
+                    nearest = found;
+                    nearestDistance = distance;
+                }
+            }
+        }
+        return nearest;
+    }
+
+    private @Nullable Pair<BlockPos, Holder<Structure>> searchSpreadRing(
+        @NotNull Set<Holder<Structure>> structures, int chunkX, int chunkZ, int ring, long seed, @NotNull RandomSpreadStructurePlacement placement
+    ) throws Unknown {
+        final int spacing = placement.spacing();
+        for (int dx = -ring; dx <= ring; dx++) {
+            final boolean edgeX = dx == -ring || dx == ring;
+            for (int dz = -ring; dz <= ring; dz++) {
+                final boolean edgeZ = dz == -ring || dz == ring;
+                if (edgeX || edgeZ) {
+                    final ChunkPos candidate = placement.getPotentialStructureChunk(seed, chunkX + spacing * dx, chunkZ + spacing * dz);
+                    final Pair<BlockPos, Holder<Structure>> found = this.startAt(structures, placement, candidate);
+                    if (found != null) {
+                        return found;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private @Nullable Pair<BlockPos, Holder<Structure>> startAt(@NotNull Set<Holder<Structure>> structures, @NotNull StructurePlacement placement, @NotNull ChunkPos chunk) throws Unknown {
+        if (!this.isExplored(chunk.x, chunk.z)) throw new Unknown();
+        for (final Holder<Structure> holder : structures) {
+            final Optional<ResourceLocation> key = holder.unwrapKey().map(net.minecraft.resources.ResourceKey::location);
+            if (key.isEmpty()) throw new Unknown();
+            if (this.hasStart(key.get(), chunk.toLong())) {
+                return Pair.of(placement.getLocatePos(chunk), holder);
+            }
+        }
+        return null;
+    }
+
+    // file format, deflated: magic, version, region bitmaps, then the start chunks of each structure
+    private void load() {
+        if (!Files.isRegularFile(this.file)) return;
+        final Path regionFolder = this.file.resolveSibling("region");
+        int dropped = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new InflaterInputStream(Files.newInputStream(this.file))))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                LOGGER.warn("Ignoring structure index {} of an unknown format", this.file);
+                return;
+            }
+            final int regions = in.readInt();
+            for (int i = 0; i < regions; i++) {
+                final long region = in.readLong();
+                final long[] bitmap = new long[16];
+                for (int j = 0; j < bitmap.length; j++) {
+                    bitmap[j] = in.readLong();
+                }
+                // regions deleted or trimmed since the index was written are forgotten
+                if (Files.exists(regionFolder.resolve("r." + ChunkPos.getX(region) + "." + ChunkPos.getZ(region) + ".mca"))) {
+                    this.explored.put(region, bitmap);
+                } else {
+                    dropped++;
+                }
+            }
+            final int structures = in.readInt();
+            for (int i = 0; i < structures; i++) {
+                final ResourceLocation key = ResourceLocation.parse(in.readUTF());
+                final int count = in.readInt();
+                final LongOpenHashSet chunks = new LongOpenHashSet(count);
+                for (int j = 0; j < count; j++) {
+                    final long chunk = in.readLong();
+                    if (this.explored.containsKey(ChunkPos.asLong(ChunkPos.getX(chunk) >> 5, ChunkPos.getZ(chunk) >> 5))) {
+                        chunks.add(chunk);
+                    }
+                }
+                this.starts.put(key, chunks);
+            }
+        } catch (IOException | RuntimeException exception) {
+            LOGGER.warn("Failed to read structure index {}, it will be rebuilt", this.file, exception);
+            this.explored.clear();
+            this.starts.clear();
+            return;
+        }
+        this.dirty = dropped != 0;
+        LOGGER.info("Loaded structure index of {} with {} regions", this.world.convertable.getLevelId(), this.explored.size());
+    }
+
+    // the contents are copied under the lock and written after releasing it, so recording never waits for the disk
+    private void save() {
+        synchronized (this.saveLock) {
+            final Long2ObjectMap<long[]> explored;
+            final Map<ResourceLocation, long[]> starts;
+            synchronized (this) {
+                if (!this.dirty) return;
+                explored = new Long2ObjectOpenHashMap<>(this.explored.size());
+                for (final Long2ObjectMap.Entry<long[]> region : this.explored.long2ObjectEntrySet()) {
+                    explored.put(region.getLongKey(), region.getValue().clone());
+                }
+                starts = new HashMap<>(this.starts.size());
+                for (final Map.Entry<ResourceLocation, LongOpenHashSet> structure : this.starts.entrySet()) {
+                    starts.put(structure.getKey(), structure.getValue().toLongArray());
+                }
+                this.dirty = false;
+            }
+            final Path temp = this.file.resolveSibling(FILE + ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(Files.newOutputStream(temp))))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                    out.writeInt(explored.size());
+                    for (final Long2ObjectMap.Entry<long[]> region : explored.long2ObjectEntrySet()) {
+                        out.writeLong(region.getLongKey());
+                        for (final long word : region.getValue()) {
+                            out.writeLong(word);
+                        }
+                    }
+                    out.writeInt(starts.size());
+                    for (final Map.Entry<ResourceLocation, long[]> structure : starts.entrySet()) {
+                        out.writeUTF(structure.getKey().toString());
+                        out.writeInt(structure.getValue().length);
+                        for (final long chunk : structure.getValue()) {
+                            out.writeLong(chunk);
+                        }
+                    }
+                }
+                Files.move(temp, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException exception) {
+                LOGGER.warn("Failed to write structure index {}", this.file, exception);
+                // written again with the next save
+                synchronized (this) {
+                    this.dirty = true;
+                }
+            }
+        }
+    }
+
+    // a candidate the index has no knowledge of, the search has to run
+    private static final class Unknown extends Exception {
+        private Unknown() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package io.canvasmc.canvas.metrics;
+
+import ca.spottedleaf.moonrise.common.util.MoonriseCommon;
+import com.ishland.flowsched.structs.DynamicPriorityQueue;
+import io.canvasmc.canvas.Config;
+import io.canvasmc.canvas.TickHistogram;
+import io.canvasmc.canvas.scheduler.TickScheduler;
+import io.canvasmc.canvas.server.chunk.TheChunkSystem;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import net.minecraft.world.level.chunk.storage.IOWorker;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+
+public final class CanvasMetrics {
+    private static final Logger LOGGER = LogManager.getLogger("Canvas Metrics");
+    private static final double[] QUANTILES = {0.5D, 0.95D, 0.99D};
+    public static final MetricsRegistry REGISTRY = new MetricsRegistry();
+    public static final MetricsRegistry.Histogram TICK_DURATION = REGISTRY.histogram(
+        "canvas_tick_duration_seconds", "Duration of a single tick across all tick loops",
+        0.001D, 0.0025D, 0.005D, 0.01D, 0.02D, 0.03D, 0.04D, 0.05D, 0.075D, 0.1D, 0.25D, 0.5D, 1.0D
+    );
+    private static MetricsServer server;
+
+    static {
+        REGISTRY.register(CanvasMetrics::collectTickLoops);
+        REGISTRY.register(CanvasMetrics::collectRunners);
+        REGISTRY.register(CanvasMetrics::collectChunkSystem);
+        REGISTRY.gauge("canvas_io_worker_pending_writes", "Chunk data waiting in io worker caches to be written to disk", IOWorker::getTotalPendingWrites);
+        REGISTRY.register(new ExecutorMetrics());
+    }
+
+    private CanvasMetrics() {
+    }
+
+    public static synchronized void init() {
+        final Config.Metrics config = Config.INSTANCE.metrics;
+        if (!config.enabled || server != null) return;
+        try {
+            server = new MetricsServer(REGISTRY, config.bindAddress, config.port);
+            server.start();
+        } catch (IOException e) {
+            LOGGER.error("Unable to start metrics exporter on {}:{}", config.bindAddress, config.port, e);
+            server = null;
+        }
+    }
+
+    public static synchronized void shutdown() {
+        if (server != null) {
+            server.stop();
+            server = null;
+        }
+    }
+
+    private static void collectTickLoops(@NotNull OpenMetricsWriter writer) {
+        final List<TickScheduler.FullTick<?>> loops = new ArrayList<>(TickScheduler.FullTick.ALL_REGISTERED);
+        final List<TickHistogram.Snapshot> snapshots = new ArrayList<>(loops.size());
+        for (final TickScheduler.FullTick<?> loop : loops) {
+            snapshots.add(loop.tickHistogram.snapshot(TimeUnit.SECONDS.toNanos(60)));
+        }
+        writer.family("canvas_tick_loop_mspt", "summary", "Milliseconds per tick of each tick loop over the last 60 seconds");
+        for (int i = 0; i < loops.size(); i++) {
+            final String id = loops.get(i).getLocation().toString();
+            final TickHistogram.Snapshot snapshot = snapshots.get(i);
+            for (final double quantile : QUANTILES) {
+                writer.sample("canvas_tick_loop_mspt", snapshot.getPercentile(quantile), "loop", id, "quantile", Double.toString(quantile));
+            }
+            writer.sample("canvas_tick_loop_mspt_count", snapshot.getCount(), "loop", id);
+            writer.sample("canvas_tick_loop_mspt_sum", snapshot.getAverage() * snapshot.getCount(), "loop", id);
+        }
+        writer.family("canvas_tick_loop_mspt_max", "gauge", "Highest milliseconds per tick of each tick loop over the last 60 seconds");
+        for (int i = 0; i < loops.size(); i++) {
+            writer.sample("canvas_tick_loop_mspt_max", snapshots.get(i).getMax(), "loop", loops.get(i).getLocation().toString());
+        }
+        writer.family("canvas_tick_loop_tps", "gauge", "Ticks per second of each tick loop over the last 60 seconds");
+        for (int i = 0; i < loops.size(); i++) {
+            writer.sample("canvas_tick_loop_tps", snapshots.get(i).getTps(), "loop", loops.get(i).getLocation().toString());
+        }
+    }
+
+    private static void collectRunners(@NotNull OpenMetricsWriter writer) {
+        final TickScheduler scheduler;
+        try {
+            scheduler = TickScheduler.getScheduler();
+        } catch (IllegalStateException ignored) {
+            return;
+        }
+        writer.family("canvas_scheduler_runner_busy_seconds", "counter", "Time each tick runner spent ticking or running tasks, rate() gives utilization");
+        scheduler.scheduler.forEachRunnerBusyTime((thread, busyNanos) ->
+            writer.sample("canvas_scheduler_runner_busy_seconds_total", busyNanos * 1.0E-9D, "runner", thread.getName()));
+    }
+
+    private static void collectChunkSystem(@NotNull OpenMetricsWriter writer) {
+        final TheChunkSystem chunkSystem = MoonriseCommon.WORKER_POOL;
+        if (chunkSystem == null) return;
+        writer.family("canvas_chunk_system_queue_depth", "gauge", "Chunk system tasks waiting to be executed by priority");
+        for (int priority = 0; priority < DynamicPriorityQueue.MAX_PRIORITY; priority++) {
+            writer.sample("canvas_chunk_system_queue_depth", chunkSystem.queuedTasks(priority), "priority", Integer.toString(priority));
+        }
+        final TheChunkSystem.Share[] shares = chunkSystem.getShares();
+        writer.family("canvas_chunk_system_share_queue_depth", "gauge", "Chunk system tasks waiting to be executed by world share");
+        for (final TheChunkSystem.Share share : shares) {
+            writer.sample("canvas_chunk_system_share_queue_depth", share.getQueuedTasks(), "share", share.getName());
+        }
+        writer.family("canvas_chunk_system_share_wait_seconds", "counter", "Time chunk system tasks of each world share waited to be executed, divide by tasks for the mean wait");
+        for (final TheChunkSystem.Share share : shares) {
+            writer.sample("canvas_chunk_system_share_wait_seconds_total", share.getWaitNanos() * 1.0E-9D, "share", share.getName());
+        }
+        writer.family("canvas_chunk_system_share_busy_seconds", "counter", "Worker time spent on chunk system tasks of each world share");
+        for (final TheChunkSystem.Share share : shares) {
+            writer.sample("canvas_chunk_system_share_busy_seconds_total", share.getBusyNanos() * 1.0E-9D, "share", share.getName());
+        }
+        writer.family("canvas_chunk_system_share_tasks", "counter", "Chunk system tasks executed for each world share");
+        for (final TheChunkSystem.Share share : shares) {
+            writer.sample("canvas_chunk_system_share_tasks_total", share.getExecutedTasks(), "share", share.getName());
+        }
+        writer.family("canvas_chunk_system_alive_threads", "gauge", "Alive chunk system worker threads");
+        writer.sample("canvas_chunk_system_alive_threads", chunkSystem.getAliveThreadCount());
+    }
+}
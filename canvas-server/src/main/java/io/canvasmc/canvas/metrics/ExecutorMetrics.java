@@ -0,0 +1,48 @@
+package io.canvasmc.canvas.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Exports queue depth, thread and rejection statistics for the async worker pools.
+ */
+public final class ExecutorMetrics implements MetricsRegistry.Collector {
+    private static final Map<String, TrackedExecutor> EXECUTORS = new ConcurrentHashMap<>();
+
+    /**
+     * Starts tracking the provided executor under the given pool name. The current rejection handler of
+     * the executor is wrapped so that rejections are counted before being delegated.
+     */
+    public static <T extends ThreadPoolExecutor> @NotNull T track(@NotNull String pool, @NotNull T executor) {
+        final LongAdder rejected = new LongAdder();
+        final RejectedExecutionHandler delegate = executor.getRejectedExecutionHandler();
+        executor.setRejectedExecutionHandler((task, ex) -> {
+            rejected.increment();
+            delegate.rejectedExecution(task, ex);
+        });
+        EXECUTORS.put(pool, new TrackedExecutor(executor, rejected));
+        return executor;
+    }
+
+    @Override
+    public void collect(@NotNull OpenMetricsWriter writer) {
+        if (EXECUTORS.isEmpty()) return;
+        writer.family("canvas_executor_queue_depth", "gauge", "Tasks waiting in the executor queue");
+        EXECUTORS.forEach((pool, tracked) -> writer.sample("canvas_executor_queue_depth", tracked.executor.getQueue().size(), "pool", pool));
+        writer.family("canvas_executor_active_threads", "gauge", "Threads actively executing tasks");
+        EXECUTORS.forEach((pool, tracked) -> writer.sample("canvas_executor_active_threads", tracked.executor.getActiveCount(), "pool", pool));
+        writer.family("canvas_executor_pool_threads", "gauge", "Threads currently in the pool");
+        EXECUTORS.forEach((pool, tracked) -> writer.sample("canvas_executor_pool_threads", tracked.executor.getPoolSize(), "pool", pool));
+        writer.family("canvas_executor_completed_tasks", "counter", "Tasks completed by the executor");
+        EXECUTORS.forEach((pool, tracked) -> writer.sample("canvas_executor_completed_tasks_total", tracked.executor.getCompletedTaskCount(), "pool", pool));
+        writer.family("canvas_executor_rejected_tasks", "counter", "Tasks rejected by the executor and handed to its rejection policy");
+        EXECUTORS.forEach((pool, tracked) -> writer.sample("canvas_executor_rejected_tasks_total", tracked.rejected.sum(), "pool", pool));
+    }
+
+    private record TrackedExecutor(ThreadPoolExecutor executor, LongAdder rejected) {
+    }
+}
@@ -0,0 +1,139 @@
+package io.canvasmc.canvas.metrics;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Holds every metric family exported by the server.
+ * <p>
+ * Recording into a {@link Counter} or {@link Histogram} is a single striped atomic add, so they are safe
+ * to use from tick runners. Gauges and {@link Collector}s are only evaluated when the registry is scraped.
+ */
+public final class MetricsRegistry {
+    private final List<Collector> collectors = new CopyOnWriteArrayList<>();
+
+    public @NotNull Counter counter(@NotNull String name, @NotNull String help) {
+        final Counter counter = new Counter(name, help);
+        this.collectors.add(counter);
+        return counter;
+    }
+
+    public void gauge(@NotNull String name, @NotNull String help, @NotNull DoubleSupplier supplier) {
+        this.collectors.add((writer) -> writer
+            .family(name, "gauge", help)
+            .sample(name, supplier.getAsDouble()));
+    }
+
+    /**
+     * Creates a new histogram
+     *
+     * @param bounds the upper bounds of each bucket in ascending order, the {@code +Inf} bucket is implied
+     */
+    public @NotNull Histogram histogram(@NotNull String name, @NotNull String help, double @NotNull ... bounds) {
+        final Histogram histogram = new Histogram(name, help, bounds);
+        this.collectors.add(histogram);
+        return histogram;
+    }
+
+    public void register(@NotNull Collector collector) {
+        this.collectors.add(collector);
+    }
+
+    public @NotNull String scrape() {
+        final OpenMetricsWriter writer = new OpenMetricsWriter(8192);
+        for (final Collector collector : this.collectors) {
+            collector.collect(writer);
+        }
+        return writer.finish();
+    }
+
+    /**
+     * Writes one or more complete metric families, used for labelled samples that are only known at scrape time
+     */
+    @FunctionalInterface
+    public interface Collector {
+        void collect(@NotNull OpenMetricsWriter writer);
+    }
+
+    public static final class Counter implements Collector {
+        private final String name;
+        private final String help;
+        private final LongAdder value = new LongAdder();
+
+        private Counter(String name, String help) {
+            this.name = name;
+            this.help = help;
+        }
+
+        public void inc() {
+            this.value.increment();
+        }
+
+        public void add(long amount) {
+            this.value.add(amount);
+        }
+
+        public long get() {
+            return this.value.sum();
+        }
+
+        @Override
+        public void collect(@NotNull OpenMetricsWriter writer) {
+            writer.family(this.name, "counter", this.help)
+                .sample(this.name + "_total", this.value.sum());
+        }
+    }
+
+    public static final class Histogram implements Collector {
+        private final String name;
+        private final String help;
+        private final double[] bounds;
+        private final LongAdder[] buckets;
+        private final DoubleAdder sum = new DoubleAdder();
+
+        private Histogram(String name, String help, double[] bounds) {
+            for (int i = 1; i < bounds.length; i++) {
+                if (bounds[i] <= bounds[i - 1]) {
+                    throw new IllegalArgumentException("Histogram bounds must be strictly increasing");
+                }
+            }
+            this.name = name;
+            this.help = help;
+            this.bounds = bounds.clone();
+            // last bucket is +Inf
+            this.buckets = new LongAdder[bounds.length + 1];
+            for (int i = 0; i < this.buckets.length; i++) {
+                this.buckets[i] = new LongAdder();
+            }
+        }
+
+        public void observe(double value) {
+            int index = Arrays.binarySearch(this.bounds, value);
+            if (index < 0) index = -index - 1;
+            this.buckets[index].increment();
+            this.sum.add(value);
+        }
+
+        public void observeNanos(long nanos) {
+            this.observe(nanos / 1.0E9D);
+        }
+
+        @Override
+        public void collect(@NotNull OpenMetricsWriter writer) {
+            writer.family(this.name, "histogram", this.help);
+            long cumulative = 0L;
+            for (int i = 0; i < this.buckets.length; i++) {
+                cumulative += this.buckets[i].sum();
+                final double bound = i == this.bounds.length ? Double.POSITIVE_INFINITY : this.bounds[i];
+                writer.sample(this.name + "_bucket", cumulative, "le", OpenMetricsWriter.formatBound(bound));
+            }
+            writer.sample(this.name + "_count", cumulative);
+            writer.sample(this.name + "_sum", this.sum.sum());
+        }
+    }
+}
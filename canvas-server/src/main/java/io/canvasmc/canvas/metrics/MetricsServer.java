@@ -0,0 +1,74 @@
+package io.canvasmc.canvas.metrics;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import net.minecraft.Util;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Serves the {@link MetricsRegistry} over HTTP on {@code /metrics} for Prometheus compatible scrapers.
+ */
+public final class MetricsServer {
+    private static final Logger LOGGER = LogManager.getLogger("Canvas Metrics");
+    private final MetricsRegistry registry;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public MetricsServer(@NotNull MetricsRegistry registry, @NotNull String bindAddress, int port) throws IOException {
+        this.registry = registry;
+        this.server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("Canvas Metrics Exporter Thread")
+            .setDaemon(true)
+            .setPriority(Thread.NORM_PRIORITY - 2)
+            .setUncaughtExceptionHandler(Util::onThreadException)
+            .build());
+        this.server.setExecutor(this.executor);
+        this.server.createContext("/metrics", this::handle);
+    }
+
+    public void start() {
+        this.server.start();
+        LOGGER.info("Serving OpenMetrics on http://{}:{}/metrics", this.server.getAddress().getHostString(), this.server.getAddress().getPort());
+    }
+
+    public void stop() {
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+
+    private void handle(@NotNull HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod()) && !"HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            final byte[] body;
+            try {
+                body = this.registry.scrape().getBytes(StandardCharsets.UTF_8);
+            } catch (Throwable throwable) {
+                LOGGER.error("Failed to collect metrics", throwable);
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", OpenMetricsWriter.CONTENT_TYPE);
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
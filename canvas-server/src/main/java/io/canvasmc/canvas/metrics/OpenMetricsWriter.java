@@ -0,0 +1,95 @@
+package io.canvasmc.canvas.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Minimal writer for the OpenMetrics text exposition format.
+ * <p>
+ * Families must be declared via {@link #family(String, String, String)} before their samples are written,
+ * and {@link #finish()} must be called once to terminate the exposition.
+ */
+public final class OpenMetricsWriter {
+    public static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    private final StringBuilder builder;
+
+    public OpenMetricsWriter(int initialCapacity) {
+        this.builder = new StringBuilder(initialCapacity);
+    }
+
+    public OpenMetricsWriter family(@NotNull String name, @NotNull String type, @NotNull String help) {
+        this.builder.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        this.builder.append("# HELP ").append(name).append(' ');
+        escape(help, false);
+        this.builder.append('\n');
+        return this;
+    }
+
+    /**
+     * Writes a single sample
+     *
+     * @param name   the full sample name, including any suffix like {@code _total} or {@code _bucket}
+     * @param value  the sample value
+     * @param labels alternating label names and values
+     */
+    public OpenMetricsWriter sample(@NotNull String name, double value, @NotNull String @NotNull ... labels) {
+        this.builder.append(name);
+        if (labels.length != 0) {
+            if ((labels.length & 1) != 0) {
+                throw new IllegalArgumentException("Labels must be provided as name/value pairs");
+            }
+            this.builder.append('{');
+            for (int i = 0; i < labels.length; i += 2) {
+                if (i != 0) this.builder.append(',');
+                this.builder.append(labels[i]).append("=\"");
+                escape(labels[i + 1], true);
+                this.builder.append('"');
+            }
+            this.builder.append('}');
+        }
+        this.builder.append(' ');
+        appendValue(value);
+        this.builder.append('\n');
+        return this;
+    }
+
+    public String finish() {
+        this.builder.append("# EOF\n");
+        return this.builder.toString();
+    }
+
+    private void appendValue(double value) {
+        if (Double.isNaN(value)) {
+            this.builder.append("NaN");
+        } else if (Double.isInfinite(value)) {
+            this.builder.append(value > 0 ? "+Inf" : "-Inf");
+        } else if (value == (long) value) {
+            this.builder.append((long) value);
+        } else {
+            this.builder.append(value);
+        }
+    }
+
+    private void escape(@NotNull String value, boolean quote) {
+        for (int i = 0, len = value.length(); i < len; i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> this.builder.append("\\\\");
+                case '\n' -> this.builder.append("\\n");
+                case '"' -> {
+                    if (quote) this.builder.append("\\\"");
+                    else this.builder.append(c);
+                }
+                default -> this.builder.append(c);
+            }
+        }
+    }
+
+    /**
+     * Formats a histogram bucket bound as used in the {@code le} label
+     */
+    public static @NotNull String formatBound(double bound) {
+        if (Double.isInfinite(bound)) return "+Inf";
+        return Double.toString(bound);
+    }
+}
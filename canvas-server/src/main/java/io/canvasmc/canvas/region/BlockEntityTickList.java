@@ -0,0 +1,317 @@
+package io.canvasmc.canvas.region;
+
+import ca.spottedleaf.moonrise.patches.chunk_system.level.ChunkSystemLevel;
+import io.canvasmc.canvas.Config;
+import io.canvasmc.canvas.entity.SleepingBlockEntity;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.block.entity.BlockEntityTicker;
+import net.minecraft.world.level.block.entity.TickingBlockEntity;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+
+// the block entity tickers of a region. with grouping enabled, tickers are kept in one bucket per block entity
+// type and ticked bucket by bucket, so consecutive ticks dispatch to the same code and touch the same kind of
+// data, instead of alternating between hoppers, furnaces and campfires in placement order. tickers rebound to
+// the sleeping ticker leave their bucket until they are rebound to anything else, both in constant time.
+// each type's bucket is ticked by its own copy of the tick loop, defined as a hidden class, which calls the
+// block entity ticker itself instead of going through the shared bound ticker, so the jit profiles that call
+// for one type only and can inline it, where the single call in the bound ticker sees every type at once.
+// without grouping there is a single bucket in placement order and sleeping tickers stay in place, like vanilla
+public final class BlockEntityTickList implements Iterable<TickingBlockEntity> {
+    private static final Logger LOGGER = LogManager.getLogger("Canvas Block Entity Ticking");
+    private static final TickingBlockEntity[] EMPTY = new TickingBlockEntity[0];
+    private static final BucketLoop[] NO_LOOPS = new BucketLoop[0];
+    private static final int[] NO_STARTS = new int[1];
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final BucketLoop SHARED_LOOP = new TypedBucketLoop();
+    // the loop copy of each block entity type, shared by every region
+    private static final Map<Object, BucketLoop> LOOPS = new ConcurrentHashMap<>();
+    private static byte[] loopBytes;
+
+    private final boolean grouped = Config.INSTANCE.ticking.groupBlockEntityTicking;
+    private final Reference2ObjectOpenHashMap<Object, Bucket> bucketsByKey = new Reference2ObjectOpenHashMap<>();
+    private final ObjectArrayList<Bucket> buckets = new ObjectArrayList<>();
+    private final ObjectArrayList<LevelChunk.RebindableTickingBlockEntityWrapper> sleeping = new ObjectArrayList<>();
+    private TickingBlockEntity[] tickOrder = EMPTY;
+    // the range of the tick order each loop ticks, loop i ticks from starts[i] to starts[i + 1]
+    private BucketLoop[] tickLoops = NO_LOOPS;
+    private int[] tickStarts = NO_STARTS;
+    private boolean dirty;
+
+    public void add(@NotNull TickingBlockEntity ticker) {
+        if (ticker instanceof LevelChunk.RebindableTickingBlockEntityWrapper wrapper) {
+            wrapper.canvas$tickList = this;
+            if (this.grouped && wrapper.ticker == SleepingBlockEntity.SLEEPING_BLOCK_ENTITY_TICKER) {
+                this.addSleeping(wrapper);
+                return;
+            }
+        }
+        this.bucketFor(ticker).add(ticker);
+        this.dirty = true;
+    }
+
+    /**
+     * Called when a wrapper in this list is rebound, moving it out of or back into its bucket
+     */
+    public void onRebind(LevelChunk.@NotNull RebindableTickingBlockEntityWrapper wrapper, @NotNull TickingBlockEntity ticker) {
+        if (!this.grouped) return;
+        final boolean asleep = wrapper.canvas$bucket == null;
+        final boolean sleep = ticker == SleepingBlockEntity.SLEEPING_BLOCK_ENTITY_TICKER;
+        if (sleep == asleep) return;
+        if (sleep) {
+            final Bucket bucket = (Bucket) wrapper.canvas$bucket;
+            bucket.entries.set(wrapper.canvas$slot, null);
+            bucket.holes++;
+            this.addSleeping(wrapper);
+        } else {
+            this.removeSleeping(wrapper);
+            this.bucketFor(wrapper).add(wrapper);
+        }
+        this.dirty = true;
+    }
+
+    /**
+     * Ticks the tickers bucket by bucket, like the level's block entity loop. Tickers added while ticking are
+     * ticked from the next tick on
+     *
+     * @return the number of tickers ticked in total, counting on from the given number
+     */
+    public int tick(@NotNull Level level, boolean runsNormally, @NotNull Set<TickingBlockEntity> toRemove, int tickedEntities) {
+        if (this.dirty) {
+            this.rebuildTickOrder();
+        }
+        // the arrays of this tick, a change while ticking builds new ones
+        final TickingBlockEntity[] order = this.tickOrder;
+        final BucketLoop[] loops = this.tickLoops;
+        final int[] starts = this.tickStarts;
+        for (int i = 0; i < loops.length; i++) {
+            tickedEntities = loops[i].tick(level, order, starts[i], starts[i + 1], runsNormally, toRemove, tickedEntities);
+        }
+        return tickedEntities;
+    }
+
+    public void removeAll(@NotNull Set<TickingBlockEntity> removed) {
+        if (removed.isEmpty()) return;
+        for (final Bucket bucket : this.buckets) {
+            bucket.compact(removed);
+        }
+        for (int i = this.sleeping.size() - 1; i >= 0; i--) {
+            final LevelChunk.RebindableTickingBlockEntityWrapper wrapper = this.sleeping.get(i);
+            if (removed.contains(wrapper)) {
+                this.removeSleeping(wrapper);
+                wrapper.canvas$tickList = null;
+            }
+        }
+        this.dirty = true;
+    }
+
+    public int size() {
+        int size = this.sleeping.size();
+        for (final Bucket bucket : this.buckets) {
+            size += bucket.entries.size() - bucket.holes;
+        }
+        return size;
+    }
+
+    // every ticker, including sleeping ones, in no particular order
+    @Override
+    public void forEach(@NotNull Consumer<? super TickingBlockEntity> action) {
+        for (final Bucket bucket : this.buckets) {
+            for (final TickingBlockEntity ticker : bucket.entries) {
+                if (ticker != null) {
+                    action.accept(ticker);
+                }
+            }
+        }
+        this.sleeping.forEach(action);
+    }
+
+    @Override
+    public @NotNull Iterator<TickingBlockEntity> iterator() {
+        final ObjectArrayList<TickingBlockEntity> all = new ObjectArrayList<>(this.size());
+        this.forEach(all::add);
+        return all.iterator();
+    }
+
+    private @NotNull Bucket bucketFor(@NotNull TickingBlockEntity ticker) {
+        final Object key;
+        if (this.grouped) {
+            final BlockEntity blockEntity = ticker.getTileEntity();
+            key = blockEntity != null ? blockEntity.getType() : ticker.getClass();
+        } else {
+            key = this;
+        }
+        Bucket bucket = this.bucketsByKey.get(key);
+        if (bucket == null) {
+            bucket = new Bucket(this.grouped ? LOOPS.computeIfAbsent(key, BlockEntityTickList::defineLoop) : SHARED_LOOP);
+            this.bucketsByKey.put(key, bucket);
+            this.buckets.add(bucket);
+        }
+        return bucket;
+    }
+
+    private void addSleeping(LevelChunk.@NotNull RebindableTickingBlockEntityWrapper wrapper) {
+        wrapper.canvas$bucket = null;
+        wrapper.canvas$slot = this.sleeping.size();
+        this.sleeping.add(wrapper);
+    }
+
+    private void removeSleeping(LevelChunk.@NotNull RebindableTickingBlockEntityWrapper wrapper) {
+        final int slot = wrapper.canvas$slot;
+        final LevelChunk.RebindableTickingBlockEntityWrapper last = this.sleeping.pop();
+        if (last != wrapper) {
+            this.sleeping.set(slot, last);
+            last.canvas$slot = slot;
+        }
+        wrapper.canvas$slot = -1;
+    }
+
+    private void rebuildTickOrder() {
+        int size = 0;
+        for (final Bucket bucket : this.buckets) {
+            if (bucket.holes != 0) {
+                bucket.compact(Set.of());
+            }
+            size += bucket.entries.size();
+        }
+        // fresh arrays, the previous ones may still be ticked from
+        final TickingBlockEntity[] order = new TickingBlockEntity[size];
+        final BucketLoop[] loops = new BucketLoop[this.buckets.size()];
+        final int[] starts = new int[loops.length + 1];
+        int index = 0;
+        for (int i = 0; i < loops.length; i++) {
+            final Bucket bucket = this.buckets.get(i);
+            bucket.entries.getElements(0, order, index, bucket.entries.size());
+            loops[i] = bucket.loop;
+            starts[i] = index;
+            index += bucket.entries.size();
+        }
+        starts[loops.length] = index;
+        this.tickOrder = order;
+        this.tickLoops = loops;
+        this.tickStarts = starts;
+        this.dirty = false;
+    }
+
+    // a copy of the tick loop of its own, or the shared one if it cannot be defined
+    private static @NotNull BucketLoop defineLoop(@NotNull Object key) {
+        try {
+            byte[] bytes = loopBytes;
+            if (bytes == null) {
+                final String name = TypedBucketLoop.class.getName();
+                try (InputStream in = TypedBucketLoop.class.getResourceAsStream(name.substring(name.lastIndexOf('.') + 1) + ".class")) {
+                    if (in == null) throw new IllegalStateException("Missing class file of " + TypedBucketLoop.class.getName());
+                    loopBytes = bytes = in.readAllBytes();
+                }
+            }
+            return (BucketLoop) LOOKUP.defineHiddenClass(bytes, true).lookupClass().getDeclaredConstructor().newInstance();
+        } catch (Throwable throwable) {
+            LOGGER.warn("Failed to define the tick loop of {}, ticking it with the shared loop", key, throwable);
+            return SHARED_LOOP;
+        }
+    }
+
+    public static final class Bucket {
+        private final ObjectArrayList<TickingBlockEntity> entries = new ObjectArrayList<>();
+        private final BucketLoop loop;
+        // slots emptied by tickers that went to sleep
+        private int holes;
+
+        private Bucket(BucketLoop loop) {
+            this.loop = loop;
+        }
+
+        private void add(@NotNull TickingBlockEntity ticker) {
+            if (ticker instanceof LevelChunk.RebindableTickingBlockEntityWrapper wrapper) {
+                wrapper.canvas$bucket = this;
+                wrapper.canvas$slot = this.entries.size();
+            }
+            this.entries.add(ticker);
+        }
+
+        // drops the removed tickers and the holes, keeping the order of the rest
+        private void compact(@NotNull Set<TickingBlockEntity> removed) {
+            final int size = this.entries.size();
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                final TickingBlockEntity ticker = this.entries.get(i);
+                if (ticker == null) continue;
+                if (removed.contains(ticker)) {
+                    if (ticker instanceof LevelChunk.RebindableTickingBlockEntityWrapper wrapper) {
+                        wrapper.canvas$bucket = null;
+                        wrapper.canvas$slot = -1;
+                        wrapper.canvas$tickList = null;
+                    }
+                    continue;
+                }
+                if (ticker instanceof LevelChunk.RebindableTickingBlockEntityWrapper wrapper) {
+                    wrapper.canvas$slot = kept;
+                }
+                this.entries.set(kept++, ticker);
+            }
+            this.entries.size(kept);
+            this.holes = 0;
+        }
+    }
+
+    abstract static class BucketLoop {
+        abstract int tick(Level level, TickingBlockEntity[] order, int from, int to, boolean runsNormally, Set<TickingBlockEntity> toRemove, int tickedEntities);
+    }
+
+    // the loop of the level's block entity ticking, with the bound ticker's tick inlined so the block entity
+    // ticker is called from here. every bucket of a type ticks with its own hidden copy of this class, so it
+    // must only use what is accessible from the package, a copy is not a nest mate of this class
+    static final class TypedBucketLoop extends BucketLoop {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        int tick(Level level, TickingBlockEntity[] order, int from, int to, boolean runsNormally, Set<TickingBlockEntity> toRemove, int tickedEntities) {
+            for (int i = from; i < to; i++) {
+                final TickingBlockEntity tickingBlockEntity = order[i];
+                if (tickingBlockEntity == null) continue;
+                if (tickingBlockEntity.isRemoved()) {
+                    toRemove.add(tickingBlockEntity);
+                    continue;
+                }
+                final BlockPos pos = tickingBlockEntity.getPos();
+                if (!runsNormally || pos == null || !level.shouldTickBlocksAt(pos)) continue;
+                final TickingBlockEntity bound = tickingBlockEntity instanceof LevelChunk.RebindableTickingBlockEntityWrapper wrapper ? wrapper.ticker : tickingBlockEntity;
+                final BlockEntityTicker<BlockEntity> ticker = (BlockEntityTicker<BlockEntity>) bound.canvas$ticker();
+                if (ticker == null) {
+                    tickingBlockEntity.tick();
+                } else {
+                    final BlockState state = bound.canvas$beforeTick();
+                    if (state != null) {
+                        try {
+                            final BlockEntity blockEntity = bound.getTileEntity();
+                            for (int run = bound.canvas$runs(); run > 0; run--) {
+                                ticker.tick(level, blockEntity.getBlockPos(), state, blockEntity);
+                            }
+                            bound.canvas$afterTick();
+                        } catch (Throwable throwable) {
+                            bound.canvas$tickFailed(throwable);
+                        }
+                    }
+                }
+                if ((++tickedEntities & 7) == 0) {
+                    ((ChunkSystemLevel) level).moonrise$midTickTasks();
+                }
+            }
+            return tickedEntities;
+        }
+    }
+}
@@ -42,6 +42,11 @@ public class ChunkRegion extends TickScheduler.FullTick<ChunkRegion.TickHandle>
         this.world = region.regioniser.world;
     }
 
+    @Override
+    protected ServerRegions.@NotNull WorldTickData getProfiledTickData() {
+        return this.region.getData().tickData;
+    }
+
     @Override
     public String toString() {
         ChunkPos pos = this.region.getCenterChunk();
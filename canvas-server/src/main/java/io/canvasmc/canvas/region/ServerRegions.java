@@ -17,10 +17,13 @@ import io.canvasmc.canvas.event.region.RegionCreateEvent;
 import io.canvasmc.canvas.event.region.RegionDestroyEvent;
 import io.canvasmc.canvas.event.region.RegionMergeEvent;
 import io.canvasmc.canvas.event.region.RegionSplitEvent;
+import io.canvasmc.canvas.jfr.RegionMergeFlightEvent;
+import io.canvasmc.canvas.jfr.RegionSplitFlightEvent;
 import io.canvasmc.canvas.scheduler.CanvasRegionScheduler;
 import io.canvasmc.canvas.scheduler.TickScheduler;
 import io.canvasmc.canvas.scheduler.WrappedTickLoop;
 import io.canvasmc.canvas.server.level.RandomTickSystem;
+import io.canvasmc.canvas.server.level.distance.PlayerDistanceField;
 import io.canvasmc.canvas.util.ConcurrentSet;
 import io.canvasmc.canvas.util.TPSCalculator;
 import io.papermc.paper.redstone.RedstoneWireTurbo;
@@ -434,6 +437,8 @@ public class ServerRegions {
         public void split(final @NotNull ThreadedRegionizer<TickRegionData, TickRegionSectionData> regioniser,
                           final @NotNull Long2ReferenceOpenHashMap<ThreadedRegionizer.ThreadedRegion<TickRegionData, TickRegionSectionData>> into,
                           final @NotNull ReferenceOpenHashSet<ThreadedRegionizer.ThreadedRegion<TickRegionData, TickRegionSectionData>> regions) {
+            final RegionSplitFlightEvent event = new RegionSplitFlightEvent();
+            event.begin();
             final int shift = regioniser.sectionChunkShift;
             // copy current tick
             for (final ThreadedRegionizer.ThreadedRegion<TickRegionData, TickRegionSectionData> region : regions) {
@@ -479,6 +484,14 @@ public class ServerRegions {
                 this.tickData.holderManagerRegionData.split(shift, regionToData, dataSet);
             }
             this.tickData.taskQueueData.split(regioniser, into);
+            event.end();
+            if (event.shouldCommit()) {
+                event.world = this.world.toString();
+                event.region = this.tickHandle.getLocation().toString();
+                event.into = regions.size();
+                event.entityCount = this.tickData.allEntities.size();
+                event.commit();
+            }
         }
 
         private void splitRegion(@NotNull Long2ReferenceOpenHashMap<WorldTickData> regionToData, int chunkToRegionShift, final @NotNull ReferenceOpenHashSet<WorldTickData> dataSet) {
@@ -527,6 +540,10 @@ public class ServerRegions {
                     continue;
                 }
                 into.allEntities.add(entity);
+                into.world.entityIdIndex.transfer(entity, into);
+                if (into.entityBroadphase != null) {
+                    into.entityBroadphase.add(entity);
+                }
                 // Note: entityTickList is a subset of allEntities
                 if (from.entityTickList.contains(entity)) {
                     into.entityTickList.add(entity);
@@ -675,6 +692,8 @@ public class ServerRegions {
 
         @Override
         public void mergeInto(final ThreadedRegionizer.@NotNull ThreadedRegion<TickRegionData, TickRegionSectionData> intoRegion) {
+            final RegionMergeFlightEvent event = new RegionMergeFlightEvent();
+            event.begin();
             final WorldTickData from = this.tickData;
             final WorldTickData into = intoRegion.getData().tickData;
             final long currentTickTo = into.peekTick();
@@ -696,6 +715,10 @@ public class ServerRegions {
             }
             for (final Entity entity : from.allEntities) {
                 into.allEntities.add(entity);
+                into.world.entityIdIndex.transfer(entity, into);
+                if (into.entityBroadphase != null) {
+                    into.entityBroadphase.add(entity);
+                }
                 entity.updateTicks(fromTickOffset, fromRedstoneTimeOffset);
             }
             for (final Entity entity : from.loadedEntities) {
@@ -766,8 +789,18 @@ public class ServerRegions {
             CanvasRegionScheduler.Scheduler.merge(from.regionScheduler, into.regionScheduler, fromTickOffset);
             // tnt merging
             into.tntCount.set(into.tntCount.get() + from.tntCount.get());
+            // tick timings, so the merged region keeps the history of both
+            intoRegion.getData().tickHandle.tickHistogram.merge(this.tickHandle.tickHistogram);
             // event
             new RegionMergeEvent(from.region.getData(), into.region.getData()).callEvent();
+            event.end();
+            if (event.shouldCommit()) {
+                event.world = this.world.toString();
+                event.from = this.tickHandle.getLocation().toString();
+                event.into = intoRegion.getData().tickHandle.getLocation().toString();
+                event.entityCount = from.allEntities.size();
+                event.commit();
+            }
         }
 
         @Override
@@ -875,7 +908,8 @@ public class ServerRegions {
 
         public final ReferenceList<Entity> trackerEntities = new ReferenceList<>(EMPTY_ENTITY_ARRAY);
         // shouldSignal is threadlocal, don't need to isolate
-        public final Map<ServerExplosion.CacheKey, Float> explosionDensityCache = new it.unimi.dsi.fastutil.objects.Reference2ReferenceOpenHashMap<>(64, 0.25f);
+        public final Map<ServerExplosion.CacheKey, Float> explosionDensityCache = new it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap<>(64, 0.25f); // Canvas - cache keys are compared by value, a reference map never hit
+        public final io.canvasmc.canvas.server.level.explosion.ExplosionBatch explosionBatch = new io.canvasmc.canvas.server.level.explosion.ExplosionBatch();
         public final PathTypeCache pathTypesByPosCache = new PathTypeCache();
         // public final List<LevelChunk> temporaryChunkTickList = new ObjectArrayList<>(); // Canvas - optimize chunk collect
         // mob spawning
@@ -897,7 +931,7 @@ public class ServerRegions {
         private final LevelTicks<Fluid> fluidLevelTicks;
         // tile entity ticking
         private final List<TickingBlockEntity> pendingBlockEntityTickers = new it.unimi.dsi.fastutil.objects.ObjectArrayList<>();
-        private final List<TickingBlockEntity> blockEntityTickers = new it.unimi.dsi.fastutil.objects.ObjectArrayList<>();
+        private final BlockEntityTickList blockEntityTickers = new BlockEntityTickList();
         private final ReferenceList<LevelChunk> entityTickingChunks = new ReferenceList<>(EMPTY_CHUNK_AND_HOLDER_ARRAY);
         private final ReferenceList<LevelChunk> tickingChunks = new ReferenceList<>(EMPTY_CHUNK_AND_HOLDER_ARRAY);
         private final ReferenceList<LevelChunk> chunks = new ReferenceList<>(EMPTY_CHUNK_AND_HOLDER_ARRAY);
@@ -944,6 +978,11 @@ public class ServerRegions {
         public final AtomicInteger tntCount = new AtomicInteger();
         // async target finding
         public final @Nullable AsyncGoalExecutor asyncGoalExecutor;
+        // entity broadphase
+        public final @Nullable io.canvasmc.canvas.entity.EntityBroadphase entityBroadphase;
+        // player distance fields
+        public final @Nullable PlayerDistanceField despawnPlayerField;
+        public final @Nullable PlayerDistanceField activationPlayerField;
         @Nullable
         @VisibleForDebug
         private NaturalSpawner.SpawnState lastSpawnState;
@@ -961,6 +1000,9 @@ public class ServerRegions {
             } else {
                 this.asyncGoalExecutor = null;
             }
+            this.entityBroadphase = Config.INSTANCE.entities.cramming.entityBroadphase ? new io.canvasmc.canvas.entity.EntityBroadphase() : null;
+            this.despawnPlayerField = Config.INSTANCE.tickDistanceMaps.playerDistanceField ? new PlayerDistanceField() : null;
+            this.activationPlayerField = Config.INSTANCE.tickDistanceMaps.playerDistanceField ? new PlayerDistanceField() : null;
         }
 
         public RegionizedTaskQueue.RegionTaskQueueData getTaskQueueData() {
@@ -1187,6 +1229,10 @@ public class ServerRegions {
                 }
             }
             this.allEntities.add(entity);
+            this.world.entityIdIndex.add(entity, this);
+            if (this.entityBroadphase != null) {
+                this.entityBroadphase.add(entity);
+            }
             if (entity instanceof ServerPlayer player) {
                 this.localPlayers.add(player);
                 if (!this.getNearbyPlayers(player.chunkPosition()).hasPlayer(player)) {
@@ -1214,6 +1260,10 @@ public class ServerRegions {
                 }
             }
             this.allEntities.remove(entity);
+            this.world.entityIdIndex.remove(entity);
+            if (this.entityBroadphase != null) {
+                this.entityBroadphase.remove(entity);
+            }
             if (entity instanceof ServerPlayer player) {
                 this.localPlayers.remove(player);
             }
@@ -1305,13 +1355,19 @@ public class ServerRegions {
             this.tickingBlockEntities = true;
         }
 
-        public List<TickingBlockEntity> getBlockEntityTickers() {
-            return this.blockEntityTickers;
+        public int tickBlockEntities(final Level level, final boolean runsNormally, final Set<TickingBlockEntity> toRemove, final int tickedEntities) {
+            return this.blockEntityTickers.tick(level, runsNormally, toRemove, tickedEntities);
+        }
+
+        public void removeBlockEntityTickers(final Set<TickingBlockEntity> toRemove) {
+            this.blockEntityTickers.removeAll(toRemove);
         }
 
         public void pushPendingTickingBlockEntities() {
             if (!this.pendingBlockEntityTickers.isEmpty()) {
-                this.blockEntityTickers.addAll(this.pendingBlockEntityTickers);
+                for (final TickingBlockEntity ticker : this.pendingBlockEntityTickers) {
+                    this.blockEntityTickers.add(ticker);
+                }
                 this.pendingBlockEntityTickers.clear();
             }
         }
@@ -3,8 +3,11 @@ package io.canvasmc.canvas.scheduler;
 import ca.spottedleaf.moonrise.common.util.TickThread;
 import io.canvasmc.canvas.Config;
 import io.canvasmc.canvas.RollingAverage;
+import io.canvasmc.canvas.TickHistogram;
 import io.canvasmc.canvas.TickTimes;
 import io.canvasmc.canvas.event.TickSchedulerStartEvent;
+import io.canvasmc.canvas.jfr.TickLoopEvent;
+import io.canvasmc.canvas.metrics.CanvasMetrics;
 import io.canvasmc.canvas.region.ServerRegions;
 import io.canvasmc.canvas.server.MultiWatchdogThread;
 import io.canvasmc.canvas.server.ThreadedServer;
@@ -21,6 +24,7 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BooleanSupplier;
 import net.kyori.adventure.text.Component;
 import net.minecraft.CrashReport;
@@ -138,14 +142,11 @@ public class TickScheduler implements MultithreadedTickScheduler {
         this.server.tickRateManager().setTickRate(tickRate); // update main thread
         // reset tick times, as this is now technically inaccurate now
         for (final FullTick<?> fullTick : FullTick.ALL_REGISTERED) {
-            fullTick.tickTimes5s.reset();
-            fullTick.tickTimes10s.reset();
-            fullTick.tickTimes15s.reset();
-            fullTick.tickTimes60s.reset();
-            fullTick.tps5s.reset();
-            fullTick.tps10s.reset();
-            fullTick.tps15s.reset();
-            fullTick.tps1m.reset();
+            fullTick.tickHistogram.reset();
+            final FullTick.LegacyTimings legacyTimings = fullTick.legacyTimings.get();
+            if (legacyTimings != null) {
+                legacyTimings.reset();
+            }
         }
     }
 
@@ -205,14 +206,9 @@ public class TickScheduler implements MultithreadedTickScheduler {
         protected long tickEnd;
 
         // tick times
-        public final RollingAverage tps5s = new RollingAverage(5);
-        public final RollingAverage tps10s = new RollingAverage(10);
-        public final RollingAverage tps15s = new RollingAverage(15);
-        public final RollingAverage tps1m = new RollingAverage(60);
-        public final TickTimes tickTimes5s = new TickTimes(100);
-        public final TickTimes tickTimes10s = new TickTimes(200);
-        public final TickTimes tickTimes15s = new TickTimes(300);
-        public final TickTimes tickTimes60s = new TickTimes(1200);
+        public final TickHistogram tickHistogram = new TickHistogram();
+        // only allocated once requested through the api, as these grow with the window length
+        private final AtomicReference<LegacyTimings> legacyTimings = new AtomicReference<>();
 
         // misc
         protected volatile boolean isSleeping = false;
@@ -247,13 +243,33 @@ public class TickScheduler implements MultithreadedTickScheduler {
         @Override
         public boolean runTick() {
             this.owner = Thread.currentThread();
+            final TickLoopEvent event = new TickLoopEvent();
+            event.begin();
             boolean reschedule = fullTick();
+            event.end();
+            if (event.shouldCommit()) {
+                event.loop = this.identifier.toString();
+                event.tickCount = this.tickCount;
+                final ServerRegions.WorldTickData data = this.getProfiledTickData();
+                if (data != null) {
+                    event.chunkCount = data.lastTickingChunksCount;
+                    event.entityCount = data.loadedEntities.size();
+                }
+                event.commit();
+            }
             if (!reschedule) {
                 this.retire();
             }
             return reschedule;
         }
 
+        /**
+         * The tick data this loop ticks, used to describe the loop in profiling output
+         */
+        protected ServerRegions.@Nullable WorldTickData getProfiledTickData() {
+            return null;
+        }
+
         public void bench(@NotNull Runnable tick) {
             this.tickStart = Util.getNanos();
             tick.run();
@@ -441,27 +457,45 @@ public class TickScheduler implements MultithreadedTickScheduler {
         }
 
         private void tickMspt(long start) {
-            long totalProcessNanos = Util.getNanos() - start;
-            this.tickTimes5s.add(this.tickCount, totalProcessNanos);
-            this.tickTimes10s.add(this.tickCount, totalProcessNanos);
-            this.tickTimes15s.add(this.tickCount, totalProcessNanos);
-            this.tickTimes60s.add(this.tickCount, totalProcessNanos);
+            final long end = Util.getNanos();
+            long totalProcessNanos = end - start;
+            this.tickHistogram.record(end, totalProcessNanos);
+            CanvasMetrics.TICK_DURATION.observeNanos(totalProcessNanos);
+            final LegacyTimings legacyTimings = this.legacyTimings.get();
+            if (legacyTimings != null) {
+                legacyTimings.tickTimes5s.add(this.tickCount, totalProcessNanos);
+                legacyTimings.tickTimes10s.add(this.tickCount, totalProcessNanos);
+                legacyTimings.tickTimes15s.add(this.tickCount, totalProcessNanos);
+                legacyTimings.tickTimes60s.add(this.tickCount, totalProcessNanos);
+            }
         }
 
         private void tickTps(long start) {
             if (++tickCount % SAMPLE_RATE == 0) {
-                final long diff = start - tickSection;
-                final BigDecimal currentTps = getScheduler().getTpsBase().divide(new BigDecimal(diff), 30, RoundingMode.HALF_UP);
-
-                tps5s.add(currentTps, diff);
-                tps1m.add(currentTps, diff);
-                tps15s.add(currentTps, diff);
-                tps10s.add(currentTps, diff);
+                final LegacyTimings legacyTimings = this.legacyTimings.get();
+                if (legacyTimings != null) {
+                    final long diff = start - tickSection;
+                    final BigDecimal currentTps = getScheduler().getTpsBase().divide(new BigDecimal(diff), 30, RoundingMode.HALF_UP);
+
+                    legacyTimings.tps5s.add(currentTps, diff);
+                    legacyTimings.tps1m.add(currentTps, diff);
+                    legacyTimings.tps15s.add(currentTps, diff);
+                    legacyTimings.tps10s.add(currentTps, diff);
+                }
 
                 tickSection = start;
             }
         }
 
+        private @NotNull LegacyTimings legacyTimings() {
+            final LegacyTimings existing = this.legacyTimings.get();
+            if (existing != null) {
+                return existing;
+            }
+            final LegacyTimings created = new LegacyTimings();
+            return this.legacyTimings.compareAndSet(null, created) ? created : this.legacyTimings.get();
+        }
+
         // api utilities
         @Override
         public boolean isTicking() {
@@ -519,44 +553,49 @@ public class TickScheduler implements MultithreadedTickScheduler {
             return LOGGER;
         }
 
+        @Override
+        public @NotNull TickHistogram getTickHistogram() {
+            return tickHistogram;
+        }
+
         @Override
         public @NotNull RollingAverage getTps1m() {
-            return tps1m;
+            return legacyTimings().tps1m;
         }
 
         @Override
         public @NotNull RollingAverage getTps5s() {
-            return tps5s;
+            return legacyTimings().tps5s;
         }
 
         @Override
         public @NotNull RollingAverage getTps10s() {
-            return tps10s;
+            return legacyTimings().tps10s;
         }
 
         @Override
         public @NotNull RollingAverage getTps15s() {
-            return tps15s;
+            return legacyTimings().tps15s;
         }
 
         @Override
         public @NotNull TickTimes getTickTimes5s() {
-            return tickTimes5s;
+            return legacyTimings().tickTimes5s;
         }
 
         @Override
         public @NotNull TickTimes getTickTimes10s() {
-            return tickTimes10s;
+            return legacyTimings().tickTimes10s;
         }
 
         @Override
         public @NotNull TickTimes getTickTimes15s() {
-            return tickTimes15s;
+            return legacyTimings().tickTimes15s;
         }
 
         @Override
         public @NotNull TickTimes getTickTimes60s() {
-            return tickTimes60s;
+            return legacyTimings().tickTimes60s;
         }
 
         @Override
@@ -596,6 +635,29 @@ public class TickScheduler implements MultithreadedTickScheduler {
         public String toString() {
             return this.identifier.toString();
         }
+
+        // ring buffer timings exposed by the deprecated api getters
+        static final class LegacyTimings {
+            final RollingAverage tps5s = new RollingAverage(5);
+            final RollingAverage tps10s = new RollingAverage(10);
+            final RollingAverage tps15s = new RollingAverage(15);
+            final RollingAverage tps1m = new RollingAverage(60);
+            final TickTimes tickTimes5s = new TickTimes(100);
+            final TickTimes tickTimes10s = new TickTimes(200);
+            final TickTimes tickTimes15s = new TickTimes(300);
+            final TickTimes tickTimes60s = new TickTimes(1200);
+
+            void reset() {
+                this.tickTimes5s.reset();
+                this.tickTimes10s.reset();
+                this.tickTimes15s.reset();
+                this.tickTimes60s.reset();
+                this.tps5s.reset();
+                this.tps10s.reset();
+                this.tps15s.reset();
+                this.tps1m.reset();
+            }
+        }
     }
 
     public static final class TickThreadFactory implements ThreadFactory {
@@ -2,16 +2,18 @@ package io.canvasmc.canvas.server;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.canvasmc.canvas.Config;
+import io.canvasmc.canvas.metrics.ExecutorMetrics;
 import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import net.minecraft.Util;
 
 public class AsyncPlayerDataSaving {
-    public static final ExecutorService IO_POOL = new ThreadPoolExecutor(
+    public static final ExecutorService IO_POOL = ExecutorMetrics.track("player_data", new ThreadPoolExecutor(
         1, 1, 0L, TimeUnit.MILLISECONDS,
         new LinkedBlockingQueue<>(),
         new ThreadFactoryBuilder()
@@ -19,15 +21,22 @@ public class AsyncPlayerDataSaving {
             .setNameFormat("Canvas PlayerData IO Thread")
             .setUncaughtExceptionHandler(Util::onThreadException)
             .build(),
-        new ThreadPoolExecutor.DiscardPolicy()
-    );
+        // rejected tasks throw, so their callers can run them themselves instead of waiting forever
+        new ThreadPoolExecutor.AbortPolicy()
+    ));
 
     public static Optional<Future<?>> submit(Runnable runnable) {
         if (!Config.INSTANCE.asyncPlayerDataSave) {
             runnable.run();
             return Optional.empty();
         } else {
-            return Optional.of(IO_POOL.submit(runnable));
+            try {
+                return Optional.of(IO_POOL.submit(runnable));
+            } catch (RejectedExecutionException ignored) {
+                // shutting down, don't lose the write
+                runnable.run();
+                return Optional.empty();
+            }
         }
     }
 }
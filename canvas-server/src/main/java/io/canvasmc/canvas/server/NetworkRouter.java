@@ -2,9 +2,12 @@ package io.canvasmc.canvas.server;
 
 import io.canvasmc.canvas.CanvasBootstrap;
 import io.canvasmc.canvas.Config;
+import io.canvasmc.canvas.jfr.ConnectionDockEvent;
 import io.canvasmc.canvas.region.ServerRegions;
 import io.papermc.paper.threadedregions.ThreadedRegionizer;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import net.minecraft.network.Connection;
 import net.minecraft.server.level.ServerChunkCache;
@@ -40,6 +43,9 @@ public class NetworkRouter {
         }
     };
 
+    // only populated while connection dock events are being recorded
+    private final Map<Connection, Long> routeStart = new ConcurrentHashMap<>();
+
     public NetworkRouter(@NotNull ServerLevel world) {
         this.world = world;
     }
@@ -58,6 +64,7 @@ public class NetworkRouter {
                 this.pendingRoute.remove(connection);
                 this.world.levelTickData.connections.add(connection);
                 connection.owner.set(this.world.levelTickData);
+                this.recordDock(connection, this.world.toString());
             }
         }
     }
@@ -81,14 +88,30 @@ public class NetworkRouter {
             connection.owner.set(region.getData().tickData);
             this.pendingRoute.remove(connection);
             region.getData().tickData.connections.add(connection);
+            this.recordDock(connection, region.getData().tickHandle.getLocation().toString());
         }, () -> {
             // schedule, we need to load this chunk
             chunkSource.getChunk(chunkX, chunkZ, true);
         });
     }
 
+    private void recordDock(@NotNull Connection connection, String dockedTo) {
+        final Long start = this.routeStart.remove(connection);
+        if (start == null) return;
+        final ConnectionDockEvent event = new ConnectionDockEvent();
+        if (event.shouldCommit()) {
+            final ServerPlayer player = connection.getPlayer();
+            event.player = player == null ? null : player.getScoreboardName();
+            event.world = this.world.toString();
+            event.dockedTo = dockedTo;
+            event.routedTime = System.nanoTime() - start;
+            event.commit();
+        }
+    }
+
     public void clearFromRouter(@NotNull Connection connection) {
         this.pendingRoute.remove(connection);
+        this.routeStart.remove(connection);
         connection.computeIfOwningTickDataPresent((tickData) -> {
             tickData.connections.remove(connection);
             connection.owner.set(null);
@@ -110,6 +133,9 @@ public class NetworkRouter {
             tickData.connections.remove(connection);
             connection.owner.set(null);
         });
+        if (ConnectionDockEvent.TYPE.isEnabled()) {
+            this.routeStart.put(connection, System.nanoTime());
+        }
         this.pendingRoute.add(connection);
     }
 }
@@ -0,0 +1,233 @@
+package io.canvasmc.canvas.server;
+
+import io.canvasmc.canvas.metrics.CanvasMetrics;
+import io.canvasmc.canvas.metrics.MetricsRegistry;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import net.minecraft.Util;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+
+// group-commit writer for player data. only the latest snapshot of each player is kept, so
+// repeated saves of the same player before the writer gets to it are coalesced into one write.
+// every batch writes all temp files first, then replaces them all, and finishes with a single
+// directory sync, instead of every player paying for its own set of file operations. saves
+// submitted once the writer is shutting down are written on the submitting thread
+public final class PlayerDataWriter {
+    private static final Logger LOGGER = LogManager.getLogger("Canvas PlayerData Writer");
+    private static final int MAX_BATCH = 256;
+    private static final MetricsRegistry.Counter COALESCED = CanvasMetrics.REGISTRY.counter(
+        "canvas_player_data_saves_coalesced", "Player data saves replaced by a newer snapshot before being written"
+    );
+    private static final MetricsRegistry.Counter WRITTEN = CanvasMetrics.REGISTRY.counter(
+        "canvas_player_data_saves_written", "Player data saves written to disk"
+    );
+    public static final PlayerDataWriter INSTANCE = new PlayerDataWriter();
+
+    static {
+        CanvasMetrics.REGISTRY.gauge("canvas_player_data_saves_pending", "Player data saves waiting for the writer", INSTANCE.pending::size);
+    }
+
+    private final Map<UUID, PendingSave> pending = new ConcurrentHashMap<>();
+    private final Object signal = new Object();
+    // the writer thread and submitters after shutdown never write the same batch
+    private final Object writeLock = new Object();
+    private volatile boolean running = true;
+    private Thread thread;
+
+    private PlayerDataWriter() {
+    }
+
+    public void submit(@NotNull Path directory, @NotNull UUID uniqueId, @NotNull String stringId, @NotNull String playerName, byte @NotNull [] data, int length) {
+        final PendingSave save = new PendingSave(directory, uniqueId, stringId, playerName, data, length);
+        final PendingSave previous = this.pending.put(uniqueId, save);
+        if (previous != null && !previous.writing) {
+            // superseded before the writer picked it up, anyone waiting should wait for the newer one
+            COALESCED.inc();
+            previous.done.complete(null);
+        }
+        if (!this.running) {
+            // the writer is stopping or stopped, write it here rather than lose it
+            this.writeBatch();
+            return;
+        }
+        synchronized (this.signal) {
+            if (this.thread == null) {
+                this.thread = new Thread(this::run, "Canvas PlayerData Writer");
+                this.thread.setDaemon(false);
+                this.thread.setPriority(Thread.NORM_PRIORITY - 2);
+                this.thread.setUncaughtExceptionHandler(Util::onThreadException);
+                this.thread.start();
+            }
+            this.signal.notify();
+        }
+    }
+
+    public boolean hasPending(@NotNull UUID uniqueId) {
+        return this.pending.containsKey(uniqueId);
+    }
+
+    // blocks until no save is queued or being written for this player
+    public void awaitPending(@NotNull UUID uniqueId, @NotNull String playerName) {
+        PendingSave save;
+        while ((save = this.pending.get(uniqueId)) != null) {
+            try {
+                save.done.get(10_000L, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ignored) {
+            } catch (ExecutionException | TimeoutException exception) {
+                LOGGER.warn("Failed to wait for player data save of {}", playerName, exception);
+                this.pending.remove(uniqueId, save);
+                return;
+            }
+        }
+    }
+
+    private void run() {
+        while (this.running || !this.pending.isEmpty()) {
+            synchronized (this.signal) {
+                if (this.running && this.pending.isEmpty()) {
+                    try {
+                        this.signal.wait();
+                    } catch (InterruptedException ignored) {
+                    }
+                    continue;
+                }
+            }
+            this.writeBatch();
+        }
+    }
+
+    private void writeBatch() {
+        synchronized (this.writeLock) {
+            this.writeBatch0();
+        }
+    }
+
+    private void writeBatch0() {
+        final List<PendingSave> batch = new ArrayList<>(Math.min(MAX_BATCH, this.pending.size()));
+        for (final PendingSave save : this.pending.values()) {
+            save.writing = true;
+            // re-check, the save may have been superseded while we marked it
+            if (this.pending.get(save.uniqueId) != save) {
+                save.done.complete(null);
+                continue;
+            }
+            batch.add(save);
+            if (batch.size() >= MAX_BATCH) break;
+        }
+        // write all temp files first
+        for (final PendingSave save : batch) {
+            try {
+                save.temp = Files.createTempFile(save.directory, save.stringId + "-", ".dat");
+                try (FileChannel channel = FileChannel.open(save.temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    final ByteBuffer buffer = ByteBuffer.wrap(save.data, 0, save.length);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    // the contents have to be on disk before the rename makes them the player's data
+                    channel.force(true);
+                }
+            } catch (IOException exception) {
+                LOGGER.warn("Failed to save player data for {}", save.playerName, exception);
+                save.failed = true;
+            }
+        }
+        // then replace them, and make the renames durable with one sync per directory
+        Path lastDirectory = null;
+        for (final PendingSave save : batch) {
+            if (!save.failed) {
+                try {
+                    Util.safeReplaceFile(save.directory.resolve(save.stringId + ".dat"), save.temp, save.directory.resolve(save.stringId + ".dat_old"));
+                    WRITTEN.inc();
+                } catch (Exception exception) {
+                    LOGGER.warn("Failed to save player data for {}", save.playerName, exception);
+                }
+            } else if (save.temp != null) {
+                try {
+                    Files.deleteIfExists(save.temp);
+                } catch (IOException ignored) {
+                }
+            }
+            if (!save.directory.equals(lastDirectory)) {
+                if (lastDirectory != null) syncDirectory(lastDirectory);
+                lastDirectory = save.directory;
+            }
+        }
+        if (lastDirectory != null) syncDirectory(lastDirectory);
+        for (final PendingSave save : batch) {
+            this.pending.remove(save.uniqueId, save);
+            save.done.complete(null);
+        }
+    }
+
+    private static void syncDirectory(@NotNull Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+            // not every platform can open a directory for syncing, the renames are still done
+        }
+    }
+
+    // writes out everything still queued and stops the writer thread. if the writer has not drained the queue
+    // in time, the rest is written on the calling thread
+    public void shutdown() {
+        final Thread thread;
+        synchronized (this.signal) {
+            this.running = false;
+            this.signal.notify();
+            thread = this.thread;
+        }
+        if (thread == null) {
+            while (!this.pending.isEmpty()) {
+                this.writeBatch();
+            }
+            return;
+        }
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException ignored) {
+        }
+        if (!this.pending.isEmpty()) {
+            LOGGER.warn("Player data writer did not finish in time, writing {} remaining saves on this thread", this.pending.size());
+            while (!this.pending.isEmpty()) {
+                this.writeBatch();
+            }
+        }
+    }
+
+    private static final class PendingSave {
+        private final Path directory;
+        private final UUID uniqueId;
+        private final String stringId;
+        private final String playerName;
+        private final byte[] data;
+        private final int length;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private volatile boolean writing;
+        private Path temp;
+        private boolean failed;
+
+        private PendingSave(Path directory, UUID uniqueId, String stringId, String playerName, byte[] data, int length) {
+            this.directory = directory;
+            this.uniqueId = uniqueId;
+            this.stringId = stringId;
+            this.playerName = playerName;
+            this.data = data;
+            this.length = length;
+        }
+    }
+}
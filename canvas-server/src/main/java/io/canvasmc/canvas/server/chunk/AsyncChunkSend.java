@@ -1,6 +1,7 @@
 package io.canvasmc.canvas.server.chunk;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.canvasmc.canvas.metrics.ExecutorMetrics;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -11,7 +12,7 @@ import org.apache.logging.log4j.Logger;
 
 public class AsyncChunkSend {
 
-    public static final ExecutorService POOL = new ThreadPoolExecutor(
+    public static final ExecutorService POOL = ExecutorMetrics.track("chunk_send", new ThreadPoolExecutor(
         1, 1, 0L, TimeUnit.MILLISECONDS,
         new LinkedBlockingQueue<>(),
         new ThreadFactoryBuilder()
@@ -21,7 +22,7 @@ public class AsyncChunkSend {
             .setThreadFactory(AsyncChunkSendThread::new)
             .build(),
         new ThreadPoolExecutor.CallerRunsPolicy()
-    );
+    ));
     public static final Logger LOGGER = LogManager.getLogger("Canvas Async Chunk Send");
 
     public static class AsyncChunkSendThread extends Thread {
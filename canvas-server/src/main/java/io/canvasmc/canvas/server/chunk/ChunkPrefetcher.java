@@ -0,0 +1,151 @@
+package io.canvasmc.canvas.server.chunk;
+
+import ca.spottedleaf.concurrentutil.util.Priority;
+import ca.spottedleaf.moonrise.patches.chunk_system.scheduling.ChunkTaskScheduler;
+import io.canvasmc.canvas.Config;
+import io.canvasmc.canvas.metrics.CanvasMetrics;
+import io.canvasmc.canvas.metrics.MetricsRegistry;
+import it.unimi.dsi.fastutil.longs.LongHeapPriorityQueue;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.Entity;
+import org.jetbrains.annotations.NotNull;
+
+// tracks the velocity of a player from its position every tick, and leads the player chunk loader
+// with it. the loader orders its queues by distance to the predicted position instead of the player
+// itself, so chunks ahead of a fast moving player are loaded and sent first and chunks behind it last,
+// and the chunks in a cone ahead of the player get their load priority raised. a new lead is only
+// worked out when the player enters another chunk, and the loader re-sorts its queues when it commits it
+public final class ChunkPrefetcher {
+    private static final MetricsRegistry.Counter CHUNK_SENDS = CanvasMetrics.REGISTRY.counter(
+        "canvas_chunk_sends", "Chunks sent to players"
+    );
+    private static final MetricsRegistry.Counter LATE_CHUNK_SENDS = CanvasMetrics.REGISTRY.counter(
+        "canvas_chunk_sends_late", "Chunks sent to a player already in or next to the chunk"
+    );
+    // a chunk this close to the player when it is sent was needed before it arrived
+    private static final int LATE_DISTANCE = 1;
+    // below this speed, in blocks per second, players are walking and the loader keeps its radius order
+    private static final double MIN_PREFETCH_SPEED = 8.0D;
+    // movement faster than this within one tick is a teleport, not velocity
+    private static final double MAX_TICK_DISTANCE_SQUARED = 64.0D * 64.0D;
+    private static final double SMOOTHING = 0.25D;
+
+    private boolean hasPosition;
+    private double lastX;
+    private double lastZ;
+    private long lastNanos;
+    private double velocityX;
+    private double velocityZ;
+    private int lastCenterX = Integer.MIN_VALUE;
+    private int lastCenterZ = Integer.MIN_VALUE;
+    // the committed lead, in chunks, read by the loader queue comparator
+    public volatile int leadX;
+    public volatile int leadZ;
+    // the lead worked out since, committed together with re-sorting the queues
+    private int pendingLeadX;
+    private int pendingLeadZ;
+
+    public static void onChunkSent(@NotNull ServerPlayer player, int chunkX, int chunkZ) {
+        CHUNK_SENDS.inc();
+        // from where the player is right now, the chunk position of the player lags behind while riding
+        final Entity moving = player.getRootVehicle();
+        final int playerX = SectionPos.blockToSectionCoord(moving.getBlockX());
+        final int playerZ = SectionPos.blockToSectionCoord(moving.getBlockZ());
+        if (Math.max(Math.abs(playerX - chunkX), Math.abs(playerZ - chunkZ)) <= LATE_DISTANCE) {
+            LATE_CHUNK_SENDS.inc();
+        }
+    }
+
+    /**
+     * Updates the velocity of the player, and the pending lead when the player entered another chunk
+     *
+     * @return whether the pending lead differs from the committed one
+     */
+    public boolean tick(@NotNull ServerLevel world, @NotNull ServerPlayer player, int centerX, int centerZ) {
+        final Config.Chunks.ChunkSending config = Config.INSTANCE.chunks.chunkSending;
+        if (!config.predictivePrefetch) {
+            this.pendingLeadX = this.pendingLeadZ = 0;
+            return this.hasPendingLead();
+        }
+        final Entity moving = player.getRootVehicle();
+        final double x = moving.getX();
+        final double z = moving.getZ();
+        final long now = System.nanoTime();
+        if (this.hasPosition) {
+            final double dx = x - this.lastX;
+            final double dz = z - this.lastZ;
+            final double seconds = (now - this.lastNanos) * 1.0E-9D;
+            if (dx * dx + dz * dz > MAX_TICK_DISTANCE_SQUARED) {
+                this.velocityX = this.velocityZ = 0.0D;
+            } else if (seconds > 0.0D) {
+                this.velocityX += (dx / seconds - this.velocityX) * SMOOTHING;
+                this.velocityZ += (dz / seconds - this.velocityZ) * SMOOTHING;
+            }
+        }
+        this.hasPosition = true;
+        this.lastX = x;
+        this.lastZ = z;
+        this.lastNanos = now;
+
+        if (centerX == this.lastCenterX && centerZ == this.lastCenterZ) {
+            return this.hasPendingLead();
+        }
+        this.lastCenterX = centerX;
+        this.lastCenterZ = centerZ;
+
+        final double speed = Math.sqrt(this.velocityX * this.velocityX + this.velocityZ * this.velocityZ);
+        if (speed < MIN_PREFETCH_SPEED) {
+            this.pendingLeadX = this.pendingLeadZ = 0;
+            return this.hasPendingLead();
+        }
+        final double headingX = this.velocityX / speed;
+        final double headingZ = this.velocityZ / speed;
+        final double lead = Math.min(config.prefetchMaxLeadChunks, speed * config.prefetchLookaheadSeconds / 16.0D);
+        this.pendingLeadX = (int) Math.round(headingX * lead);
+        this.pendingLeadZ = (int) Math.round(headingZ * lead);
+
+        // raise the chunks in a cone ahead of the player, widening with distance, over the radius order
+        final ChunkTaskScheduler scheduler = world.moonrise$getChunkTaskScheduler();
+        final int reach = (int) Math.ceil(lead) + 2;
+        for (int step = 1; step <= reach; step++) {
+            final double aheadX = centerX + headingX * step;
+            final double aheadZ = centerZ + headingZ * step;
+            final int width = 1 + step / 3;
+            for (int side = -width; side <= width; side++) {
+                scheduler.raisePriority(
+                    (int) Math.round(aheadX - headingZ * side), (int) Math.round(aheadZ + headingX * side),
+                    step <= 2 ? Priority.HIGHER : Priority.HIGH
+                );
+            }
+        }
+        return this.hasPendingLead();
+    }
+
+    private boolean hasPendingLead() {
+        return this.pendingLeadX != this.leadX || this.pendingLeadZ != this.leadZ;
+    }
+
+    /**
+     * Commits the pending lead. The queues are ordered by the lead, so they are emptied in their current order
+     * first and filled again after, instead of being left with a heap order that no longer holds
+     */
+    public void commitLead(@NotNull LongHeapPriorityQueue @NotNull ... queues) {
+        final long[][] drained = new long[queues.length][];
+        for (int i = 0; i < queues.length; i++) {
+            final LongHeapPriorityQueue queue = queues[i];
+            final long[] chunks = drained[i] = new long[queue.size()];
+            for (int j = 0; j < chunks.length; j++) {
+                chunks[j] = queue.dequeueLong();
+            }
+        }
+        this.leadX = this.pendingLeadX;
+        this.leadZ = this.pendingLeadZ;
+        for (int i = 0; i < queues.length; i++) {
+            for (final long chunk : drained[i]) {
+                queues[i].enqueue(chunk);
+            }
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package io.canvasmc.canvas.server.chunk;
+
+import ca.spottedleaf.concurrentutil.util.Priority;
+import ca.spottedleaf.moonrise.common.util.MoonriseCommon;
+import io.canvasmc.canvas.Config;
+import io.canvasmc.canvas.metrics.CanvasMetrics;
+import io.canvasmc.canvas.metrics.MetricsRegistry;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import net.minecraft.Util;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.chunk.status.ChunkStatus;
+import net.minecraft.world.level.chunk.storage.IOWorker;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+// generates every chunk within a radius of a center, walking a spiral outwards. chunks are requested
+// from the chunk system directly in batches sized to its worker count, and only while the chunk system
+// queue and the io workers keep up, so generation never piles up work faster than it can be finished.
+// progress is the lowest spiral position still in flight, persisted to the dimension folder, so an
+// interrupted run resumes without skipping chunks
+public final class ChunkPregenerator {
+    private static final Logger LOGGER = LogManager.getLogger("Canvas Pregenerator");
+    private static final String PROGRESS_FILE = "canvas_pregenerator.properties";
+    private static final long BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(25L);
+    private static final long SAVE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10L);
+    private static final Map<ServerLevel, ChunkPregenerator> RUNNING = new ConcurrentHashMap<>();
+    private static final MetricsRegistry.Counter GENERATED = CanvasMetrics.REGISTRY.counter(
+        "canvas_pregenerator_chunks", "Chunks completed by the pregenerator"
+    );
+
+    public enum Shape {
+        SQUARE, CIRCLE
+    }
+
+    private final ServerLevel world;
+    private final Path progressFile;
+    private final int centerX;
+    private final int centerZ;
+    private final int radius;
+    private final Shape shape;
+    private final long total;
+    private final ConcurrentSkipListSet<Long> inFlight = new ConcurrentSkipListSet<>();
+    private final AtomicInteger inFlightCount = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final long startNanos = System.nanoTime();
+    private final long startPosition;
+    private volatile long position;
+    private volatile String bottleneck = "none";
+    private volatile boolean stopped;
+    private volatile boolean finished;
+
+    private ChunkPregenerator(ServerLevel world, int centerX, int centerZ, int radius, Shape shape, long position) {
+        this.world = world;
+        this.progressFile = world.convertable.getDimensionPath(world.dimension()).resolve("data").resolve(PROGRESS_FILE);
+        this.centerX = centerX;
+        this.centerZ = centerZ;
+        this.radius = radius;
+        this.shape = shape;
+        this.total = (2L * radius + 1L) * (2L * radius + 1L);
+        this.startPosition = position;
+        this.position = position;
+    }
+
+    public static @Nullable ChunkPregenerator start(@NotNull ServerLevel world, int centerX, int centerZ, int radius, @NotNull Shape shape) {
+        return launch(new ChunkPregenerator(world, centerX, centerZ, radius, shape, 0L));
+    }
+
+    // continues the run persisted for this world, if any
+    public static @Nullable ChunkPregenerator resume(@NotNull ServerLevel world) throws IOException {
+        final Path file = world.convertable.getDimensionPath(world.dimension()).resolve("data").resolve(PROGRESS_FILE);
+        if (!Files.isRegularFile(file)) return null;
+        final Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            properties.load(reader);
+        }
+        try {
+            return launch(new ChunkPregenerator(
+                world,
+                Integer.parseInt(properties.getProperty("centerX")),
+                Integer.parseInt(properties.getProperty("centerZ")),
+                Integer.parseInt(properties.getProperty("radius")),
+                Shape.valueOf(properties.getProperty("shape").toUpperCase(Locale.ROOT)),
+                Long.parseLong(properties.getProperty("position"))
+            ));
+        } catch (RuntimeException exception) {
+            throw new IOException("Malformed pregenerator progress file " + file, exception);
+        }
+    }
+
+    private static @Nullable ChunkPregenerator launch(@NotNull ChunkPregenerator pregenerator) {
+        if (RUNNING.putIfAbsent(pregenerator.world, pregenerator) != null) {
+            return null;
+        }
+        final Thread thread = new Thread(pregenerator::run, "Canvas Pregenerator - " + pregenerator.world.convertable.getLevelId());
+        thread.setDaemon(true);
+        thread.setUncaughtExceptionHandler(Util::onThreadException);
+        thread.start();
+        return pregenerator;
+    }
+
+    public static @Nullable ChunkPregenerator get(@NotNull ServerLevel world) {
+        return RUNNING.get(world);
+    }
+
+    // stops every running pregenerator and persists its progress, called before the server halts its worlds
+    public static void stopAll() {
+        for (final ChunkPregenerator pregenerator : RUNNING.values()) {
+            pregenerator.stop();
+            pregenerator.saveProgress();
+        }
+    }
+
+    public void stop() {
+        this.stopped = true;
+    }
+
+    private void run() {
+        LOGGER.info("Pregenerating {} chunks of {} around {}, {}", this.total - this.position, this.world.convertable.getLevelId(), this.centerX, this.centerZ);
+        final SpiralIterator spiral = new SpiralIterator();
+        spiral.skip(this.position);
+        long lastSave = System.nanoTime();
+        try {
+            while (!this.stopped && this.position < this.total) {
+                final int workers = Math.max(1, MoonriseCommon.WORKER_POOL.getCoreThreads().length);
+                if (!this.canSchedule(workers)) {
+                    LockSupport.parkNanos(BACKOFF_NANOS);
+                } else {
+                    this.bottleneck = "none";
+                    for (int i = 0; i < workers * 2 && this.position < this.total; i++) {
+                        final long position = this.position;
+                        final int chunkX = this.centerX + spiral.x;
+                        final int chunkZ = this.centerZ + spiral.z;
+                        final boolean inShape = this.shape == Shape.SQUARE || spiral.x * spiral.x + spiral.z * spiral.z <= this.radius * this.radius;
+                        spiral.next();
+                        this.position = position + 1L;
+                        if (inShape) {
+                            this.request(position, chunkX, chunkZ);
+                        }
+                    }
+                }
+                if (System.nanoTime() - lastSave >= SAVE_INTERVAL_NANOS) {
+                    this.saveProgress();
+                    lastSave = System.nanoTime();
+                }
+            }
+            while (!this.stopped && this.inFlightCount.get() > 0) {
+                LockSupport.parkNanos(BACKOFF_NANOS);
+            }
+            this.finished = !this.stopped;
+            if (this.finished) {
+                Files.deleteIfExists(this.progressFile);
+                LOGGER.info("Finished pregenerating {}: {}", this.world.convertable.getLevelId(), this.status());
+            } else {
+                this.saveProgress();
+            }
+        } catch (IOException exception) {
+            LOGGER.warn("Failed to remove pregenerator progress of {}", this.world.convertable.getLevelId(), exception);
+        } finally {
+            RUNNING.remove(this.world, this);
+        }
+    }
+
+    // backpressure, in the order the stages are worked through
+    private boolean canSchedule(int workers) {
+        if (this.inFlightCount.get() >= workers * 8) {
+            this.bottleneck = "chunk completion";
+            return false;
+        }
+        if (MoonriseCommon.WORKER_POOL.queuedTasks() >= workers * 16) {
+            this.bottleneck = "chunk system workers";
+            return false;
+        }
+        if (IOWorker.getTotalPendingWrites() >= Config.INSTANCE.chunks.chunkDataCacheSoftLimit / 2) {
+            this.bottleneck = "io writes";
+            return false;
+        }
+        return true;
+    }
+
+    private void request(long position, int chunkX, int chunkZ) {
+        this.inFlight.add(position);
+        this.inFlightCount.incrementAndGet();
+        this.world.moonrise$getChunkTaskScheduler().scheduleChunkLoad(chunkX, chunkZ, ChunkStatus.FULL, true, Priority.LOW, (chunk) -> {
+            this.inFlight.remove(position);
+            this.inFlightCount.decrementAndGet();
+            if (chunk != null) {
+                this.completed.incrementAndGet();
+                GENERATED.inc();
+            }
+        });
+    }
+
+    private synchronized void saveProgress() {
+        if (this.finished) return;
+        final Long lowestInFlight = this.inFlight.isEmpty() ? null : this.inFlight.first();
+        final long resumeAt = lowestInFlight == null ? this.position : Math.min(lowestInFlight, this.position);
+        final Properties properties = new Properties();
+        properties.setProperty("centerX", Integer.toString(this.centerX));
+        properties.setProperty("centerZ", Integer.toString(this.centerZ));
+        properties.setProperty("radius", Integer.toString(this.radius));
+        properties.setProperty("shape", this.shape.name().toLowerCase(Locale.ROOT));
+        properties.setProperty("position", Long.toString(resumeAt));
+        try {
+            Files.createDirectories(this.progressFile.getParent());
+            final Path temp = this.progressFile.resolveSibling(PROGRESS_FILE + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temp)) {
+                properties.store(writer, "Canvas pregenerator progress");
+            }
+            Files.move(temp, this.progressFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException exception) {
+            LOGGER.warn("Failed to save pregenerator progress of {}", this.world.convertable.getLevelId(), exception);
+        }
+    }
+
+    public @NotNull String status() {
+        final double seconds = Math.max(1.0E-3D, (System.nanoTime() - this.startNanos) * 1.0E-9D);
+        final long done = this.position - this.inFlightCount.get();
+        final double rate = this.completed.get() / seconds;
+        final double positionsPerSecond = Math.max(0L, done - this.startPosition) / seconds;
+        final long remaining = this.total - done;
+        final String eta = positionsPerSecond <= 0.0D ? "unknown" : formatDuration((long) (remaining / positionsPerSecond));
+        return String.format(
+            "%.1f%% (%d/%d), %.1f chunks/s, %d in flight, ETA %s, bottleneck: %s",
+            done * 100.0D / this.total, done, this.total, rate, this.inFlightCount.get(), eta, this.bottleneck
+        );
+    }
+
+    private static @NotNull String formatDuration(long seconds) {
+        return String.format("%dh %02dm %02ds", seconds / 3600L, (seconds / 60L) % 60L, seconds % 60L);
+    }
+
+    // walks a square spiral outwards from 0, 0, ring by ring
+    private static final class SpiralIterator {
+        private int x;
+        private int z;
+        private int dx = 1;
+        private int dz;
+        private int legLength = 1;
+        private int legProgress;
+        private int legsDone;
+
+        private void skip(long count) {
+            for (long i = 0; i < count; i++) {
+                this.next();
+            }
+        }
+
+        private void next() {
+            this.x += this.dx;
+            this.z += this.dz;
+            if (++this.legProgress == this.legLength) {
+                this.legProgress = 0;
+                // turn left
+                final int dx = this.dx;
+                this.dx = -this.dz;
+                this.dz = dx;
+                if (++this.legsDone % 2 == 0) {
+                    this.legLength++;
+                }
+            }
+        }
+    }
+}
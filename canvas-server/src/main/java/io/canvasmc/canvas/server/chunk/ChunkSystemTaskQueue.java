@@ -6,7 +6,9 @@ import ca.spottedleaf.concurrentutil.util.Priority;
 import ca.spottedleaf.moonrise.patches.chunk_system.scheduling.executor.RadiusAwarePrioritisedExecutor;
 import ca.spottedleaf.moonrise.patches.chunk_system.scheduling.task.ChunkUpgradeGenericStatusTask;
 import ca.spottedleaf.moonrise.patches.chunk_system.scheduling.task.GenericDataLoadTask;
+import com.ishland.flowsched.executor.Task;
 import io.canvasmc.canvas.Config;
+import io.canvasmc.canvas.jfr.ChunkTaskEvent;
 import java.lang.invoke.VarHandle;
 import java.util.Comparator;
 import java.util.Map;
@@ -23,9 +25,11 @@ public final class ChunkSystemTaskQueue implements PrioritisedExecutor {
     private final AtomicBoolean shutdown = new AtomicBoolean();
     private final ConcurrentSkipListMap<ChunkSystemTaskQueue.PrioritisedQueuedTask.Holder, Boolean> tasks = new ConcurrentSkipListMap<>(ChunkSystemTaskQueue.PrioritisedQueuedTask.COMPARATOR);
     private final TheChunkSystem chunkSystem;
+    private final TheChunkSystem.Share share;
 
-    public ChunkSystemTaskQueue(TheChunkSystem chunkSystem) {
+    public ChunkSystemTaskQueue(TheChunkSystem chunkSystem, TheChunkSystem.Share share) {
         this.chunkSystem = chunkSystem;
+        this.share = share;
     }
 
     @Override
@@ -123,6 +127,10 @@ public final class ChunkSystemTaskQueue implements PrioritisedExecutor {
         private Priority priority;
         private long subOrder;
         private ChunkSystemTaskQueue.PrioritisedQueuedTask.Holder holder;
+        // the task queued in the chunk system, which priority changes are passed on to
+        private Task scheduled;
+        // the priority the task had when it started executing, its event reports it
+        private Priority executedAt;
 
         public PrioritisedQueuedTask(final Runnable execute, final Priority priority, final long subOrder) {
             if (!Priority.isValidPriority(priority)) {
@@ -154,7 +162,8 @@ public final class ChunkSystemTaskQueue implements PrioritisedExecutor {
                 this.holder = new Holder(this, this.priority.priority, this.subOrder, this.id);
 
                 ChunkSystemTaskQueue.this.scheduledTasks.getAndIncrement();
-                ChunkSystemTaskQueue.this.chunkSystem.schedule(this.holder.task.execute, this.holder.task.priority.priority);
+                // runs through execute, so a task cancelled or already executed while queued is skipped
+                this.scheduled = ChunkSystemTaskQueue.this.chunkSystem.schedule(ChunkSystemTaskQueue.this.share, this.profiled(), this.priority.priority);
             }
 
             if (ChunkSystemTaskQueue.this.isShutdown()) {
@@ -165,6 +174,37 @@ public final class ChunkSystemTaskQueue implements PrioritisedExecutor {
             return true;
         }
 
+        // called with this task locked
+        private void reschedule() {
+            if (this.scheduled != null) {
+                ChunkSystemTaskQueue.this.chunkSystem.changePriority(this.scheduled, this.priority.priority);
+            }
+        }
+
+        private Runnable profiled() {
+            if (!ChunkTaskEvent.TYPE.isEnabled()) {
+                return this::execute;
+            }
+            final long queuedAt = System.nanoTime();
+            return () -> {
+                final ChunkTaskEvent event = new ChunkTaskEvent();
+                event.begin();
+                final long waitTime = System.nanoTime() - queuedAt;
+                try {
+                    this.execute();
+                } finally {
+                    event.end();
+                    // null if the task was cancelled or executed elsewhere while queued
+                    final Priority priority = this.executedAt;
+                    if (priority != null && event.shouldCommit()) {
+                        event.priority = priority.name();
+                        event.waitTime = waitTime;
+                        event.commit();
+                    }
+                }
+            };
+        }
+
         @Override
         public boolean isQueued() {
             synchronized (this) {
@@ -185,6 +225,9 @@ public final class ChunkSystemTaskQueue implements PrioritisedExecutor {
                     if (this.holder.markRemoved()) {
                         ChunkSystemTaskQueue.this.tasks.remove(this.holder);
                     }
+                    if (this.scheduled != null) {
+                        ChunkSystemTaskQueue.this.chunkSystem.cancel(this.scheduled);
+                    }
                     ChunkSystemTaskQueue.this.executedTasks.getAndIncrement();
                 }
 
@@ -201,6 +244,7 @@ public final class ChunkSystemTaskQueue implements PrioritisedExecutor {
                     return false;
                 }
 
+                this.executedAt = this.priority;
                 this.priority = Priority.COMPLETING;
 
                 if (increaseExecuted = (this.holder != null)) {
@@ -243,6 +287,7 @@ public final class ChunkSystemTaskQueue implements PrioritisedExecutor {
                     this.holder = new ChunkSystemTaskQueue.PrioritisedQueuedTask.Holder(this, priority.priority, this.subOrder, this.id);
                     ChunkSystemTaskQueue.this.tasks.put(this.holder, Boolean.TRUE);
                 }
+                this.reschedule();
 
                 return true;
             }
@@ -264,6 +309,7 @@ public final class ChunkSystemTaskQueue implements PrioritisedExecutor {
                     this.holder = new ChunkSystemTaskQueue.PrioritisedQueuedTask.Holder(this, priority.priority, this.subOrder, this.id);
                     ChunkSystemTaskQueue.this.tasks.put(this.holder, Boolean.TRUE);
                 }
+                this.reschedule();
 
                 return true;
             }
@@ -285,6 +331,7 @@ public final class ChunkSystemTaskQueue implements PrioritisedExecutor {
                     this.holder = new ChunkSystemTaskQueue.PrioritisedQueuedTask.Holder(this, priority.priority, this.subOrder, this.id);
                     ChunkSystemTaskQueue.this.tasks.put(this.holder, Boolean.TRUE);
                 }
+                this.reschedule();
 
                 return true;
             }
@@ -377,6 +424,7 @@ public final class ChunkSystemTaskQueue implements PrioritisedExecutor {
                     this.holder = new ChunkSystemTaskQueue.PrioritisedQueuedTask.Holder(this, priority.priority, this.subOrder, this.id);
                     ChunkSystemTaskQueue.this.tasks.put(this.holder, Boolean.TRUE);
                 }
+                this.reschedule();
 
                 return true;
             }
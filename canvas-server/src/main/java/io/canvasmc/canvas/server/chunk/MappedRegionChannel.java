@@ -0,0 +1,363 @@
+package io.canvasmc.canvas.server.chunk;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.canvasmc.canvas.Config;
+import io.canvasmc.canvas.metrics.CanvasMetrics;
+import io.canvasmc.canvas.metrics.MetricsRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import net.minecraft.world.level.chunk.storage.RegionFileVersion;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+// the channel of a region file, serving positional reads from read-only mappings of the file
+// instead of a read call each. everything else, writes included, goes to the original channel;
+// file mappings and writes share the page cache, so the mappings always see written chunks.
+// the file is mapped in fixed windows, each reaching one largest chunk past its end so that any
+// chunk starting in a window is read from it alone, and a growing file only ever remaps the window
+// at its end. mappings are reference counted by readers, so they can be released while idle, or
+// replaced when the file grew past them, without pulling the memory out from under a reader. every
+// read copies what it needs out of the mapping before it returns, while the region file still holds
+// its lock, so no reader outlives the call and a later write to the same sectors cannot change a
+// chunk that is still being decompressed. a truncation waits for the reads in flight to finish
+// first, a mapping never reaches past the end of the file
+public final class MappedRegionChannel extends FileChannel {
+    private static final MetricsRegistry.Counter MAPPED_READS = CanvasMetrics.REGISTRY.counter(
+        "canvas_region_mapped_reads", "Region file reads served from a memory mapping"
+    );
+    private static final MetricsRegistry.Counter FALLBACK_READS = CanvasMetrics.REGISTRY.counter(
+        "canvas_region_mapped_read_fallbacks", "Region file reads that could not be served from a memory mapping"
+    );
+    private static final AtomicLong MAPPED_BYTES = new AtomicLong();
+    private static final Set<MappedRegionChannel> OPEN = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private static final ScheduledExecutorService UNMAPPER = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder()
+            .setNameFormat("Canvas Region Unmapper")
+            .setDaemon(true)
+            .setPriority(Thread.NORM_PRIORITY - 2)
+            .build()
+    );
+    private static final long WINDOW_BYTES = 1L << 20;
+    // a chunk occupies at most 255 sectors of 4096 bytes in the file
+    private static final long MAX_READ = 255L * 4096L;
+    private static final int HEADER_BYTES = 5;
+    private static final int CUSTOM_VERSION = 127;
+    private static final int EXTERNAL_FLAG = 128;
+    private static final ValueLayout.OfInt BIG_ENDIAN_INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    static {
+        CanvasMetrics.REGISTRY.gauge("canvas_region_mapped_bytes", "Bytes of region files currently memory mapped", MAPPED_BYTES::get);
+        UNMAPPER.scheduleWithFixedDelay(MappedRegionChannel::releaseIdle, 5L, 5L, TimeUnit.SECONDS);
+    }
+
+    private final FileChannel delegate;
+    private final Object mappingLock = new Object();
+    private Mapping[] windows = new Mapping[0]; // guarded by mappingLock
+    private int readers; // guarded by mappingLock
+    private boolean truncating; // guarded by mappingLock
+    private boolean closed; // guarded by mappingLock
+    private volatile long lastRead = System.nanoTime();
+
+    public MappedRegionChannel(@NotNull FileChannel delegate) {
+        this.delegate = delegate;
+        OPEN.add(this);
+    }
+
+    private static void releaseIdle() {
+        final long idleNanos = TimeUnit.SECONDS.toNanos(Config.INSTANCE.chunks.mappedRegionReads.idleUnmapSeconds);
+        final long now = System.nanoTime();
+        for (final MappedRegionChannel channel : OPEN) {
+            if (now - channel.lastRead >= idleNanos) {
+                synchronized (channel.mappingLock) {
+                    channel.retireAll();
+                }
+            }
+        }
+    }
+
+    // returns the mapping of the window covering [position, position + length), or null if the read
+    // cannot be served from one, because it is too long or the file does not reach that far
+    private @Nullable Mapping acquire(long position, long length) throws IOException {
+        if (length > MAX_READ) return null;
+        final long end = position + length;
+        final long index = position / WINDOW_BYTES;
+        if (index >= Integer.MAX_VALUE) return null;
+        synchronized (this.mappingLock) {
+            if (this.closed || this.truncating) return null;
+            if (index >= this.windows.length) {
+                this.windows = Arrays.copyOf(this.windows, (int) index + 1);
+            }
+            Mapping mapping = this.windows[(int) index];
+            if (mapping == null || mapping.end() < end) {
+                final long base = index * WINDOW_BYTES;
+                final long mapEnd = Math.min(this.delegate.size(), base + WINDOW_BYTES + MAX_READ);
+                if (mapEnd < end) return null;
+                this.retire((int) index);
+                final Arena arena = Arena.ofShared();
+                try {
+                    mapping = new Mapping(arena, base, this.delegate.map(MapMode.READ_ONLY, base, mapEnd - base, arena));
+                } catch (IOException | RuntimeException exception) {
+                    arena.close();
+                    throw exception;
+                }
+                MAPPED_BYTES.addAndGet(mapEnd - base);
+                this.windows[(int) index] = mapping;
+            }
+            mapping.references++;
+            this.readers++;
+            return mapping;
+        }
+    }
+
+    private void release(@NotNull Mapping mapping) {
+        synchronized (this.mappingLock) {
+            this.readers--;
+            if (--mapping.references == 0 && mapping.retired) {
+                mapping.close();
+            }
+            if (this.readers == 0) {
+                this.mappingLock.notifyAll();
+            }
+        }
+    }
+
+    // the window's mapping is closed now if unused, otherwise by its last reader
+    private void retire(int index) {
+        final Mapping mapping = this.windows[index];
+        if (mapping == null) return;
+        this.windows[index] = null;
+        mapping.retired = true;
+        if (mapping.references == 0) {
+            mapping.close();
+        }
+    }
+
+    private void retireAll() {
+        for (int index = 0; index < this.windows.length; index++) {
+            this.retire(index);
+        }
+    }
+
+    @Override
+    public int read(ByteBuffer dst, long position) throws IOException {
+        final int length = dst.remaining();
+        if (length == 0 || position < 0L) return this.delegate.read(dst, position);
+        final Mapping mapping = this.acquire(position, length);
+        if (mapping == null) {
+            // reads past the end of the file are left to the file system to answer
+            FALLBACK_READS.inc();
+            return this.delegate.read(dst, position);
+        }
+        try {
+            MemorySegment.copy(mapping.segment, position - mapping.base, MemorySegment.ofBuffer(dst), 0L, length);
+            dst.position(dst.position() + length);
+            MAPPED_READS.inc();
+            this.lastRead = System.nanoTime();
+            return length;
+        } finally {
+            this.release(mapping);
+        }
+    }
+
+    /**
+     * Reads the payload of the chunk stored in the sectors at the position, copying only the payload out of the
+     * mapping instead of every sector it occupies. The stream is on the heap and holds on to nothing
+     *
+     * @return the payload, or null if the chunk cannot be served from a mapping or is not a plain chunk
+     * stored in the file, the caller reads it the usual way then, which also reports whatever is wrong with it
+     */
+    public @Nullable ChunkStream openChunk(long position, int length) throws IOException {
+        if (length < HEADER_BYTES || position < 0L) return null;
+        final Mapping mapping = this.acquire(position, length);
+        if (mapping == null) {
+            FALLBACK_READS.inc();
+            return null;
+        }
+        try {
+            final long offset = position - mapping.base;
+            final int declared = mapping.segment.get(BIG_ENDIAN_INT, offset);
+            final int compression = mapping.segment.get(ValueLayout.JAVA_BYTE, offset + 4L);
+            final int payload = declared - 1;
+            if (declared <= 0 || payload > length - HEADER_BYTES || (compression & EXTERNAL_FLAG) != 0
+                || compression == CUSTOM_VERSION || RegionFileVersion.fromId(compression) == null) {
+                return null;
+            }
+            final byte[] bytes = new byte[payload];
+            MemorySegment.copy(mapping.segment, ValueLayout.JAVA_BYTE, offset + HEADER_BYTES, bytes, 0, payload);
+            MAPPED_READS.inc();
+            this.lastRead = System.nanoTime();
+            return new ChunkStream((byte) compression, bytes);
+        } finally {
+            this.release(mapping);
+        }
+    }
+
+    @Override
+    public FileChannel truncate(long size) throws IOException {
+        // never leave a mapping reaching past the end of the file, nor shrink the file under a reader
+        synchronized (this.mappingLock) {
+            this.truncating = true;
+            try {
+                this.retireAll();
+                while (this.readers > 0) {
+                    try {
+                        this.mappingLock.wait();
+                    } catch (InterruptedException exception) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted waiting for region file readers");
+                    }
+                }
+                this.delegate.truncate(size);
+            } finally {
+                this.truncating = false;
+            }
+        }
+        return this;
+    }
+
+    @Override
+    protected void implCloseChannel() throws IOException {
+        OPEN.remove(this);
+        synchronized (this.mappingLock) {
+            this.closed = true;
+            this.retireAll();
+        }
+        this.delegate.close();
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        return this.delegate.read(dst);
+    }
+
+    @Override
+    public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+        return this.delegate.read(dsts, offset, length);
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        return this.delegate.write(src);
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+        return this.delegate.write(srcs, offset, length);
+    }
+
+    @Override
+    public int write(ByteBuffer src, long position) throws IOException {
+        return this.delegate.write(src, position);
+    }
+
+    @Override
+    public long position() throws IOException {
+        return this.delegate.position();
+    }
+
+    @Override
+    public FileChannel position(long newPosition) throws IOException {
+        this.delegate.position(newPosition);
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+        return this.delegate.size();
+    }
+
+    @Override
+    public void force(boolean metaData) throws IOException {
+        this.delegate.force(metaData);
+    }
+
+    @Override
+    public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        return this.delegate.transferTo(position, count, target);
+    }
+
+    @Override
+    public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+        return this.delegate.transferFrom(src, position, count);
+    }
+
+    @Override
+    public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+        return this.delegate.map(mode, position, size);
+    }
+
+    @Override
+    public MemorySegment map(MapMode mode, long offset, long size, Arena arena) throws IOException {
+        return this.delegate.map(mode, offset, size, arena);
+    }
+
+    @Override
+    public FileLock lock(long position, long size, boolean shared) throws IOException {
+        return this.delegate.lock(position, size, shared);
+    }
+
+    @Override
+    public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+        return this.delegate.tryLock(position, size, shared);
+    }
+
+    // the payload of a chunk copied out of a mapping
+    public static final class ChunkStream extends ByteArrayInputStream {
+        private final byte compression;
+
+        private ChunkStream(byte compression, byte @NotNull [] payload) {
+            super(payload);
+            this.compression = compression;
+        }
+
+        public byte compression() {
+            return this.compression;
+        }
+
+        public int length() {
+            return this.count;
+        }
+    }
+
+    private static final class Mapping {
+        private final Arena arena;
+        private final long base;
+        private final MemorySegment segment;
+        private int references;
+        private boolean retired;
+
+        private Mapping(Arena arena, long base, MemorySegment segment) {
+            this.arena = arena;
+            this.base = base;
+            this.segment = segment;
+        }
+
+        private long end() {
+            return this.base + this.segment.byteSize();
+        }
+
+        private void close() {
+            MAPPED_BYTES.addAndGet(-this.segment.byteSize());
+            this.arena.close();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package io.canvasmc.canvas.server.chunk;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.function.IntConsumer;
+import net.minecraft.util.BitStorage;
+import net.minecraft.util.SimpleBitStorage;
+import net.minecraft.world.level.chunk.Palette;
+import org.jetbrains.annotations.NotNull;
+
+// the packed values of a simple bit storage, moved into a block of the region's section storage pool. the layout
+// is the same, values never span two longs, so bulk reads like chunk sends and saves work in place and inflating is
+// a copy back. the container inflates before any point read or write, so this is only ever read in bulk, or by code
+// that reaches into the container data directly, and the storage reads of the hot paths only see the vanilla storages
+public final class OffHeapBitStorage implements BitStorage {
+    private final SectionStoragePool pool;
+    private final MemorySegment data;
+    private final int bits;
+    private final int size;
+    private final int valuesPerLong;
+    private final long mask;
+
+    public OffHeapBitStorage(@NotNull SimpleBitStorage storage, @NotNull SectionStoragePool pool) {
+        final long[] raw = storage.getRaw();
+        this.pool = pool;
+        this.data = pool.allocate((long) raw.length * Long.BYTES);
+        MemorySegment.copy(raw, 0, this.data, ValueLayout.JAVA_LONG, 0L, raw.length);
+        this.bits = storage.getBits();
+        this.size = storage.getSize();
+        this.valuesPerLong = 64 / this.bits;
+        this.mask = (1L << this.bits) - 1L;
+    }
+
+    /**
+     * Hands the block back to the pool, once the container no longer holds this storage
+     */
+    public void release() {
+        this.pool.free(this.data);
+    }
+
+    /**
+     * A heap copy of the storage
+     */
+    public @NotNull SimpleBitStorage inflate() {
+        return new SimpleBitStorage(this.bits, this.size, this.getRaw());
+    }
+
+    private long cell(int index) {
+        return this.data.getAtIndex(ValueLayout.JAVA_LONG, index / this.valuesPerLong);
+    }
+
+    private int shift(int index) {
+        return (index % this.valuesPerLong) * this.bits;
+    }
+
+    @Override
+    public int getAndSet(int index, int value) {
+        final int cellIndex = index / this.valuesPerLong;
+        final int shift = this.shift(index);
+        final long cell = this.data.getAtIndex(ValueLayout.JAVA_LONG, cellIndex);
+        this.data.setAtIndex(ValueLayout.JAVA_LONG, cellIndex, cell & ~(this.mask << shift) | ((long) value & this.mask) << shift);
+        return (int) (cell >>> shift & this.mask);
+    }
+
+    @Override
+    public void set(int index, int value) {
+        this.getAndSet(index, value);
+    }
+
+    @Override
+    public int get(int index) {
+        return (int) (this.cell(index) >>> this.shift(index) & this.mask);
+    }
+
+    @Override
+    public long @NotNull [] getRaw() {
+        return this.data.toArray(ValueLayout.JAVA_LONG);
+    }
+
+    @Override
+    public int getSize() {
+        return this.size;
+    }
+
+    @Override
+    public int getBits() {
+        return this.bits;
+    }
+
+    @Override
+    public void getAll(@NotNull IntConsumer consumer) {
+        for (int index = 0; index < this.size; index++) {
+            consumer.accept(this.get(index));
+        }
+    }
+
+    @Override
+    public void unpack(int @NotNull [] array) {
+        for (int index = 0; index < this.size; index++) {
+            array[index] = this.get(index);
+        }
+    }
+
+    @Override
+    public @NotNull BitStorage copy() {
+        return this.inflate();
+    }
+
+    @Override
+    public <T> void compact(@NotNull Palette<T> srcPalette, @NotNull Palette<T> dstPalette, short @NotNull [] out) {
+        if (this.size != out.length) {
+            throw new IllegalStateException("Array size mismatch");
+        }
+        final short[] mappings = new short[(int) (this.mask + 1)];
+        for (int index = 0; index < this.size; index++) {
+            final int value = this.get(index);
+            int remappedId = mappings[value];
+            if (remappedId == 0) {
+                remappedId = dstPalette.idFor(srcPalette.valueFor(value)) + 1;
+                mappings[value] = (short) remappedId;
+            }
+            out[index] = (short) (remappedId - 1);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package io.canvasmc.canvas.server.chunk;
+
+import io.canvasmc.canvas.Config;
+import io.canvasmc.canvas.server.chunk.compression.RegionCodecs;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import net.minecraft.world.level.chunk.storage.RegionFile;
+import net.minecraft.world.level.chunk.storage.RegionFileVersion;
+import net.minecraft.world.level.chunk.storage.RegionStorageInfo;
+
+// every region file a storage opens passes through its region cache before it is read from or
+// written to, so this is where the codec selected for the world and the mapped read path are
+// applied. both are resolved once per file, config changes apply to files opened after the change.
+// the storage builds its files in more than one place, moonrise opens them for reads that may not
+// create them and for writes that do, and chunk, entity and poi storages all share that code, while
+// every one of those paths caches the file it built, so one override here covers all of them
+public class RegionFileCache extends Long2ObjectLinkedOpenHashMap<RegionFile> {
+    private final RegionStorageInfo info;
+
+    public RegionFileCache(RegionStorageInfo info) {
+        this.info = info;
+    }
+
+    private RegionFile apply(final RegionFile file) {
+        if (file != null) {
+            final RegionFileVersion version = RegionCodecs.versionFor(this.info);
+            if (file.version != version) {
+                file.version = version;
+            }
+            if (Config.INSTANCE.chunks.mappedRegionReads.enabled && !(file.file instanceof MappedRegionChannel)) {
+                file.file = new MappedRegionChannel(file.file);
+            }
+        }
+        return file;
+    }
+
+    @Override
+    public RegionFile put(final long key, final RegionFile value) {
+        return super.put(key, this.apply(value));
+    }
+
+    @Override
+    public RegionFile putAndMoveToFirst(final long key, final RegionFile value) {
+        return super.putAndMoveToFirst(key, this.apply(value));
+    }
+
+    @Override
+    public RegionFile putAndMoveToLast(final long key, final RegionFile value) {
+        return super.putAndMoveToLast(key, this.apply(value));
+    }
+}
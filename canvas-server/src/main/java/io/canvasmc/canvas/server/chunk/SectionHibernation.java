@@ -0,0 +1,87 @@
+package io.canvasmc.canvas.server.chunk;
+
+import ca.spottedleaf.moonrise.common.list.ReferenceList;
+import io.canvasmc.canvas.Config;
+import io.canvasmc.canvas.metrics.CanvasMetrics;
+import io.canvasmc.canvas.metrics.MetricsRegistry;
+import io.canvasmc.canvas.region.ServerRegions;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import org.jetbrains.annotations.NotNull;
+
+// moves the block states of chunks that have not ticked for a while off the heap. a loaded chunk outside of the
+// simulation distance of every player, like the outer ring of a high view distance, is mostly read in bulk, by chunk
+// sends and saves, so the packed values of its sections go to the section storage pool, which serves
+// those reads in place, and hash palettes shrink to linear ones. palette entries are the block states themselves and
+// stay on heap. a lookup or write moves a section back onto the heap, and so does the chunk starting to tick again,
+// so ticking chunks never pay for native reads, and an unloading chunk hands its blocks back to the pool
+public final class SectionHibernation {
+    private static final long SWEEP_INTERVAL = 100L;
+    private static final MetricsRegistry.Counter HIBERNATED = CanvasMetrics.REGISTRY.counter(
+        "canvas_sections_hibernated", "Chunk sections whose block states were moved off heap"
+    );
+    private static final MetricsRegistry.Counter WOKEN = CanvasMetrics.REGISTRY.counter(
+        "canvas_sections_woken", "Hibernated chunk sections moved back onto the heap when their chunk started ticking"
+    );
+
+    static {
+        CanvasMetrics.REGISTRY.gauge("canvas_hibernated_section_bytes", "Bytes of chunk section block states held off heap", SectionStoragePool.BYTES::get);
+        CanvasMetrics.REGISTRY.gauge("canvas_section_storage_pool_bytes", "Bytes of native memory reserved by the section storage pool", SectionStoragePool.RESERVED::get);
+    }
+
+    /**
+     * Hibernates the sections of the region's chunks that have not ticked for the configured time. Runs every few
+     * seconds of the region's ticks
+     */
+    public static void sweep(@NotNull ServerLevel level, @NotNull ServerRegions.WorldTickData tickData) {
+        if (!Config.INSTANCE.chunks.sectionHibernation.enabled) {
+            return;
+        }
+        final long now = level.getGameTime();
+        if (now % SWEEP_INTERVAL != 0L) {
+            return;
+        }
+        final long idleTicks = Config.INSTANCE.chunks.sectionHibernation.idleSeconds * 20L;
+        final ReferenceList<LevelChunk> ticking = tickData.getTickingChunks();
+        final LevelChunk[] chunks = tickData.getChunks().getRawDataUnchecked();
+        for (int i = 0, size = tickData.getChunks().size(); i < size; i++) {
+            final LevelChunk chunk = chunks[i];
+            if (ticking.contains(chunk) || chunk.canvas$idleSince < 0L) {
+                chunk.canvas$idleSince = now;
+                continue;
+            }
+            if (now - chunk.canvas$idleSince < idleTicks) {
+                continue;
+            }
+            // sections written to since the last sweep were inflated by the write
+            for (final LevelChunkSection section : chunk.getSections()) {
+                if (section.states.canvas$hibernate(SectionStoragePool.get())) {
+                    HIBERNATED.inc();
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the sections of a chunk that started ticking back onto the heap
+     */
+    public static void wake(@NotNull LevelChunk chunk) {
+        chunk.canvas$idleSince = -1L;
+        for (final LevelChunkSection section : chunk.getSections()) {
+            if (section.states.canvas$inflate()) {
+                WOKEN.inc();
+            }
+        }
+    }
+
+    /**
+     * Moves the sections of a chunk that is no longer loaded back onto the heap, the chunk may still be saved from them
+     */
+    public static void unload(@NotNull LevelChunk chunk) {
+        chunk.canvas$idleSince = -1L;
+        for (final LevelChunkSection section : chunk.getSections()) {
+            section.states.canvas$inflate();
+        }
+    }
+}
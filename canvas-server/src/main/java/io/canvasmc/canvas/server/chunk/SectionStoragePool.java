@@ -0,0 +1,91 @@
+package io.canvasmc.canvas.server.chunk;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.jetbrains.annotations.NotNull;
+
+// the native memory hibernated sections keep their packed values in. blocks are cut from large slabs of one shared
+// arena, and a freed block goes on a free list for its size, there are only a handful of sizes, one per bit count of
+// a section. the arena is never closed, so a block stays mapped for good and a reader that picked up a hibernated
+// storage just before its section was inflated never reads unmapped memory. a freed block is only handed out again
+// after a delay, by then any such reader is long done. there is one pool for the server, created the first time a
+// section hibernates, so regions coming and going never strand a slab, and blocks freed in any region are reused
+public final class SectionStoragePool {
+    static final AtomicLong BYTES = new AtomicLong();
+    static final AtomicLong RESERVED = new AtomicLong();
+    private static final long SLAB_BYTES = 1L << 20;
+    private static final long REUSE_DELAY = TimeUnit.SECONDS.toNanos(30L);
+
+    private static volatile SectionStoragePool instance;
+
+    private final Arena arena = Arena.ofShared();
+    private final Long2ObjectOpenHashMap<ArrayDeque<MemorySegment>> free = new Long2ObjectOpenHashMap<>();
+    private final ArrayDeque<Freed> delayed = new ArrayDeque<>();
+    private MemorySegment slab = MemorySegment.NULL;
+    private long slabUsed;
+
+    private SectionStoragePool() {
+    }
+
+    /**
+     * The pool of the server, created on first use
+     */
+    public static @NotNull SectionStoragePool get() {
+        SectionStoragePool pool = instance;
+        if (pool == null) {
+            synchronized (SectionStoragePool.class) {
+                pool = instance;
+                if (pool == null) {
+                    instance = pool = new SectionStoragePool();
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * A block of the given size, aligned for longs
+     */
+    public synchronized @NotNull MemorySegment allocate(long bytes) {
+        this.reclaim(System.nanoTime());
+        final ArrayDeque<MemorySegment> blocks = this.free.get(bytes);
+        MemorySegment block = blocks == null ? null : blocks.poll();
+        if (block == null) {
+            if (this.slab.byteSize() - this.slabUsed < bytes) {
+                this.slab = this.arena.allocate(Math.max(SLAB_BYTES, bytes), Long.BYTES);
+                this.slabUsed = 0L;
+                RESERVED.addAndGet(this.slab.byteSize());
+            }
+            block = this.slab.asSlice(this.slabUsed, bytes);
+            this.slabUsed += bytes;
+        }
+        BYTES.addAndGet(bytes);
+        return block;
+    }
+
+    /**
+     * Returns a block to the pool, it is handed out again once no reader can still be using it
+     */
+    public void free(@NotNull MemorySegment block) {
+        synchronized (this) {
+            this.delayed.add(new Freed(block, System.nanoTime()));
+        }
+        BYTES.addAndGet(-block.byteSize());
+    }
+
+    // moves the freed blocks that are old enough onto their free lists
+    private void reclaim(long now) {
+        Freed freed;
+        while ((freed = this.delayed.peek()) != null && now - freed.at() >= REUSE_DELAY) {
+            this.delayed.poll();
+            this.free.computeIfAbsent(freed.block().byteSize(), key -> new ArrayDeque<>()).add(freed.block());
+        }
+    }
+
+    private record Freed(MemorySegment block, long at) {
+    }
+}
@@ -3,10 +3,17 @@ package io.canvasmc.canvas.server.chunk;
 import ca.spottedleaf.concurrentutil.executor.PrioritisedExecutor;
 import ca.spottedleaf.concurrentutil.util.Priority;
 import com.ishland.flowsched.executor.ExecutorManager;
+import com.ishland.flowsched.executor.LockToken;
+import com.ishland.flowsched.executor.Task;
 import com.ishland.flowsched.executor.WorkerThread;
+import com.ishland.flowsched.structs.DynamicPriorityQueue;
+import io.canvasmc.canvas.Config;
 import io.canvasmc.canvas.util.ThreadBuilder;
 import java.lang.reflect.Array;
 import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
@@ -17,11 +24,29 @@ public class TheChunkSystem extends ExecutorManager {
     private final String name;
     private final TheChunkSystem.COWArrayList<TheChunkSystem.ExecutorGroup> executors = new TheChunkSystem.COWArrayList<>(TheChunkSystem.ExecutorGroup.class);
     private boolean shutdown;
+    // weighted fair queueing between the worlds sharing the workers, each world queues into its own share
+    private static final int CRITICAL_PRIORITY = Priority.HIGHER.priority;
+    private static final long VIRTUAL_TIME_SCALE = 1024L;
+    private static final long CRITICAL_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1L);
+    private static final LockToken[] NO_LOCKS = new LockToken[0];
+    private final boolean fair;
+    private final int reservedCriticalShare;
+    private final Map<String, TheChunkSystem.Share> sharesByName = new ConcurrentHashMap<>();
+    private final TheChunkSystem.COWArrayList<TheChunkSystem.Share> shares = new TheChunkSystem.COWArrayList<>(TheChunkSystem.Share.class);
+    private final TheChunkSystem.Share sharedShare;
+    private volatile long virtualClock;
+    private final AtomicLong criticalWindowStart = new AtomicLong(System.nanoTime());
+    private final AtomicLong criticalWindowNanos = new AtomicLong();
+    private final AtomicLong windowNanos = new AtomicLong();
 
     public TheChunkSystem(final int workerThreadCount, final ThreadBuilder threadInitializer, final String name) {
         super(workerThreadCount, threadInitializer);
         LOGGER = LoggerFactory.getLogger("TheChunkSystem/" + name);
         this.name = name;
+        this.fair = Config.INSTANCE.chunks.fairScheduling.enabled;
+        this.reservedCriticalShare = Config.INSTANCE.chunks.fairScheduling.reservedCriticalShare;
+        // tasks not queued by a world, and tasks waiting on locks, stay in the global queue
+        this.sharedShare = new TheChunkSystem.Share("shared", 1, this.globalWorkQueue);
         LOGGER.info("Initialized new LS ChunkSystem '{}' with {} allocated threads", name, workerThreadCount);
     }
 
@@ -70,6 +95,161 @@ public class TheChunkSystem extends ExecutorManager {
         this.wakeup();
     }
 
+    /**
+     * Returns the share of the workers for the world with the given name, weighted from the config
+     */
+    public TheChunkSystem.Share share(final String world) {
+        return this.sharesByName.computeIfAbsent(world, key -> {
+            final TheChunkSystem.Share share = new TheChunkSystem.Share(key, this.weightOf(key), new DynamicPriorityQueue<>());
+            this.shares.add(share);
+            return share;
+        });
+    }
+
+    public TheChunkSystem.Share[] getShares() {
+        return this.shares.getArray().clone();
+    }
+
+    private int weightOf(final String world) {
+        for (final String entry : Config.INSTANCE.chunks.fairScheduling.worldWeights) {
+            final int split = entry.lastIndexOf('=');
+            if (split <= 0 || !entry.substring(0, split).trim().equals(world)) continue;
+            try {
+                return Math.max(1, Integer.parseInt(entry.substring(split + 1).trim()));
+            } catch (NumberFormatException exception) {
+                LOGGER.warn("Invalid chunk system weight '{}' for world {}, using a weight of 1", entry, world);
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Queues a runnable of the world of the share
+     *
+     * @return the queued task, whose priority can be changed with {@link #changePriority(Task, int)} until it runs
+     */
+    public Task schedule(final TheChunkSystem.Share share, final Runnable runnable, final int priority) {
+        // without fair scheduling, or for tasks of no world, everything goes through the global queue
+        final Task task = share.enqueue(!this.fair || share == this.sharedShare ? this.globalWorkQueue : share.queue, runnable, priority);
+        this.wakeup();
+        return task;
+    }
+
+    /**
+     * Moves a task queued by {@link #schedule(Share, Runnable, int)} to another priority
+     *
+     * @return {@code false} if the task already left its queue
+     */
+    public boolean changePriority(final Task task, final int priority) {
+        return ((TheChunkSystem.Share.ShareTask) task).changePriority(priority);
+    }
+
+    /**
+     * Removes a task queued by {@link #schedule(Share, Runnable, int)} from its queue, if it didn't leave it yet
+     */
+    public void cancel(final Task task) {
+        ((TheChunkSystem.Share.ShareTask) task).cancel();
+    }
+
+    @Override
+    protected Task pollTask() {
+        if (!this.fair || this.sharedShare == null) {
+            return super.pollTask();
+        }
+        for (; ; ) {
+            final boolean criticalAllowed = this.isCriticalShareAvailable();
+            TheChunkSystem.Share best = null;
+            int bestPriority = -1;
+            boolean bestCritical = false;
+            for (final TheChunkSystem.Share share : this.shares.getArray()) {
+                final int priority = share.headPriority();
+                if (priority < 0) continue;
+                final boolean critical = criticalAllowed && priority <= CRITICAL_PRIORITY;
+                if (best == null || isBetter(share, priority, critical, best, bestPriority, bestCritical)) {
+                    best = share;
+                    bestPriority = priority;
+                    bestCritical = critical;
+                }
+            }
+            final int sharedPriority = this.sharedShare.headPriority();
+            if (sharedPriority >= 0 && (best == null || sharedPriority <= bestPriority)) {
+                final Task task = this.globalWorkQueue.dequeue();
+                if (task != null) {
+                    return task;
+                }
+            } else if (best != null) {
+                final Task task = best.queue.dequeue();
+                if (task != null) {
+                    final long virtualTime = best.virtualTime.get();
+                    if (virtualTime > this.virtualClock) {
+                        this.virtualClock = virtualTime;
+                    }
+                    return task;
+                }
+            } else {
+                return null;
+            }
+            // raced with another worker for the head, choose again
+        }
+    }
+
+    // critical heads first while the reservation allows, then the share least served for its weight
+    private static boolean isBetter(final TheChunkSystem.Share share, final int priority, final boolean critical,
+                                    final TheChunkSystem.Share best, final int bestPriority, final boolean bestCritical) {
+        if (critical != bestCritical) {
+            return critical;
+        }
+        if (critical && priority != bestPriority) {
+            return priority < bestPriority;
+        }
+        return share.virtualTime.get() < best.virtualTime.get();
+    }
+
+    @Override
+    public boolean hasPendingTasks() {
+        if (super.hasPendingTasks()) return true;
+        // workers start polling before the shares are set up
+        if (this.sharedShare == null) return false;
+        for (final TheChunkSystem.Share share : this.shares.getArray()) {
+            if (share.queue.size() != 0) return true;
+        }
+        return false;
+    }
+
+    public int queuedTasks() {
+        int count = this.globalWorkQueue.size();
+        for (final TheChunkSystem.Share share : this.shares.getArray()) {
+            count += share.queue.size();
+        }
+        return count;
+    }
+
+    public int queuedTasks(final int priority) {
+        int count = this.globalWorkQueue.size(priority);
+        for (final TheChunkSystem.Share share : this.shares.getArray()) {
+            count += share.queue.size(priority);
+        }
+        return count;
+    }
+
+    private boolean isCriticalShareAvailable() {
+        final long window = this.windowNanos.get();
+        return window == 0L || this.criticalWindowNanos.get() * 100L < window * this.reservedCriticalShare;
+    }
+
+    private void chargeWindow(final long nanos, final boolean critical) {
+        final long now = System.nanoTime();
+        final long start = this.criticalWindowStart.get();
+        if (now - start >= CRITICAL_WINDOW_NANOS && this.criticalWindowStart.compareAndSet(start, now)) {
+            this.windowNanos.set(0L);
+            this.criticalWindowNanos.set(0L);
+        }
+        this.windowNanos.addAndGet(nanos);
+        if (critical) {
+            this.criticalWindowNanos.addAndGet(nanos);
+        }
+    }
+
     public TheChunkSystem.ExecutorGroup createExecutorGroup() {
         synchronized (this) {
             if (this.shutdown) {
@@ -134,6 +314,126 @@ public class TheChunkSystem extends ExecutorManager {
         }
     }
 
+    public final class Share {
+        private final String name;
+        private final int weight;
+        private final DynamicPriorityQueue<Task> queue;
+        // the worker time this share received, divided by its weight
+        private final AtomicLong virtualTime = new AtomicLong();
+        private final AtomicLong waitNanos = new AtomicLong();
+        private final AtomicLong busyNanos = new AtomicLong();
+        private final AtomicLong executedTasks = new AtomicLong();
+
+        private Share(final String name, final int weight, final DynamicPriorityQueue<Task> queue) {
+            this.name = name;
+            this.weight = weight;
+            this.queue = queue;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public int getWeight() {
+            return this.weight;
+        }
+
+        public int getQueuedTasks() {
+            return this.queue.size();
+        }
+
+        public long getWaitNanos() {
+            return this.waitNanos.get();
+        }
+
+        public long getBusyNanos() {
+            return this.busyNanos.get();
+        }
+
+        public long getExecutedTasks() {
+            return this.executedTasks.get();
+        }
+
+        private int headPriority() {
+            if (this.queue.size() == 0) return -1;
+            for (int priority = 0; priority < DynamicPriorityQueue.MAX_PRIORITY; priority++) {
+                if (this.queue.size(priority) != 0) return priority;
+            }
+            return -1;
+        }
+
+        private Task enqueue(final DynamicPriorityQueue<Task> queue, final Runnable runnable, final int priority) {
+            if (queue == this.queue && this.queue.size() == 0) {
+                // an idle share starts at the current virtual time, it can't bank credit while it had nothing to do
+                final long clock = TheChunkSystem.this.virtualClock;
+                this.virtualTime.accumulateAndGet(clock, Math::max);
+            }
+            final TheChunkSystem.Share.ShareTask task = new TheChunkSystem.Share.ShareTask(queue, runnable, priority);
+            queue.enqueue(task, priority);
+            return task;
+        }
+
+        private final class ShareTask implements Task {
+            private final DynamicPriorityQueue<Task> owner;
+            private final Runnable wrapped;
+            private volatile int priority;
+            private final long queuedAt = System.nanoTime();
+            private final DynamicPriorityQueue.Node<Task> queueNode = new DynamicPriorityQueue.Node<>(this);
+
+            private ShareTask(final DynamicPriorityQueue<Task> owner, final Runnable wrapped, final int priority) {
+                this.owner = owner;
+                this.wrapped = wrapped;
+                this.priority = priority;
+            }
+
+            private boolean changePriority(final int priority) {
+                // the priority is also what the task is queued with again after waiting for locks
+                this.priority = priority;
+                return this.owner.changePriority(this, priority);
+            }
+
+            private void cancel() {
+                this.owner.remove(this);
+            }
+
+            @Override
+            public void run(final Runnable releaseLocks) {
+                final long start = System.nanoTime();
+                TheChunkSystem.Share.this.waitNanos.addAndGet(start - this.queuedAt);
+                try {
+                    this.wrapped.run();
+                } finally {
+                    releaseLocks.run();
+                    final long elapsed = System.nanoTime() - start;
+                    TheChunkSystem.Share.this.busyNanos.addAndGet(elapsed);
+                    TheChunkSystem.Share.this.executedTasks.incrementAndGet();
+                    TheChunkSystem.Share.this.virtualTime.addAndGet(elapsed * VIRTUAL_TIME_SCALE / TheChunkSystem.Share.this.weight);
+                    TheChunkSystem.this.chargeWindow(elapsed, this.priority <= CRITICAL_PRIORITY);
+                }
+            }
+
+            @Override
+            public void propagateException(final Throwable throwable) {
+                TheChunkSystem.this.LOGGER.error("Exception thrown by chunk system task of {}", TheChunkSystem.Share.this.name, throwable);
+            }
+
+            @Override
+            public LockToken[] lockTokens() {
+                return NO_LOCKS;
+            }
+
+            @Override
+            public int priority() {
+                return this.priority;
+            }
+
+            @Override
+            public DynamicPriorityQueue.Node<Task> queueNode() {
+                return this.queueNode;
+            }
+        }
+    }
+
     public final class ExecutorGroup {
 
         private final AtomicLong subOrderGenerator = new AtomicLong();
@@ -151,12 +451,19 @@ public class TheChunkSystem extends ExecutorManager {
         }
 
         public TheChunkSystem.ExecutorGroup.@NotNull ThreadPoolExecutor createExecutor() {
+            return this.createExecutor(TheChunkSystem.this.sharedShare);
+        }
+
+        /**
+         * Creates an executor whose tasks are queued into the given share of the workers
+         */
+        public TheChunkSystem.ExecutorGroup.@NotNull ThreadPoolExecutor createExecutor(final TheChunkSystem.Share share) {
             synchronized (TheChunkSystem.this) {
                 if (TheChunkSystem.this.shutdown) {
                     throw new IllegalStateException("Queue is shutdown: " + TheChunkSystem.this);
                 }
 
-                final TheChunkSystem.ExecutorGroup.ThreadPoolExecutor ret = new TheChunkSystem.ExecutorGroup.ThreadPoolExecutor();
+                final TheChunkSystem.ExecutorGroup.ThreadPoolExecutor ret = new TheChunkSystem.ExecutorGroup.ThreadPoolExecutor(share);
 
                 this.executors.add(ret);
 
@@ -166,10 +473,11 @@ public class TheChunkSystem extends ExecutorManager {
 
         public final class ThreadPoolExecutor implements PrioritisedExecutor {
             // only use this field for building tasks. nothing else
-            private final ChunkSystemTaskQueue taskBuilder = new ChunkSystemTaskQueue(TheChunkSystem.this);
+            private final ChunkSystemTaskQueue taskBuilder;
             private volatile boolean halt;
 
-            private ThreadPoolExecutor() {
+            private ThreadPoolExecutor(final TheChunkSystem.Share share) {
+                this.taskBuilder = new ChunkSystemTaskQueue(TheChunkSystem.this, share);
             }
 
             private TheChunkSystem.ExecutorGroup getGroup() {
@@ -201,13 +509,14 @@ public class TheChunkSystem extends ExecutorManager {
                         return true;
                     }
 
-                    return !TheChunkSystem.this.globalWorkQueue.isEmpty();
+                    // tasks wait in the queue of their world's share as well as the global queue
+                    return TheChunkSystem.this.hasPendingTasks();
                 }
             }
 
             @Override
             public boolean shutdown() {
-                if (TheChunkSystem.this.globalWorkQueue.isEmpty()) {
+                if (!TheChunkSystem.this.hasPendingTasks()) {
                     TheChunkSystem.ExecutorGroup.this.executors.remove(this);
                 }
 
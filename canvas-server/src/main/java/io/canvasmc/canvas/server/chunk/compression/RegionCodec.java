@@ -0,0 +1,33 @@
+package io.canvasmc.canvas.server.chunk.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A compression codec for chunks stored in region files.
+ * <p>
+ * Every chunk in a region file stores the id of the codec it was written with, so readers pick the
+ * codec per chunk and files can hold chunks of mixed codecs. Ids 1 to 4 and 127 are taken by vanilla,
+ * custom codecs must use another id below 127 and keep it stable, or chunks written with it become unreadable.
+ * <p>
+ * Codecs are registered through {@link RegionCodecs#register(RegionCodec)}, or discovered with
+ * {@link java.util.ServiceLoader} when the server starts.
+ */
+public interface RegionCodec {
+
+    /**
+     * @return the name used to select this codec in the config
+     */
+    @NotNull String name();
+
+    /**
+     * @return the id written alongside every chunk compressed with this codec
+     */
+    int id();
+
+    @NotNull InputStream decode(@NotNull InputStream in) throws IOException;
+
+    @NotNull OutputStream encode(@NotNull OutputStream out) throws IOException;
+}
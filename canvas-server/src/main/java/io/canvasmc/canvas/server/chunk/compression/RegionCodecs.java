@@ -0,0 +1,239 @@
+package io.canvasmc.canvas.server.chunk.compression;
+
+import io.canvasmc.canvas.Config;
+import io.canvasmc.canvas.metrics.CanvasMetrics;
+import io.canvasmc.canvas.metrics.OpenMetricsWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import net.jpountz.lz4.LZ4BlockInputStream;
+import net.jpountz.lz4.LZ4BlockOutputStream;
+import net.minecraft.world.level.chunk.storage.RegionFileVersion;
+import net.minecraft.world.level.chunk.storage.RegionStorageInfo;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+public final class RegionCodecs {
+    private static final Logger LOGGER = LogManager.getLogger("Canvas Region Codecs");
+    private static final Map<String, RegionCodec> BY_NAME = new ConcurrentHashMap<>();
+    private static final Map<Integer, RegionCodec> BY_ID = new ConcurrentHashMap<>();
+    private static final Map<RegionCodec, CodecBinding> BINDINGS = new ConcurrentHashMap<>();
+
+    public static final RegionCodec DEFLATE = new RegionCodec() {
+        @Override
+        public @NotNull String name() {
+            return "deflate";
+        }
+
+        @Override
+        public int id() {
+            return 2;
+        }
+
+        @Override
+        public @NotNull InputStream decode(@NotNull InputStream in) {
+            return new InflaterInputStream(in);
+        }
+
+        @Override
+        public @NotNull OutputStream encode(@NotNull OutputStream out) {
+            return new LeveledDeflaterOutputStream(out, Config.INSTANCE.chunks.regionCompression.deflateLevel);
+        }
+    };
+    public static final RegionCodec LZ4 = new RegionCodec() {
+        @Override
+        public @NotNull String name() {
+            return "lz4";
+        }
+
+        @Override
+        public int id() {
+            return 4;
+        }
+
+        @Override
+        public @NotNull InputStream decode(@NotNull InputStream in) {
+            return new LZ4BlockInputStream(in);
+        }
+
+        @Override
+        public @NotNull OutputStream encode(@NotNull OutputStream out) {
+            return new LZ4BlockOutputStream(out);
+        }
+    };
+    public static final RegionCodec NONE = new RegionCodec() {
+        @Override
+        public @NotNull String name() {
+            return "none";
+        }
+
+        @Override
+        public int id() {
+            return 3;
+        }
+
+        @Override
+        public @NotNull InputStream decode(@NotNull InputStream in) {
+            return in;
+        }
+
+        @Override
+        public @NotNull OutputStream encode(@NotNull OutputStream out) {
+            return out;
+        }
+    };
+
+    static {
+        register(DEFLATE);
+        register(LZ4);
+        register(NONE);
+        for (final RegionCodec codec : ServiceLoader.load(RegionCodec.class, RegionCodecs.class.getClassLoader())) {
+            register(codec);
+        }
+        CanvasMetrics.REGISTRY.register(RegionCodecs::collect);
+    }
+
+    private RegionCodecs() {
+    }
+
+    public static void register(@NotNull RegionCodec codec) {
+        final String name = codec.name().toLowerCase(Locale.ROOT);
+        final RegionCodec existingId = BY_ID.get(codec.id());
+        if (existingId != null && existingId != codec) {
+            throw new IllegalArgumentException("Region codec id " + codec.id() + " is already used by " + existingId.name());
+        }
+        if (BY_NAME.putIfAbsent(name, codec) != null) {
+            throw new IllegalArgumentException("Region codec " + name + " is already registered");
+        }
+        BY_ID.put(codec.id(), codec);
+        final CodecBinding binding = bind(codec);
+        if (RegionFileVersion.fromId(codec.id()) == null) {
+            // unknown to vanilla, make chunks written with it readable
+            RegionFileVersion.register(binding.version);
+        }
+    }
+
+    public static @Nullable RegionCodec byName(@NotNull String name) {
+        return BY_NAME.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Resolves the codec chunks of the given region storage are written with, from the per-world
+     * overrides or the default codec in the config
+     */
+    public static @NotNull RegionCodec forStorage(@NotNull RegionStorageInfo info) {
+        final Config.Chunks.RegionCompression config = Config.INSTANCE.chunks.regionCompression;
+        String name = config.codec;
+        for (final String entry : config.worldCodecs) {
+            final int split = entry.lastIndexOf(':');
+            if (split > 0 && entry.substring(0, split).equals(info.level())) {
+                name = entry.substring(split + 1);
+                break;
+            }
+        }
+        final RegionCodec codec = byName(name.trim());
+        if (codec == null) {
+            LOGGER.warn("Unknown region codec '{}' for world {}, falling back to deflate", name, info.level());
+            return DEFLATE;
+        }
+        return codec;
+    }
+
+    public static @NotNull RegionFileVersion versionFor(@NotNull RegionStorageInfo info) {
+        return bind(forStorage(info)).version;
+    }
+
+    private static @NotNull CodecBinding bind(@NotNull RegionCodec codec) {
+        return BINDINGS.computeIfAbsent(codec, CodecBinding::new);
+    }
+
+    private static void collect(@NotNull OpenMetricsWriter writer) {
+        writer.family("canvas_region_codec_raw_bytes", "counter", "Uncompressed chunk bytes written through each region codec");
+        BINDINGS.forEach((codec, binding) -> writer.sample("canvas_region_codec_raw_bytes_total", binding.rawBytes.sum(), "codec", codec.name()));
+        writer.family("canvas_region_codec_compressed_bytes", "counter", "Compressed chunk bytes produced by each region codec");
+        BINDINGS.forEach((codec, binding) -> writer.sample("canvas_region_codec_compressed_bytes_total", binding.compressedBytes.sum(), "codec", codec.name()));
+    }
+
+    /**
+     * Gets the compressed to uncompressed size ratio of everything written with the codec so far
+     *
+     * @return the ratio, or 0 if nothing was written yet
+     */
+    public static double getRatio(@NotNull RegionCodec codec) {
+        final CodecBinding binding = BINDINGS.get(codec);
+        if (binding == null) return 0.0D;
+        final long raw = binding.rawBytes.sum();
+        return raw == 0L ? 0.0D : (double) binding.compressedBytes.sum() / (double) raw;
+    }
+
+    // the vanilla version the region files write with, counting bytes on both sides of the codec
+    private static final class CodecBinding {
+        private final LongAdder rawBytes = new LongAdder();
+        private final LongAdder compressedBytes = new LongAdder();
+        private final RegionFileVersion version;
+
+        private CodecBinding(@NotNull RegionCodec codec) {
+            this.version = new RegionFileVersion(codec.id(), codec.name(), codec::decode,
+                (out) -> new CountingOutputStream(codec.encode(new CountingOutputStream(out, this.compressedBytes)), this.rawBytes));
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private final LongAdder counter;
+        private long count;
+
+        private CountingOutputStream(OutputStream out, LongAdder counter) {
+            super(out);
+            this.counter = counter;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.out.write(b);
+            this.count++;
+        }
+
+        @Override
+        public void write(byte @NotNull [] b, int off, int len) throws IOException {
+            this.out.write(b, off, len);
+            this.count += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                this.counter.add(this.count);
+                this.count = 0L;
+            }
+        }
+    }
+
+    // DeflaterOutputStream only releases the deflater it created itself
+    private static final class LeveledDeflaterOutputStream extends DeflaterOutputStream {
+        private LeveledDeflaterOutputStream(OutputStream out, int level) {
+            super(out, new Deflater(level));
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                this.def.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package io.canvasmc.canvas.server.chunk.compression;
+
+import ca.spottedleaf.concurrentutil.lock.ReentrantAreaLock;
+import ca.spottedleaf.concurrentutil.util.Priority;
+import ca.spottedleaf.moonrise.common.util.MoonriseCommon;
+import ca.spottedleaf.moonrise.patches.chunk_system.io.MoonriseRegionFileIO;
+import ca.spottedleaf.moonrise.patches.chunk_system.scheduling.ChunkHolderManager;
+import io.canvasmc.canvas.Config;
+import io.canvasmc.canvas.server.chunk.TheChunkSystem;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import net.minecraft.Util;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.chunk.storage.IOWorker;
+import net.minecraft.world.level.chunk.storage.RegionStorageInfo;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+// converts the existing chunks of a world to the codec currently selected for it, by reading every
+// chunk through the chunk system io and saving it back. chunks loaded by the server are skipped, they
+// are converted whenever they are saved anyway. a chunk that was loaded at any point between the read
+// and the save is skipped too, the save happens under the chunk's ticket lock, which the chunk system
+// holds to create and remove chunk holders, so it can never replace data the server saved in between.
+// the conversion yields whenever the chunk system or the io workers have work queued, so it only ever
+// uses otherwise idle io time
+public final class RegionRecompressor {
+    private static final Logger LOGGER = LogManager.getLogger("Canvas Region Recompressor");
+    private static final Pattern REGION_NAME = Pattern.compile("^r\\.(-?\\d+)\\.(-?\\d+)\\.mca$");
+    private static final long BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(50L);
+    private static final Map<ServerLevel, RegionRecompressor> RUNNING = new ConcurrentHashMap<>();
+
+    private final ServerLevel world;
+    private final RegionCodec codec;
+    private final List<Path> regions;
+    private final AtomicInteger regionsDone = new AtomicInteger();
+    private final AtomicLong chunksConverted = new AtomicLong();
+    private final AtomicLong chunksSkipped = new AtomicLong();
+    private final long startNanos = System.nanoTime();
+    private long lastConversionNanos = this.startNanos;
+    // the chunk being converted, and whether its holder was removed since the conversion started
+    private volatile long watching = Long.MIN_VALUE;
+    private volatile boolean holderRemoved;
+    private volatile boolean stopped;
+
+    private RegionRecompressor(ServerLevel world, RegionCodec codec, List<Path> regions) {
+        this.world = world;
+        this.codec = codec;
+        this.regions = regions;
+    }
+
+    public static @Nullable RegionRecompressor start(@NotNull ServerLevel world) throws IOException {
+        final Path folder = world.convertable.getDimensionPath(world.dimension()).resolve("region");
+        final List<Path> regions = new ArrayList<>();
+        if (Files.isDirectory(folder)) {
+            try (Stream<Path> files = Files.list(folder)) {
+                files.filter((path) -> REGION_NAME.matcher(path.getFileName().toString()).matches()).forEach(regions::add);
+            }
+        }
+        final RegionCodec codec = RegionCodecs.forStorage(new RegionStorageInfo(world.convertable.getLevelId(), world.dimension(), "chunk"));
+        final RegionRecompressor recompressor = new RegionRecompressor(world, codec, regions);
+        if (RUNNING.putIfAbsent(world, recompressor) != null) {
+            return null;
+        }
+        final Thread thread = new Thread(recompressor::run, "Canvas Region Recompressor - " + world.convertable.getLevelId());
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.setUncaughtExceptionHandler(Util::onThreadException);
+        thread.start();
+        return recompressor;
+    }
+
+    public static @Nullable RegionRecompressor get(@NotNull ServerLevel world) {
+        return RUNNING.get(world);
+    }
+
+    public void stop() {
+        this.stopped = true;
+    }
+
+    /**
+     * Called by the chunk holder manager under the chunk's ticket lock whenever a chunk holder is removed
+     */
+    public static void onChunkHolderRemoved(@NotNull ServerLevel world, int chunkX, int chunkZ) {
+        final RegionRecompressor recompressor = RUNNING.get(world);
+        if (recompressor != null && recompressor.watching == ChunkPos.asLong(chunkX, chunkZ)) {
+            recompressor.holderRemoved = true;
+        }
+    }
+
+    private void run() {
+        LOGGER.info("Recompressing {} region files of {} with {}", this.regions.size(), this.world.convertable.getLevelId(), this.codec.name());
+        try {
+            for (final Path region : this.regions) {
+                final Matcher matcher = REGION_NAME.matcher(region.getFileName().toString());
+                if (!matcher.matches()) continue;
+                final int regionX = Integer.parseInt(matcher.group(1));
+                final int regionZ = Integer.parseInt(matcher.group(2));
+                for (int i = 0; i < 32 * 32; i++) {
+                    if (this.stopped) return;
+                    this.convert((regionX << 5) | (i & 31), (regionZ << 5) | (i >>> 5));
+                }
+                this.regionsDone.incrementAndGet();
+            }
+            LOGGER.info("Finished recompressing {}: {}", this.world.convertable.getLevelId(), this.status());
+        } finally {
+            RUNNING.remove(this.world, this);
+        }
+    }
+
+    private void convert(int chunkX, int chunkZ) {
+        this.throttle();
+        final ChunkHolderManager holderManager = this.world.moonrise$getChunkTaskScheduler().chunkHolderManager;
+        ReentrantAreaLock.Node ticketLock = holderManager.ticketLockArea.lock(chunkX, chunkZ);
+        try {
+            if (holderManager.getChunkHolder(chunkX, chunkZ) != null) {
+                this.chunksSkipped.incrementAndGet();
+                return;
+            }
+            // a holder created from here on is either still there when saving, or was removed and noticed
+            this.holderRemoved = false;
+            this.watching = ChunkPos.asLong(chunkX, chunkZ);
+        } finally {
+            holderManager.ticketLockArea.unlock(ticketLock);
+        }
+        try {
+            final CompoundTag data = MoonriseRegionFileIO.loadData(this.world, chunkX, chunkZ, MoonriseRegionFileIO.RegionFileType.CHUNK_DATA, Priority.LOWEST);
+            if (data == null) return;
+            ticketLock = holderManager.ticketLockArea.lock(chunkX, chunkZ);
+            try {
+                // the chunk was loaded while we read it, and may have been saved with newer data, leave it to the server
+                if (this.holderRemoved || holderManager.getChunkHolder(chunkX, chunkZ) != null) {
+                    this.chunksSkipped.incrementAndGet();
+                    return;
+                }
+                MoonriseRegionFileIO.scheduleSave(this.world, chunkX, chunkZ, data, MoonriseRegionFileIO.RegionFileType.CHUNK_DATA);
+            } finally {
+                holderManager.ticketLockArea.unlock(ticketLock);
+            }
+            this.lastConversionNanos = System.nanoTime();
+            this.chunksConverted.incrementAndGet();
+        } catch (IOException exception) {
+            LOGGER.warn("Failed to recompress chunk ({}, {}) in {}", chunkX, chunkZ, this.world.convertable.getLevelId(), exception);
+        } finally {
+            this.watching = Long.MIN_VALUE;
+        }
+    }
+
+    private void throttle() {
+        // back off while anyone else needs the chunk system or io workers
+        while (!this.stopped && this.isBusy()) {
+            LockSupport.parkNanos(BACKOFF_NANOS);
+        }
+        // then stay under the configured rate, paced from the last conversion so a stall is never made up for in a burst
+        final long interval = TimeUnit.SECONDS.toNanos(1L) / Config.INSTANCE.chunks.regionCompression.recompressChunksPerSecond;
+        final long wait = this.lastConversionNanos + interval - System.nanoTime();
+        if (wait > 0L) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+
+    private boolean isBusy() {
+        if (IOWorker.getTotalPendingWrites() > 0) return true;
+        final TheChunkSystem chunkSystem = MoonriseCommon.WORKER_POOL;
+        if (chunkSystem == null) return false;
+        return chunkSystem.hasPendingTasks();
+    }
+
+    public @NotNull String status() {
+        final double seconds = Math.max(1.0E-3D, (System.nanoTime() - this.startNanos) * 1.0E-9D);
+        final long converted = this.chunksConverted.get();
+        return String.format(
+            "%d/%d regions, %d chunks converted (%d loaded skipped), %.1f chunks/s, %s ratio %.3f",
+            this.regionsDone.get(), this.regions.size(), converted, this.chunksSkipped.get(), converted / seconds,
+            this.codec.name(), RegionCodecs.getRatio(this.codec)
+        );
+    }
+}
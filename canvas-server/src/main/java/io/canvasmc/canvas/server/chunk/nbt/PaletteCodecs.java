@@ -0,0 +1,241 @@
+package io.canvasmc.canvas.server.chunk.nbt;
+
+import com.mojang.datafixers.util.Pair;
+import com.mojang.serialization.Codec;
+import com.mojang.serialization.DataResult;
+import com.mojang.serialization.DynamicOps;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import net.minecraft.core.Holder;
+import net.minecraft.core.IdMap;
+import net.minecraft.core.Registry;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.EndTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.LongArrayTag;
+import net.minecraft.nbt.NbtOps;
+import net.minecraft.nbt.NbtUtils;
+import net.minecraft.nbt.StringTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.biome.Biome;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.block.state.properties.Property;
+import net.minecraft.world.level.chunk.PalettedContainer;
+import net.minecraft.world.level.chunk.PalettedContainerRO;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+// the codecs of the block state and biome containers of chunk sections. for nbt, which is what chunks are stored as,
+// a palette is decoded straight into its container and encoded straight from it, instead of going through the
+// generic record codec and a dynamic for every palette entry. anything else, and any container the direct path
+// does not accept, like an unknown block or biome, goes to the vanilla codec, which also reports what is wrong
+public final class PaletteCodecs {
+    private static final String PALETTE = "palette";
+    private static final String DATA = "data";
+
+    private PaletteCodecs() {
+    }
+
+    public static @NotNull Codec<PalettedContainer<BlockState>> blockStates(@NotNull Codec<PalettedContainer<BlockState>> delegate) {
+        return new Direct<>(BlockStates.INSTANCE, delegate);
+    }
+
+    public static @NotNull Codec<PalettedContainerRO<Holder<Biome>>> biomes(@NotNull Registry<Biome> registry, @NotNull Codec<PalettedContainerRO<Holder<Biome>>> delegate) {
+        return new Direct<>(new Biomes(registry), delegate);
+    }
+
+    /**
+     * Builds the container of a palette and its packed values
+     *
+     * @return the container, or null if vanilla would not read it as is
+     */
+    public static <T> @Nullable PalettedContainer<T> unpack(@NotNull Entries<T> entries, @NotNull List<T> palette, long @Nullable [] data) {
+        if (palette.isEmpty()) {
+            return null;
+        }
+        return PalettedContainer.canvas$unpack(entries.registry(), entries.defaultValue(), entries.strategy(), palette, data);
+    }
+
+    public static <T> @Nullable PalettedContainer<T> unpack(@NotNull Entries<T> entries, @NotNull CompoundTag tag) {
+        final Optional<ListTag> palette = tag.getList(PALETTE);
+        if (palette.isEmpty()) {
+            return null;
+        }
+        final List<T> values = new ArrayList<>(palette.get().size());
+        for (final Tag entry : palette.get()) {
+            final T value = entries.decode(entry);
+            if (value == null) {
+                return null;
+            }
+            values.add(value);
+        }
+        final Tag data = tag.get(DATA);
+        if (data != null && !(data instanceof LongArrayTag)) {
+            return null;
+        }
+        return unpack(entries, values, data == null ? null : ((LongArrayTag) data).getAsLongArray());
+    }
+
+    public static <T> @NotNull CompoundTag pack(@NotNull Entries<T> entries, @NotNull PalettedContainerRO<T> container) {
+        final PalettedContainerRO.PackedData<T> packed = container.pack(entries.registry(), entries.strategy());
+        final ListTag palette = new ListTag();
+        for (final T value : packed.paletteEntries()) {
+            palette.add(entries.encode(value));
+        }
+        final CompoundTag tag = new CompoundTag();
+        tag.put(PALETTE, palette);
+        packed.storage().ifPresent(storage -> tag.put(DATA, new LongArrayTag(storage.toArray())));
+        return tag;
+    }
+
+    // how the values of a container are held in its palette
+    public interface Entries<T> {
+        @NotNull IdMap<T> registry();
+
+        @NotNull T defaultValue();
+
+        PalettedContainer.@NotNull Strategy strategy();
+
+        /**
+         * @return the value of the palette entry, or null if it is not one vanilla reads without complaint
+         */
+        @Nullable T decode(@NotNull Tag entry);
+
+        @NotNull Tag encode(@NotNull T value);
+    }
+
+    public static final class BlockStates implements Entries<BlockState> {
+        public static final BlockStates INSTANCE = new BlockStates();
+
+        private BlockStates() {
+        }
+
+        @Override
+        public @NotNull IdMap<BlockState> registry() {
+            return Block.BLOCK_STATE_REGISTRY;
+        }
+
+        @Override
+        public @NotNull BlockState defaultValue() {
+            return Blocks.AIR.defaultBlockState();
+        }
+
+        @Override
+        public PalettedContainer.@NotNull Strategy strategy() {
+            return PalettedContainer.Strategy.SECTION_STATES;
+        }
+
+        @Override
+        public @Nullable BlockState decode(@NotNull Tag entry) {
+            if (!(entry instanceof CompoundTag tag) || !(tag.get("Name") instanceof StringTag name)) {
+                return null;
+            }
+            final ResourceLocation id = ResourceLocation.tryParse(name.asString().orElse(""));
+            final Block block = id == null ? null : BuiltInRegistries.BLOCK.getOptional(id).orElse(null);
+            if (block == null) {
+                return null;
+            }
+            BlockState state = block.defaultBlockState();
+            final Tag properties = tag.get("Properties");
+            if (properties == null) {
+                return state;
+            }
+            if (!(properties instanceof CompoundTag values)) {
+                return null;
+            }
+            for (final String key : values.keySet()) {
+                final Property<?> property = block.getStateDefinition().getProperty(key);
+                if (property == null || !(values.get(key) instanceof StringTag value)) {
+                    return null;
+                }
+                state = with(state, property, value.asString().orElse(""));
+                if (state == null) {
+                    return null;
+                }
+            }
+            return state;
+        }
+
+        private static <V extends Comparable<V>> @Nullable BlockState with(@NotNull BlockState state, @NotNull Property<V> property, @NotNull String value) {
+            final Optional<V> parsed = property.getValue(value);
+            return parsed.isEmpty() ? null : state.setValue(property, parsed.get());
+        }
+
+        @Override
+        public @NotNull Tag encode(@NotNull BlockState value) {
+            return NbtUtils.writeBlockState(value);
+        }
+    }
+
+    public static final class Biomes implements Entries<Holder<Biome>> {
+        private final Registry<Biome> registry;
+        private final IdMap<Holder<Biome>> ids;
+        private final Holder<Biome> defaultValue;
+
+        public Biomes(@NotNull Registry<Biome> registry) {
+            this.registry = registry;
+            this.ids = registry.asHolderIdMap();
+            this.defaultValue = registry.getOrThrow(net.minecraft.world.level.biome.Biomes.PLAINS);
+        }
+
+        @Override
+        public @NotNull IdMap<Holder<Biome>> registry() {
+            return this.ids;
+        }
+
+        @Override
+        public @NotNull Holder<Biome> defaultValue() {
+            return this.defaultValue;
+        }
+
+        @Override
+        public PalettedContainer.@NotNull Strategy strategy() {
+            return PalettedContainer.Strategy.SECTION_BIOMES;
+        }
+
+        @Override
+        public @Nullable Holder<Biome> decode(@NotNull Tag entry) {
+            return entry instanceof StringTag name ? this.decode(name.asString().orElse("")) : null;
+        }
+
+        public @Nullable Holder<Biome> decode(@NotNull String name) {
+            final ResourceLocation id = ResourceLocation.tryParse(name);
+            return id == null ? null : this.registry.get(ResourceKey.create(this.registry.key(), id)).orElse(null);
+        }
+
+        @Override
+        public @NotNull Tag encode(@NotNull Holder<Biome> value) {
+            return StringTag.valueOf(value.unwrapKey().orElseThrow().location().toString());
+        }
+    }
+
+    private record Direct<T, C extends PalettedContainerRO<T>>(Entries<T> entries, Codec<C> delegate) implements Codec<C> {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <O> DataResult<Pair<C, O>> decode(DynamicOps<O> ops, O input) {
+            if (ops == NbtOps.INSTANCE && input instanceof CompoundTag tag) {
+                final PalettedContainer<T> container = unpack(this.entries, tag);
+                if (container != null) {
+                    return DataResult.success(Pair.of((C) container, ops.empty()));
+                }
+            }
+            return this.delegate.decode(ops, input);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <O> DataResult<O> encode(C input, DynamicOps<O> ops, O prefix) {
+            if (ops == NbtOps.INSTANCE && prefix instanceof EndTag) {
+                return DataResult.success((O) pack(this.entries, input));
+            }
+            return this.delegate.encode(input, ops, prefix);
+        }
+    }
+}
@@ -104,6 +104,12 @@ public abstract class MinecraftServerWorld extends TickScheduler.FullTick<Minecr
         return (ServerLevel) this;
     }
 
+    @Override
+    protected ServerRegions.@Nullable WorldTickData getProfiledTickData() {
+        // when regionized, chunks and entities are ticked by the regions instead
+        return this.server.isRegionized() ? null : this.level().levelTickData;
+    }
+
     @Override
     public @NotNull World getWorld() {
         return this.level().getWorld();
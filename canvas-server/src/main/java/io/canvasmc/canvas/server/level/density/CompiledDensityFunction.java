@@ -0,0 +1,136 @@
+package io.canvasmc.canvas.server.level.density;
+
+import java.util.Arrays;
+import net.minecraft.util.KeyDispatchDataCodec;
+import net.minecraft.world.level.levelgen.DensityFunction;
+import net.minecraft.world.level.levelgen.DensityFunctions;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The base of every density function generated by {@link DensityFunctionCompiler}.
+ * <p>
+ * The generated subclass implements {@link #compute(FunctionContext)} and {@link #computeNode(int, FunctionContext)}
+ * as straight-line code over the tree. Filling arrays walks the same tree here, calling leaves and
+ * per-point arguments exactly the way the interpreted functions do, so batch implementations of leaves
+ * are still used and the results are the same as the interpreter's, bit for bit.
+ */
+public abstract class CompiledDensityFunction implements DensityFunction {
+    protected final DensityFunction original;
+    protected final Node root;
+    protected final DensityFunction[] leaves;
+    protected final DensityFunctions.PureTransformer[] transformers;
+
+    protected CompiledDensityFunction(DensityFunction original, Node root, DensityFunction[] leaves, DensityFunctions.PureTransformer[] transformers) {
+        this.original = original;
+        this.root = root;
+        this.leaves = leaves;
+        this.transformers = transformers;
+    }
+
+    /**
+     * Computes a single node of the compiled tree, by the id it was assigned when compiling
+     */
+    protected abstract double computeNode(int id, FunctionContext context);
+
+    public @NotNull DensityFunction original() {
+        return this.original;
+    }
+
+    @Override
+    public void fillArray(double @NotNull [] array, @NotNull ContextProvider contextProvider) {
+        this.fill(this.root, array, contextProvider);
+    }
+
+    private void fill(Node node, double[] array, ContextProvider contextProvider) {
+        switch (node) {
+            case Node.Constant constant -> Arrays.fill(array, constant.value());
+            case Node.Leaf leaf -> this.leaves[leaf.slot()].fillArray(array, contextProvider);
+            case Node.Transform transform -> {
+                this.fill(transform.input(), array, contextProvider);
+                final DensityFunctions.PureTransformer transformer = this.transformers[transform.slot()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = transformer.transform(array[i]);
+                }
+            }
+            case Node.Ap2 ap2 -> {
+                this.fill(ap2.argument1(), array, contextProvider);
+                final int argument2 = ap2.argument2().id();
+                switch (ap2.type()) {
+                    case ADD -> {
+                        final double[] other = new double[array.length];
+                        this.fill(ap2.argument2(), other, contextProvider);
+                        for (int i = 0; i < array.length; i++) {
+                            array[i] = array[i] + other[i];
+                        }
+                    }
+                    case MUL -> {
+                        for (int i = 0; i < array.length; i++) {
+                            final double value = array[i];
+                            array[i] = value == 0.0 ? 0.0 : value * this.computeNode(argument2, contextProvider.forIndex(i));
+                        }
+                    }
+                    case MIN -> {
+                        final double min = ap2.argument2Min();
+                        for (int i = 0; i < array.length; i++) {
+                            final double value = array[i];
+                            array[i] = value < min ? value : Math.min(value, this.computeNode(argument2, contextProvider.forIndex(i)));
+                        }
+                    }
+                    case MAX -> {
+                        final double max = ap2.argument2Max();
+                        for (int i = 0; i < array.length; i++) {
+                            final double value = array[i];
+                            array[i] = value > max ? value : Math.max(value, this.computeNode(argument2, contextProvider.forIndex(i)));
+                        }
+                    }
+                }
+            }
+            case Node.RangeChoice range -> {
+                this.fill(range.input(), array, contextProvider);
+                final int inRange = range.whenInRange().id();
+                final int outOfRange = range.whenOutOfRange().id();
+                for (int i = 0; i < array.length; i++) {
+                    final double value = array[i];
+                    array[i] = value >= range.minInclusive() && value < range.maxExclusive()
+                        ? this.computeNode(inRange, contextProvider.forIndex(i))
+                        : this.computeNode(outOfRange, contextProvider.forIndex(i));
+                }
+            }
+        }
+    }
+
+    @Override
+    public @NotNull DensityFunction mapAll(@NotNull Visitor visitor) {
+        return this.original.mapAll(visitor);
+    }
+
+    @Override
+    public double minValue() {
+        return this.original.minValue();
+    }
+
+    @Override
+    public double maxValue() {
+        return this.original.maxValue();
+    }
+
+    @Override
+    public @NotNull KeyDispatchDataCodec<? extends DensityFunction> codec() {
+        return this.original.codec();
+    }
+
+    // the shape of a compiled tree, every node has an id unique within its tree
+    public sealed interface Node {
+        int id();
+
+        record Constant(int id, double value) implements Node {}
+
+        record Leaf(int id, int slot) implements Node {}
+
+        record Transform(int id, int slot, Node input) implements Node {}
+
+        record Ap2(int id, DensityFunctions.TwoArgumentSimpleFunction.Type type, Node argument1, Node argument2, double argument2Min, double argument2Max) implements Node {}
+
+        record RangeChoice(int id, double minInclusive, double maxExclusive, Node input, Node whenInRange, Node whenOutOfRange) implements Node {}
+    }
+}
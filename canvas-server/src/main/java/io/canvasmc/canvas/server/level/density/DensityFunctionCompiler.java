@@ -0,0 +1,500 @@
+package io.canvasmc.canvas.server.level.density;
+
+import io.canvasmc.canvas.metrics.CanvasMetrics;
+import io.canvasmc.canvas.metrics.MetricsRegistry;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import net.minecraft.world.level.levelgen.DensityFunction;
+import net.minecraft.world.level.levelgen.DensityFunctions;
+import net.minecraft.world.level.levelgen.NoiseChunk;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+// compiles density function trees into a hidden class per tree shape. arithmetic, range choices and
+// pure transformers become straight-line code with one method per node, constant subtrees are folded,
+// and markers and holders are flattened. everything else, noise samplers and the caches of the noise
+// chunk included, stays a leaf that is called through its own compute and fillArray, so the batch
+// natives of the leaves keep being used. the generated code evaluates in exactly the order and with
+// exactly the operations the interpreter uses, so results are identical to it bit for bit
+public final class DensityFunctionCompiler implements Opcodes {
+    private static final Logger LOGGER = LogManager.getLogger("Canvas Density Compiler");
+    private static final int MAX_NODES = 4096;
+    private static final DensityFunction.SinglePointContext ORIGIN = new DensityFunction.SinglePointContext(0, 0, 0);
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType CONSTRUCTOR = MethodType.methodType(
+        void.class, DensityFunction.class, CompiledDensityFunction.Node.class, DensityFunction[].class, DensityFunctions.PureTransformer[].class
+    );
+    // compiled constructors by tree shape, empty if the shape failed to compile
+    private static final Map<String, Optional<MethodHandle>> CLASSES = new ConcurrentHashMap<>();
+    // the compiled fillers of noise chunk interpolators, by the position of the interpolator, one per router
+    private static final Map<Integer, List<Template>> TEMPLATES = new ConcurrentHashMap<>();
+    private static final MetricsRegistry.Counter FALLBACKS = CanvasMetrics.REGISTRY.counter(
+        "canvas_density_compiler_fallbacks", "Density functions left to the interpreter after failing to compile"
+    );
+
+    private static final String BASE = Type.getInternalName(CompiledDensityFunction.class);
+    private static final String GENERATED = BASE.substring(0, BASE.lastIndexOf('/') + 1) + "GeneratedDensityFunction";
+    private static final String FUNCTION = Type.getInternalName(DensityFunction.class);
+    private static final String TRANSFORMER = Type.getInternalName(DensityFunctions.PureTransformer.class);
+    private static final String FUNCTION_DESC = Type.getDescriptor(DensityFunction.class);
+    private static final String TRANSFORMER_DESC = Type.getDescriptor(DensityFunctions.PureTransformer.class);
+    private static final String CONTEXT_DESC = Type.getDescriptor(DensityFunction.FunctionContext.class);
+    private static final String NODE_DESC = "(" + CONTEXT_DESC + ")D";
+
+    static {
+        CanvasMetrics.REGISTRY.gauge("canvas_density_compiler_classes", "Density function shapes compiled to hidden classes", CLASSES::size);
+    }
+
+    private DensityFunctionCompiler() {
+    }
+
+    // replaces the noise fillers of the interpolators of a noise chunk, before the first slice is filled. the rest
+    // of the router the noise chunk wraps is left to the interpreter: above its interpolators, the final density of
+    // the vanilla settings is a multiply and a squeeze over the cell caches, which would stay leaves, so compiling it
+    // for every chunk would cost a tree walk and a shape lookup and leave no arithmetic worth generating.
+    // every noise chunk of a router wraps the same fillers, in the same order, only the leaves differ. so the first
+    // chunk of a router compiles them and leaves a template for each, and the chunks after it only match their
+    // fillers against the templates at the same position, collecting their leaves on the way
+    public static void compileInterpolators(@NotNull NoiseChunk noiseChunk) {
+        final List<NoiseChunk.NoiseInterpolator> interpolators = noiseChunk.interpolators;
+        for (int i = 0; i < interpolators.size(); i++) {
+            final NoiseChunk.NoiseInterpolator interpolator = interpolators.get(i);
+            if (!(interpolator.noiseFiller instanceof CompiledDensityFunction)) {
+                interpolator.noiseFiller = compileInterpolator(i, interpolator.noiseFiller);
+            }
+        }
+    }
+
+    private static @NotNull DensityFunction compileInterpolator(int index, @NotNull DensityFunction function) {
+        final List<Template> templates = TEMPLATES.computeIfAbsent(index, key -> new CopyOnWriteArrayList<>());
+        for (final Template template : templates) {
+            final DensityFunction[] leaves = new DensityFunction[template.leafClasses().length];
+            final DensityFunctions.PureTransformer[] transformers = new DensityFunctions.PureTransformer[template.transformerClasses().length];
+            if (template.matches(template.root(), function, leaves, transformers)) {
+                return template.instantiate(function, leaves, transformers);
+            }
+        }
+        final TreeBuilder tree = new TreeBuilder();
+        final CompiledDensityFunction.Node root;
+        try {
+            root = tree.build(function);
+        } catch (TreeBuilder.TooLargeException exception) {
+            FALLBACKS.inc();
+            return function;
+        }
+        final Template template = new Template(
+            root instanceof CompiledDensityFunction.Node.Leaf ? Optional.empty() : CLASSES.computeIfAbsent(tree.shape(root), key -> define(tree, root)),
+            root,
+            tree.leaves.stream().map(Object::getClass).toArray(Class<?>[]::new),
+            tree.transformers.stream().map(Object::getClass).toArray(Class<?>[]::new)
+        );
+        templates.add(template);
+        return template.instantiate(function, tree.leaves.toArray(DensityFunction[]::new), tree.transformers.toArray(DensityFunctions.PureTransformer[]::new));
+    }
+
+    /**
+     * Compiles a density function tree, or returns it unchanged if there is nothing to gain or it cannot be compiled
+     */
+    public static @NotNull DensityFunction compile(@NotNull DensityFunction function) {
+        final TreeBuilder tree = new TreeBuilder();
+        final CompiledDensityFunction.Node root;
+        try {
+            root = tree.build(function);
+        } catch (TreeBuilder.TooLargeException exception) {
+            FALLBACKS.inc();
+            return function;
+        }
+        if (root instanceof CompiledDensityFunction.Node.Leaf) {
+            return function;
+        }
+        final Optional<MethodHandle> constructor = CLASSES.computeIfAbsent(tree.shape(root), key -> define(tree, root));
+        return instantiate(constructor, function, root, tree.leaves.toArray(DensityFunction[]::new), tree.transformers.toArray(DensityFunctions.PureTransformer[]::new));
+    }
+
+    private static @NotNull DensityFunction instantiate(@NotNull Optional<MethodHandle> constructor, @NotNull DensityFunction function, CompiledDensityFunction.@NotNull Node root, DensityFunction @NotNull [] leaves, DensityFunctions.PureTransformer @NotNull [] transformers) {
+        if (constructor.isEmpty()) {
+            FALLBACKS.inc();
+            return function;
+        }
+        try {
+            return (CompiledDensityFunction) constructor.get().invokeExact(function, root, leaves, transformers);
+        } catch (Throwable throwable) {
+            FALLBACKS.inc();
+            return function;
+        }
+    }
+
+    private static @NotNull Optional<MethodHandle> define(@NotNull TreeBuilder tree, CompiledDensityFunction.@NotNull Node root) {
+        try {
+            final MethodHandles.Lookup lookup = LOOKUP.defineHiddenClass(generate(tree, root), true);
+            return Optional.of(lookup.findConstructor(lookup.lookupClass(), CONSTRUCTOR).asType(
+                CONSTRUCTOR.changeReturnType(CompiledDensityFunction.class)
+            ));
+        } catch (Throwable throwable) {
+            LOGGER.warn("Failed to compile density function of {} nodes, leaving it to the interpreter", tree.nodes.size(), throwable);
+            return Optional.empty();
+        }
+    }
+
+    private static byte @NotNull [] generate(@NotNull TreeBuilder tree, CompiledDensityFunction.@NotNull Node root) {
+        final ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES) {
+            @Override
+            protected String getCommonSuperClass(String type1, String type2) {
+                return "java/lang/Object";
+            }
+        };
+        writer.visit(V21, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, GENERATED, null, BASE, null);
+
+        // leaves and transformers are copied into final fields, the hidden class lets the jit trust them
+        for (int i = 0; i < tree.leaves.size(); i++) {
+            writer.visitField(ACC_PRIVATE | ACC_FINAL, "l" + i, FUNCTION_DESC, null, null).visitEnd();
+        }
+        for (int i = 0; i < tree.transformers.size(); i++) {
+            writer.visitField(ACC_PRIVATE | ACC_FINAL, "t" + i, TRANSFORMER_DESC, null, null).visitEnd();
+        }
+
+        final MethodVisitor init = writer.visitMethod(ACC_PUBLIC, "<init>", CONSTRUCTOR.toMethodDescriptorString(), null, null);
+        init.visitCode();
+        init.visitVarInsn(ALOAD, 0);
+        init.visitVarInsn(ALOAD, 1);
+        init.visitVarInsn(ALOAD, 2);
+        init.visitVarInsn(ALOAD, 3);
+        init.visitVarInsn(ALOAD, 4);
+        init.visitMethodInsn(INVOKESPECIAL, BASE, "<init>", CONSTRUCTOR.toMethodDescriptorString(), false);
+        for (int i = 0; i < tree.leaves.size(); i++) {
+            init.visitVarInsn(ALOAD, 0);
+            init.visitVarInsn(ALOAD, 3);
+            init.visitLdcInsn(i);
+            init.visitInsn(AALOAD);
+            init.visitFieldInsn(PUTFIELD, GENERATED, "l" + i, FUNCTION_DESC);
+        }
+        for (int i = 0; i < tree.transformers.size(); i++) {
+            init.visitVarInsn(ALOAD, 0);
+            init.visitVarInsn(ALOAD, 4);
+            init.visitLdcInsn(i);
+            init.visitInsn(AALOAD);
+            init.visitFieldInsn(PUTFIELD, GENERATED, "t" + i, TRANSFORMER_DESC);
+        }
+        init.visitInsn(RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+
+        final MethodVisitor compute = writer.visitMethod(ACC_PUBLIC, "compute", NODE_DESC, null, null);
+        compute.visitCode();
+        pushNode(compute, root, 1);
+        compute.visitInsn(DRETURN);
+        compute.visitMaxs(0, 0);
+        compute.visitEnd();
+
+        final MethodVisitor computeNode = writer.visitMethod(ACC_PROTECTED, "computeNode", "(I" + CONTEXT_DESC + ")D", null, null);
+        computeNode.visitCode();
+        final Label[] cases = new Label[tree.nodes.size()];
+        for (int i = 0; i < cases.length; i++) {
+            cases[i] = new Label();
+        }
+        final Label invalid = new Label();
+        computeNode.visitVarInsn(ILOAD, 1);
+        computeNode.visitTableSwitchInsn(0, cases.length - 1, invalid, cases);
+        for (int i = 0; i < cases.length; i++) {
+            computeNode.visitLabel(cases[i]);
+            pushNode(computeNode, tree.nodes.get(i), 2);
+            computeNode.visitInsn(DRETURN);
+        }
+        computeNode.visitLabel(invalid);
+        computeNode.visitTypeInsn(NEW, "java/lang/IllegalArgumentException");
+        computeNode.visitInsn(DUP);
+        computeNode.visitMethodInsn(INVOKESPECIAL, "java/lang/IllegalArgumentException", "<init>", "()V", false);
+        computeNode.visitInsn(ATHROW);
+        computeNode.visitMaxs(0, 0);
+        computeNode.visitEnd();
+
+        for (final CompiledDensityFunction.Node node : tree.nodes) {
+            if (!(node instanceof CompiledDensityFunction.Node.Constant)) {
+                generateNode(writer, node);
+            }
+        }
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    // pushes the value of a node, constants inline and everything else through its node method
+    private static void pushNode(@NotNull MethodVisitor method, CompiledDensityFunction.@NotNull Node node, int contextSlot) {
+        if (node instanceof CompiledDensityFunction.Node.Constant constant) {
+            method.visitLdcInsn(constant.value());
+        } else {
+            method.visitVarInsn(ALOAD, 0);
+            method.visitVarInsn(ALOAD, contextSlot);
+            method.visitMethodInsn(INVOKESPECIAL, GENERATED, "n" + node.id(), NODE_DESC, false);
+        }
+    }
+
+    // the body of every node mirrors the compute method of the function it was built from
+    private static void generateNode(@NotNull ClassWriter writer, CompiledDensityFunction.@NotNull Node node) {
+        final MethodVisitor method = writer.visitMethod(ACC_PRIVATE, "n" + node.id(), NODE_DESC, null, null);
+        method.visitCode();
+        switch (node) {
+            case CompiledDensityFunction.Node.Leaf leaf -> {
+                method.visitVarInsn(ALOAD, 0);
+                method.visitFieldInsn(GETFIELD, GENERATED, "l" + leaf.slot(), FUNCTION_DESC);
+                method.visitVarInsn(ALOAD, 1);
+                method.visitMethodInsn(INVOKEINTERFACE, FUNCTION, "compute", NODE_DESC, true);
+            }
+            case CompiledDensityFunction.Node.Transform transform -> {
+                method.visitVarInsn(ALOAD, 0);
+                method.visitFieldInsn(GETFIELD, GENERATED, "t" + transform.slot(), TRANSFORMER_DESC);
+                pushNode(method, transform.input(), 1);
+                method.visitMethodInsn(INVOKEINTERFACE, TRANSFORMER, "transform", "(D)D", true);
+            }
+            case CompiledDensityFunction.Node.Ap2 ap2 -> {
+                pushNode(method, ap2.argument1(), 1);
+                switch (ap2.type()) {
+                    // d + b
+                    case ADD -> {
+                        pushNode(method, ap2.argument2(), 1);
+                        method.visitInsn(DADD);
+                    }
+                    // d == 0.0 ? 0.0 : d * b
+                    case MUL -> {
+                        final Label multiply = new Label();
+                        method.visitVarInsn(DSTORE, 2);
+                        method.visitVarInsn(DLOAD, 2);
+                        method.visitInsn(DCONST_0);
+                        method.visitInsn(DCMPL);
+                        method.visitJumpInsn(IFNE, multiply);
+                        method.visitInsn(DCONST_0);
+                        method.visitInsn(DRETURN);
+                        method.visitLabel(multiply);
+                        method.visitVarInsn(DLOAD, 2);
+                        pushNode(method, ap2.argument2(), 1);
+                        method.visitInsn(DMUL);
+                    }
+                    // d < min(b) ? d : Math.min(d, b)
+                    case MIN -> {
+                        final Label compare = new Label();
+                        method.visitVarInsn(DSTORE, 2);
+                        method.visitVarInsn(DLOAD, 2);
+                        method.visitLdcInsn(ap2.argument2Min());
+                        method.visitInsn(DCMPG);
+                        method.visitJumpInsn(IFGE, compare);
+                        method.visitVarInsn(DLOAD, 2);
+                        method.visitInsn(DRETURN);
+                        method.visitLabel(compare);
+                        method.visitVarInsn(DLOAD, 2);
+                        pushNode(method, ap2.argument2(), 1);
+                        method.visitMethodInsn(INVOKESTATIC, "java/lang/Math", "min", "(DD)D", false);
+                    }
+                    // d > max(b) ? d : Math.max(d, b)
+                    case MAX -> {
+                        final Label compare = new Label();
+                        method.visitVarInsn(DSTORE, 2);
+                        method.visitVarInsn(DLOAD, 2);
+                        method.visitLdcInsn(ap2.argument2Max());
+                        method.visitInsn(DCMPL);
+                        method.visitJumpInsn(IFLE, compare);
+                        method.visitVarInsn(DLOAD, 2);
+                        method.visitInsn(DRETURN);
+                        method.visitLabel(compare);
+                        method.visitVarInsn(DLOAD, 2);
+                        pushNode(method, ap2.argument2(), 1);
+                        method.visitMethodInsn(INVOKESTATIC, "java/lang/Math", "max", "(DD)D", false);
+                    }
+                }
+            }
+            // d >= min && d < max ? in : out
+            case CompiledDensityFunction.Node.RangeChoice range -> {
+                final Label outOfRange = new Label();
+                pushNode(method, range.input(), 1);
+                method.visitVarInsn(DSTORE, 2);
+                method.visitVarInsn(DLOAD, 2);
+                method.visitLdcInsn(range.minInclusive());
+                method.visitInsn(DCMPL);
+                method.visitJumpInsn(IFLT, outOfRange);
+                method.visitVarInsn(DLOAD, 2);
+                method.visitLdcInsn(range.maxExclusive());
+                method.visitInsn(DCMPG);
+                method.visitJumpInsn(IFGE, outOfRange);
+                pushNode(method, range.whenInRange(), 1);
+                method.visitInsn(DRETURN);
+                method.visitLabel(outOfRange);
+                pushNode(method, range.whenOutOfRange(), 1);
+            }
+            case CompiledDensityFunction.Node.Constant constant -> method.visitLdcInsn(constant.value());
+        }
+        method.visitInsn(DRETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+    }
+
+    // a compiled filler, and what a filler has to look like to reuse it. a filler matches if it has the same node
+    // kinds, constants, bounds and leaf and transformer classes, which is everything the generated code depends on
+    private record Template(Optional<MethodHandle> constructor, CompiledDensityFunction.Node root, Class<?>[] leafClasses, Class<?>[] transformerClasses) {
+
+        // walks the filler along the compiled tree in the order it was built, collecting its leaves and transformers
+        private boolean matches(CompiledDensityFunction.Node node, DensityFunction function, DensityFunction[] leaves, DensityFunctions.PureTransformer[] transformers) {
+            function = TreeBuilder.unwrap(function);
+            return switch (node) {
+                case CompiledDensityFunction.Node.Constant constant -> TreeBuilder.isConstant(function)
+                    && Double.doubleToRawLongBits(function.compute(ORIGIN)) == Double.doubleToRawLongBits(constant.value());
+                case CompiledDensityFunction.Node.Leaf leaf -> {
+                    if (function.getClass() != this.leafClasses[leaf.slot()]) yield false;
+                    leaves[leaf.slot()] = function;
+                    yield true;
+                }
+                case CompiledDensityFunction.Node.Transform transform -> {
+                    if (function.getClass() != this.transformerClasses[transform.slot()]) yield false;
+                    final DensityFunctions.PureTransformer transformer = (DensityFunctions.PureTransformer) function;
+                    transformers[transform.slot()] = transformer;
+                    yield this.matches(transform.input(), transformer.input(), leaves, transformers);
+                }
+                case CompiledDensityFunction.Node.Ap2 ap2 -> function instanceof DensityFunctions.Ap2 other
+                    && other.type() == ap2.type()
+                    && Double.doubleToRawLongBits(other.argument2().minValue()) == Double.doubleToRawLongBits(ap2.argument2Min())
+                    && Double.doubleToRawLongBits(other.argument2().maxValue()) == Double.doubleToRawLongBits(ap2.argument2Max())
+                    && this.matches(ap2.argument1(), other.argument1(), leaves, transformers)
+                    && this.matches(ap2.argument2(), other.argument2(), leaves, transformers);
+                case CompiledDensityFunction.Node.RangeChoice range -> function instanceof DensityFunctions.RangeChoice other
+                    && Double.doubleToRawLongBits(other.minInclusive()) == Double.doubleToRawLongBits(range.minInclusive())
+                    && Double.doubleToRawLongBits(other.maxExclusive()) == Double.doubleToRawLongBits(range.maxExclusive())
+                    && this.matches(range.input(), other.input(), leaves, transformers)
+                    && this.matches(range.whenInRange(), other.whenInRange(), leaves, transformers)
+                    && this.matches(range.whenOutOfRange(), other.whenOutOfRange(), leaves, transformers);
+            };
+        }
+
+        private @NotNull DensityFunction instantiate(@NotNull DensityFunction function, DensityFunction @NotNull [] leaves, DensityFunctions.PureTransformer @NotNull [] transformers) {
+            // a filler that is a single leaf has nothing to compile
+            if (this.root instanceof CompiledDensityFunction.Node.Leaf) return function;
+            return DensityFunctionCompiler.instantiate(this.constructor, function, this.root, leaves, transformers);
+        }
+    }
+
+    private static final class TreeBuilder {
+        private final List<CompiledDensityFunction.Node> nodes = new ArrayList<>();
+        private final List<DensityFunction> leaves = new ArrayList<>();
+        private final List<DensityFunctions.PureTransformer> transformers = new ArrayList<>();
+
+        private CompiledDensityFunction.Node build(DensityFunction function) throws TooLargeException {
+            function = unwrap(function);
+            if (this.nodes.size() >= MAX_NODES) {
+                throw new TooLargeException();
+            }
+            if (isConstant(function)) {
+                return this.add(new CompiledDensityFunction.Node.Constant(this.nodes.size(), function.compute(ORIGIN)));
+            }
+            return switch (function) {
+                case DensityFunctions.Ap2 ap2 -> {
+                    final CompiledDensityFunction.Node argument1 = this.build(ap2.argument1());
+                    final CompiledDensityFunction.Node argument2 = this.build(ap2.argument2());
+                    yield this.add(new CompiledDensityFunction.Node.Ap2(
+                        this.nodes.size(), ap2.type(), argument1, argument2, ap2.argument2().minValue(), ap2.argument2().maxValue()
+                    ));
+                }
+                case DensityFunctions.RangeChoice range -> {
+                    final CompiledDensityFunction.Node input = this.build(range.input());
+                    final CompiledDensityFunction.Node whenInRange = this.build(range.whenInRange());
+                    final CompiledDensityFunction.Node whenOutOfRange = this.build(range.whenOutOfRange());
+                    yield this.add(new CompiledDensityFunction.Node.RangeChoice(
+                        this.nodes.size(), range.minInclusive(), range.maxExclusive(), input, whenInRange, whenOutOfRange
+                    ));
+                }
+                case DensityFunctions.PureTransformer transformer -> {
+                    final CompiledDensityFunction.Node input = this.build(transformer.input());
+                    this.transformers.add(transformer);
+                    yield this.add(new CompiledDensityFunction.Node.Transform(this.nodes.size(), this.transformers.size() - 1, input));
+                }
+                default -> {
+                    this.leaves.add(function);
+                    yield this.add(new CompiledDensityFunction.Node.Leaf(this.nodes.size(), this.leaves.size() - 1));
+                }
+            };
+        }
+
+        private CompiledDensityFunction.Node add(CompiledDensityFunction.Node node) {
+            this.nodes.add(node);
+            return node;
+        }
+
+        // the key a generated class is shared by. the generated code only depends on the node kinds and constants,
+        // the classes of the leaves and transformers are part of it to keep the call profiles of every class monomorphic
+        private @NotNull String shape(CompiledDensityFunction.@NotNull Node root) {
+            final StringBuilder shape = new StringBuilder();
+            this.appendShape(shape, root);
+            return shape.toString();
+        }
+
+        private void appendShape(StringBuilder shape, CompiledDensityFunction.Node node) {
+            switch (node) {
+                case CompiledDensityFunction.Node.Constant constant -> shape.append("c(").append(Double.doubleToRawLongBits(constant.value())).append(')');
+                case CompiledDensityFunction.Node.Leaf leaf -> shape.append("l(").append(this.leaves.get(leaf.slot()).getClass().getName()).append(')');
+                case CompiledDensityFunction.Node.Transform transform -> {
+                    shape.append("t(").append(this.transformers.get(transform.slot()).getClass().getName()).append(',');
+                    this.appendShape(shape, transform.input());
+                    shape.append(')');
+                }
+                case CompiledDensityFunction.Node.Ap2 ap2 -> {
+                    shape.append(ap2.type().name()).append('(')
+                        .append(Double.doubleToRawLongBits(ap2.argument2Min())).append(',')
+                        .append(Double.doubleToRawLongBits(ap2.argument2Max())).append(',');
+                    this.appendShape(shape, ap2.argument1());
+                    shape.append(',');
+                    this.appendShape(shape, ap2.argument2());
+                    shape.append(')');
+                }
+                case CompiledDensityFunction.Node.RangeChoice range -> {
+                    shape.append("r(")
+                        .append(Double.doubleToRawLongBits(range.minInclusive())).append(',')
+                        .append(Double.doubleToRawLongBits(range.maxExclusive())).append(',');
+                    this.appendShape(shape, range.input());
+                    shape.append(',');
+                    this.appendShape(shape, range.whenInRange());
+                    shape.append(',');
+                    this.appendShape(shape, range.whenOutOfRange());
+                    shape.append(')');
+                }
+            }
+        }
+
+        private static DensityFunction unwrap(DensityFunction function) {
+            while (true) {
+                if (function instanceof DensityFunctions.Marker marker) {
+                    function = marker.wrapped();
+                } else if (function instanceof DensityFunctions.HolderHolder holder) {
+                    function = holder.function().value();
+                } else {
+                    return function;
+                }
+            }
+        }
+
+        // a subtree without leaves does not depend on its context, and is folded into its value. range choices
+        // are only folded as a whole, choosing a branch ahead of time would change how its leaves fill arrays
+        private static boolean isConstant(DensityFunction function) {
+            return switch (unwrap(function)) {
+                case DensityFunctions.Constant ignored -> true;
+                case DensityFunctions.Ap2 ap2 -> isConstant(ap2.argument1()) && isConstant(ap2.argument2());
+                case DensityFunctions.RangeChoice range -> isConstant(range.input()) && isConstant(range.whenInRange()) && isConstant(range.whenOutOfRange());
+                case DensityFunctions.PureTransformer transformer -> isConstant(transformer.input());
+                default -> false;
+            };
+        }
+
+        private static final class TooLargeException extends Exception {
+            private TooLargeException() {
+                super(null, null, false, false);
+            }
+        }
+    }
+}
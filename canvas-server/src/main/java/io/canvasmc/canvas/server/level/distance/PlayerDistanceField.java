@@ -0,0 +1,112 @@
+package io.canvasmc.canvas.server.level.distance;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.level.ChunkPos;
+import org.jetbrains.annotations.NotNull;
+
+// a chunk resolution map of the players around each chunk of a region. every chunk within the radius of a player
+// lists that player, ordered by the least horizontal distance the player can be from anything in the chunk, given
+// only the chunk the player is in. so the map only changes when a player enters another chunk, and a lookup visits
+// the players in the order they can be nearest, stopping as soon as the rest are provably farther away
+public final class PlayerDistanceField {
+    // 128 blocks, the default hard despawn range, mobs farther from every player fall back to the loop over them
+    public static final int DESPAWN_RADIUS = 8;
+    private static final int[] NONE = new int[0];
+
+    private final Long2ObjectOpenHashMap<int[]> byChunk = new Long2ObjectOpenHashMap<>();
+    private Player[] players = new Player[0];
+    private long[] playerChunks = new long[0];
+    private int radius = -1;
+
+    /**
+     * Rebuilds the field if the players, their order, the chunks they are in or the radius changed
+     *
+     * @param radius the radius in chunks around each player to list it in
+     * @return whether the field was rebuilt
+     */
+    public boolean update(Player @NotNull [] players, int radius) {
+        if (radius == this.radius && players.length == this.players.length) {
+            boolean same = true;
+            for (int i = 0; i < players.length && same; i++) {
+                same = players[i] == this.players[i] && players[i].chunkPosition().toLong() == this.playerChunks[i];
+            }
+            if (same) {
+                return false;
+            }
+        }
+        this.players = players.clone();
+        this.playerChunks = new long[players.length];
+        this.radius = radius;
+        this.byChunk.clear();
+        final Long2ObjectOpenHashMap<IntArrayList> lists = new Long2ObjectOpenHashMap<>();
+        for (int i = 0; i < players.length; i++) {
+            final ChunkPos pos = players[i].chunkPosition();
+            this.playerChunks[i] = pos.toLong();
+            for (int x = pos.x - radius; x <= pos.x + radius; x++) {
+                for (int z = pos.z - radius; z <= pos.z + radius; z++) {
+                    lists.computeIfAbsent(ChunkPos.asLong(x, z), key -> new IntArrayList(2)).add(i);
+                }
+            }
+        }
+        for (final Long2ObjectMap.Entry<IntArrayList> entry : lists.long2ObjectEntrySet()) {
+            final long chunk = entry.getLongKey();
+            final int[] indices = entry.getValue().toIntArray();
+            if (indices.length > 1) {
+                // stable, so players of the same bound stay in the order they were added in
+                IntArrays.mergeSort(indices, (a, b) -> Integer.compare(this.lowerBound(a, chunk), this.lowerBound(b, chunk)));
+            }
+            this.byChunk.put(chunk, indices);
+        }
+        return true;
+    }
+
+    public Player @NotNull [] players() {
+        return this.players;
+    }
+
+    /**
+     * The players listed for the chunk, in the order of {@link #lowerBound(int, long)}
+     */
+    public int @NotNull [] candidates(long chunk) {
+        return this.byChunk.getOrDefault(chunk, NONE);
+    }
+
+    /**
+     * The least horizontal distance, on either axis, between the player and anything in the chunk
+     */
+    public int lowerBound(int player, long chunk) {
+        final long playerChunk = this.playerChunks[player];
+        final int distance = Math.max(Math.abs(ChunkPos.getX(playerChunk) - ChunkPos.getX(chunk)), Math.abs(ChunkPos.getZ(playerChunk) - ChunkPos.getZ(chunk)));
+        return Math.max(0, distance - 1) << 4;
+    }
+
+    /**
+     * The index of the player nearest to the entity, as a loop over the players keeping the last of the nearest
+     * would find, or -1 if the nearest may be a player not listed for the entity's chunk
+     */
+    public int nearest(@NotNull Entity entity) {
+        final long chunk = entity.chunkPosition().toLong();
+        final int[] candidates = this.candidates(chunk);
+        int nearest = -1;
+        double nearestDistance = Double.MAX_VALUE;
+        for (final int candidate : candidates) {
+            final double bound = this.lowerBound(candidate, chunk);
+            if (bound * bound > nearestDistance) {
+                break;
+            }
+            final double distance = this.players[candidate].distanceToSqr(entity);
+            if (distance < nearestDistance || (distance == nearestDistance && candidate > nearest)) {
+                nearestDistance = distance;
+                nearest = candidate;
+            }
+        }
+        // players not listed are at least the radius away
+        final double unlisted = (double) (this.radius << 4);
+        return nearest >= 0 && nearestDistance < unlisted * unlisted ? nearest : -1;
+    }
+}
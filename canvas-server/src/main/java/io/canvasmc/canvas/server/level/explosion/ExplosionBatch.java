@@ -0,0 +1,211 @@
+package io.canvasmc.canvas.server.level.explosion;
+
+import io.canvasmc.canvas.Config;
+import io.canvasmc.canvas.metrics.CanvasMetrics;
+import io.canvasmc.canvas.metrics.MetricsRegistry;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Object2FloatOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Holder;
+import net.minecraft.core.particles.ParticleOptions;
+import net.minecraft.network.protocol.game.ClientboundExplodePacket;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.sounds.SoundEvent;
+import net.minecraft.util.Mth;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.boss.enderdragon.EndCrystal;
+import net.minecraft.world.entity.item.PrimedTnt;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.ServerExplosion;
+import net.minecraft.world.level.redstone.NeighborUpdater;
+import net.minecraft.world.phys.Vec3;
+import org.jetbrains.annotations.NotNull;
+
+// the tnt and end crystal explosions detonating while a region ticks its entities, resolved together once the
+// entities are ticked. the blocks of each explosion are cast when it detonates, against the world as it was
+// before any of the batch, then every explosion hurts entities, then the blocks of all of them are broken as one
+// union, each block by the first explosion that reached it and kept its blocks, and finally the explode packets
+// are sent coalesced, one per center, with the knockback of a player summed. no block changes while entities are
+// hurt, so the exposure of an entity is evaluated once for all explosions centered in the same block, from the
+// first of them, and the neighbour and shape updates of the union are held back and flushed once it is broken.
+// explosions still fire their own events and merge their own drops. owned by the region's tick data and empty
+// between entity ticks, so regions never carry it across
+public final class ExplosionBatch {
+    private static final MetricsRegistry.Counter BATCHED = CanvasMetrics.REGISTRY.counter(
+        "canvas_explosions_batched", "TNT and end crystal explosions resolved in a batch"
+    );
+    private static final MetricsRegistry.Counter PACKETS_COALESCED = CanvasMetrics.REGISTRY.counter(
+        "canvas_explosion_packets_coalesced", "Explode packets not sent because an explosion of the batch had the same center"
+    );
+
+    private static final MetricsRegistry.Counter EXPOSURES_SHARED = CanvasMetrics.REGISTRY.counter(
+        "canvas_explosion_exposures_shared", "Entity exposures of batched explosions taken from an explosion centered in the same block"
+    );
+
+    private final ObjectArrayList<Pending> pending = new ObjectArrayList<>();
+    // the exposure of an entity to the explosions centered in a block, while the batch hurts entities
+    private final Object2FloatOpenHashMap<ExposureKey> exposures = new Object2FloatOpenHashMap<>();
+    private boolean open;
+
+    /**
+     * Starts collecting explosions, if batching is enabled
+     */
+    public void open() {
+        this.open = Config.INSTANCE.blocks.tnt.batchExplosions;
+    }
+
+    /**
+     * Takes the explosion into the batch, returning false if it has to be resolved now. The explosion is marked
+     * as batched, so the level leaves its packets to the batch
+     */
+    public boolean defer(@NotNull ServerExplosion explosion, @NotNull List<BlockPos> blocks) {
+        if (!this.open || !(explosion.source instanceof PrimedTnt || explosion.source instanceof EndCrystal)) {
+            return false;
+        }
+        explosion.canvas$batch = this;
+        this.pending.add(new Pending(explosion, blocks));
+        BATCHED.inc();
+        return true;
+    }
+
+    /**
+     * Records the packet the level would have sent for a batched explosion
+     */
+    public void attachPackets(@NotNull ServerExplosion explosion, @NotNull ParticleOptions particles, @NotNull Holder<SoundEvent> sound) {
+        for (int i = this.pending.size() - 1; i >= 0; i--) {
+            final Pending pending = this.pending.get(i);
+            if (pending.explosion == explosion) {
+                pending.particles = particles;
+                pending.sound = sound;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Resolves every collected explosion and stops collecting. Explosions set off by plugins while resolving are
+     * resolved after the ones before them
+     */
+    public void resolve(@NotNull ServerLevel level) {
+        try {
+            while (!this.pending.isEmpty()) {
+                final Pending[] batch = this.pending.toArray(new Pending[0]);
+                this.pending.clear();
+                this.resolve(level, batch);
+            }
+        } finally {
+            this.open = false;
+            this.pending.clear();
+        }
+    }
+
+    private void resolve(@NotNull ServerLevel level, Pending @NotNull [] batch) {
+        try {
+            for (final Pending pending : batch) {
+                pending.explosion.canvas$hurtEntities();
+            }
+        } finally {
+            this.exposures.clear();
+        }
+        // a block broken by an earlier explosion of the batch is skipped, one that kept its blocks claims none
+        final LongOpenHashSet broken = new LongOpenHashSet();
+        final NeighborUpdater updater = level.neighborUpdater.get();
+        final ExplosionNeighborUpdates updates = new ExplosionNeighborUpdates(updater);
+        level.neighborUpdater.set(updates);
+        try {
+            for (final Pending pending : batch) {
+                final ObjectArrayList<BlockPos> blocks = new ObjectArrayList<>(pending.blocks.size());
+                for (final BlockPos pos : pending.blocks) {
+                    if (!broken.contains(pos.asLong())) {
+                        blocks.add(pos);
+                    }
+                }
+                if (pending.explosion.canvas$interactWithBlocks(blocks) && !pending.explosion.wasCanceled) {
+                    for (final BlockPos pos : blocks) {
+                        broken.add(pos.asLong());
+                    }
+                }
+            }
+        } finally {
+            level.neighborUpdater.set(updater);
+            updates.flush(level);
+        }
+        this.sendPackets(level, batch);
+    }
+
+    /**
+     * The exposure of the entity to a batched explosion, evaluated once for every explosion of the batch centered
+     * in the same block
+     */
+    public float exposure(@NotNull ServerExplosion explosion, @NotNull Vec3 center, @NotNull Entity entity) {
+        final ExposureKey key = new ExposureKey(entity.getId(), BlockPos.asLong(Mth.floor(center.x), Mth.floor(center.y), Mth.floor(center.z)));
+        if (this.exposures.containsKey(key)) {
+            EXPOSURES_SHARED.inc();
+            return this.exposures.getFloat(key);
+        }
+        final float exposure = explosion.canvas$seenFraction(center, entity);
+        this.exposures.put(key, exposure);
+        return exposure;
+    }
+
+    private void sendPackets(@NotNull ServerLevel level, Pending @NotNull [] batch) {
+        final Object2ObjectLinkedOpenHashMap<PacketKey, ObjectArrayList<ServerExplosion>> byCenter = new Object2ObjectLinkedOpenHashMap<>();
+        for (final Pending pending : batch) {
+            if (pending.explosion.wasCanceled || pending.particles == null) {
+                continue;
+            }
+            byCenter.computeIfAbsent(new PacketKey(pending.explosion.center(), pending.particles, pending.sound), key -> new ObjectArrayList<>()).add(pending.explosion);
+        }
+        for (final var entry : byCenter.object2ObjectEntrySet()) {
+            final PacketKey key = entry.getKey();
+            final ObjectArrayList<ServerExplosion> explosions = entry.getValue();
+            PACKETS_COALESCED.add(explosions.size() - 1);
+            for (final ServerPlayer player : level.getLocalPlayers(new ChunkPos(new BlockPos((int) Math.round(key.center.x), (int) Math.round(key.center.y), (int) Math.round(key.center.z))))) {
+                if (player.distanceToSqr(key.center) >= 4096.0) {
+                    continue;
+                }
+                Vec3 knockback = null;
+                for (final ServerExplosion explosion : explosions) {
+                    final Vec3 hit = explosion.getHitPlayers().get(player);
+                    if (hit != null) {
+                        knockback = knockback == null ? hit : knockback.add(hit);
+                    }
+                }
+                player.connection.send(new ClientboundExplodePacket(key.center, Optional.ofNullable(knockback), key.particles, key.sound));
+            }
+        }
+    }
+
+    private static final class Pending {
+        private final ServerExplosion explosion;
+        private final List<BlockPos> blocks;
+        private ParticleOptions particles;
+        private Holder<SoundEvent> sound;
+
+        private Pending(ServerExplosion explosion, List<BlockPos> blocks) {
+            this.explosion = explosion;
+            this.blocks = blocks;
+        }
+    }
+
+    private record ExposureKey(int entity, long block) {
+    }
+
+    private record PacketKey(Vec3 center, ParticleOptions particles, Holder<SoundEvent> sound) {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof PacketKey key && this.center.equals(key.center) && this.particles == key.particles && this.sound == key.sound;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.center, System.identityHashCode(this.particles), System.identityHashCode(this.sound));
+        }
+    }
+}
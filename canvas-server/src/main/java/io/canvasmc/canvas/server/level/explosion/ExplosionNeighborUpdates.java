@@ -0,0 +1,143 @@
+package io.canvasmc.canvas.server.level.explosion;
+
+import ca.spottedleaf.moonrise.common.util.TickThread;
+import io.canvasmc.canvas.metrics.CanvasMetrics;
+import io.canvasmc.canvas.metrics.MetricsRegistry;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.redstone.NeighborUpdater;
+import net.minecraft.world.level.redstone.Orientation;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+// the neighbour and shape updates of the blocks a batch of explosions breaks, held back while the batch breaks its
+// blocks and flushed once the whole union is broken. an update recorded again for the same target replaces the
+// earlier one in its place, and an update whose target is air by then is dropped, which is every update between
+// two blocks of the union, the bulk of them for a large blast. updates with the piston flag are not the kind a
+// block broken by an explosion sends, they are passed through as they come
+public final class ExplosionNeighborUpdates implements NeighborUpdater {
+    private static final MetricsRegistry.Counter DROPPED = CanvasMetrics.REGISTRY.counter(
+        "canvas_explosion_neighbor_updates_dropped", "Neighbour and shape updates of batched explosions dropped as repeated or targeting air"
+    );
+
+    private final NeighborUpdater delegate;
+    private final ObjectArrayList<Update> updates = new ObjectArrayList<>();
+    private final Object2IntOpenHashMap<Object> indices = new Object2IntOpenHashMap<>();
+
+    public ExplosionNeighborUpdates(@NotNull NeighborUpdater delegate) {
+        this.delegate = delegate;
+        this.indices.defaultReturnValue(-1);
+    }
+
+    @Override
+    public void shapeUpdate(@NotNull Direction direction, @NotNull BlockState state, @NotNull BlockPos pos, @NotNull BlockPos neighborPos, int flags, int recursionLeft) {
+        this.record(new ShapeKey(pos.asLong(), direction), new ShapeUpdate(direction, state, pos.immutable(), neighborPos.immutable(), flags, recursionLeft));
+    }
+
+    @Override
+    public void neighborChanged(@NotNull BlockPos pos, @NotNull Block neighborBlock, @Nullable Orientation orientation) {
+        this.record(pos.asLong(), new NeighborUpdate(pos.immutable(), neighborBlock, orientation));
+    }
+
+    @Override
+    public void neighborChanged(@NotNull BlockState state, @NotNull BlockPos pos, @NotNull Block neighborBlock, @Nullable Orientation orientation, boolean movedByPiston) {
+        this.delegate.neighborChanged(state, pos, neighborBlock, orientation, movedByPiston);
+    }
+
+    @Override
+    public void updateNeighborsAtExceptFromFacing(@NotNull BlockPos pos, @NotNull Block block, @Nullable Direction facing, @Nullable Orientation orientation) {
+        this.record(new SourceKey(pos.asLong()), new SourceUpdate(pos.immutable(), block, facing, orientation));
+    }
+
+    private void record(@NotNull Object key, @NotNull Update update) {
+        final int index = this.indices.getInt(key);
+        if (index != -1) {
+            this.updates.set(index, update);
+            DROPPED.inc();
+            return;
+        }
+        this.indices.put(key, this.updates.size());
+        this.updates.add(update);
+    }
+
+    /**
+     * Runs the updates still needed through the updater they were held back from, in the order they came in
+     */
+    public void flush(@NotNull ServerLevel level) {
+        long dropped = 0L;
+        for (final Update update : this.updates) {
+            if (update.needed(level)) {
+                update.run(this.delegate);
+            } else {
+                dropped++;
+            }
+        }
+        DROPPED.add(dropped);
+        this.updates.clear();
+        this.indices.clear();
+    }
+
+    // whether the block at the position is air now, for a block this region owns
+    private static boolean isAir(@NotNull ServerLevel level, @NotNull BlockPos pos) {
+        return TickThread.isTickThreadFor(level, pos) && level.getBlockState(pos).isAir();
+    }
+
+    private record ShapeKey(long pos, Direction direction) {
+    }
+
+    private record SourceKey(long pos) {
+    }
+
+    private interface Update {
+        boolean needed(@NotNull ServerLevel level);
+
+        void run(@NotNull NeighborUpdater updater);
+    }
+
+    private record ShapeUpdate(Direction direction, BlockState state, BlockPos pos, BlockPos neighborPos, int flags, int recursionLeft) implements Update {
+        @Override
+        public boolean needed(@NotNull ServerLevel level) {
+            return !isAir(level, this.pos);
+        }
+
+        @Override
+        public void run(@NotNull NeighborUpdater updater) {
+            updater.shapeUpdate(this.direction, this.state, this.pos, this.neighborPos, this.flags, this.recursionLeft);
+        }
+    }
+
+    private record NeighborUpdate(BlockPos pos, Block neighborBlock, Orientation orientation) implements Update {
+        @Override
+        public boolean needed(@NotNull ServerLevel level) {
+            return !isAir(level, this.pos);
+        }
+
+        @Override
+        public void run(@NotNull NeighborUpdater updater) {
+            updater.neighborChanged(this.pos, this.neighborBlock, this.orientation);
+        }
+    }
+
+    // the updates of all neighbours of a source, kept whole so each still reports its source block to plugins
+    private record SourceUpdate(BlockPos pos, Block block, Direction facing, Orientation orientation) implements Update {
+        @Override
+        public boolean needed(@NotNull ServerLevel level) {
+            for (final Direction direction : NeighborUpdater.UPDATE_ORDER) {
+                if (direction != this.facing && !isAir(level, this.pos.relative(direction))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void run(@NotNull NeighborUpdater updater) {
+            updater.updateNeighborsAtExceptFromFacing(this.pos, this.block, this.facing, this.orientation);
+        }
+    }
+}
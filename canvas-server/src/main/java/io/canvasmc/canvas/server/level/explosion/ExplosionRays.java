@@ -0,0 +1,146 @@
+package io.canvasmc.canvas.server.level.explosion;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.util.Arrays;
+import org.jetbrains.annotations.NotNull;
+
+// the block ray casting of explosions, as independent rays over a grid of block resistances around the
+// center. a ray only reads the grid, so any range of rays can be cast on any thread, and casting every range
+// and concatenating the cells in ray order gives the same cells in the same order as casting serially.
+// the rays, their order and the stepping are vanilla's, with the resistances precomputed the way paper does
+public final class ExplosionRays {
+    // the cell is outside the world, the ray stops there
+    public static final float OUT_OF_WORLD = Float.NEGATIVE_INFINITY;
+    private static final float STEP_COST = 0.22500001F;
+    private static final double STEP_LENGTH = 0.3F;
+    // three doubles per ray, the step of the ray
+    private static final double[] RAYS;
+    public static final int RAY_COUNT;
+
+    static {
+        final double[] rays = new double[16 * 16 * 16 * 3];
+        int length = 0;
+        for (int i = 0; i < 16; i++) {
+            for (int j = 0; j < 16; j++) {
+                for (int k = 0; k < 16; k++) {
+                    if (i == 0 || i == 15 || j == 0 || j == 15 || k == 0 || k == 15) {
+                        double x = i / 15.0F * 2.0F - 1.0F;
+                        double y = j / 15.0F * 2.0F - 1.0F;
+                        double z = k / 15.0F * 2.0F - 1.0F;
+                        final double length1 = Math.sqrt(x * x + y * y + z * z);
+                        rays[length++] = x / length1 * STEP_LENGTH;
+                        rays[length++] = y / length1 * STEP_LENGTH;
+                        rays[length++] = z / length1 * STEP_LENGTH;
+                    }
+                }
+            }
+        }
+        RAYS = Arrays.copyOf(rays, length);
+        RAY_COUNT = length / 3;
+    }
+
+    private ExplosionRays() {
+    }
+
+    /**
+     * The distance in blocks from the center a ray starting with the power can reach, rounded up
+     */
+    public static int reach(float maxPower) {
+        // every step costs at least the step cost, resistances are never negative
+        return (int) Math.ceil(maxPower / STEP_COST * STEP_LENGTH) + 1;
+    }
+
+    /**
+     * Casts the rays in {@code [from, to)}, appending the cell of every step a ray takes with power left to
+     * {@code cells}. {@code ends[ray - from]} is set to the size of {@code cells} after the ray
+     */
+    public static void cast(@NotNull Grid grid, double centerX, double centerY, double centerZ, float @NotNull [] powers,
+                            int from, int to, @NotNull IntArrayList cells, int @NotNull [] ends) {
+        final float[] resistances = grid.resistances;
+        for (int ray = from; ray < to; ray++) {
+            final double stepX = RAYS[ray * 3];
+            final double stepY = RAYS[ray * 3 + 1];
+            final double stepZ = RAYS[ray * 3 + 2];
+            double x = centerX;
+            double y = centerY;
+            double z = centerZ;
+            float power = powers[ray];
+            do {
+                final int blockX = floor(x);
+                final int blockY = floor(y);
+                final int blockZ = floor(z);
+                final int cell = grid.index(blockX, blockY, blockZ);
+                float resistance = resistances[cell];
+                if (resistance != resistance) { // not loaded yet
+                    resistance = grid.load(cell, blockX, blockY, blockZ);
+                }
+                if (resistance == OUT_OF_WORLD) {
+                    break;
+                }
+                power -= resistance;
+                if (power > 0.0F) {
+                    cells.add(cell);
+                }
+                power -= STEP_COST;
+                x += stepX;
+                y += stepY;
+                z += stepZ;
+            } while (power > 0.0F);
+            ends[ray - from] = cells.size();
+        }
+    }
+
+    private static int floor(double value) {
+        final int i = (int) value;
+        return value < i ? i - 1 : i;
+    }
+
+    /**
+     * A cube of cells around the explosion, with the resistance of each loaded on first use. Loading the same
+     * cell from two threads at once is fine, both store the same value
+     */
+    public abstract static class Grid {
+        public final int originX;
+        public final int originY;
+        public final int originZ;
+        public final int size;
+        protected final float[] resistances;
+
+        protected Grid(int centerX, int centerY, int centerZ, int reach) {
+            this.originX = centerX - reach;
+            this.originY = centerY - reach;
+            this.originZ = centerZ - reach;
+            this.size = reach * 2 + 1;
+            this.resistances = new float[this.size * this.size * this.size];
+            Arrays.fill(this.resistances, Float.NaN);
+        }
+
+        public final int index(int x, int y, int z) {
+            final int localX = x - this.originX;
+            final int localY = y - this.originY;
+            final int localZ = z - this.originZ;
+            if ((localX | localY | localZ) < 0 || localX >= this.size || localY >= this.size || localZ >= this.size) {
+                throw new IllegalStateException("Explosion ray left its grid at " + x + ", " + y + ", " + z);
+            }
+            return (localY * this.size + localZ) * this.size + localX;
+        }
+
+        public final int x(int cell) {
+            return this.originX + cell % this.size;
+        }
+
+        public final int y(int cell) {
+            return this.originY + cell / (this.size * this.size);
+        }
+
+        public final int z(int cell) {
+            return this.originZ + (cell / this.size) % this.size;
+        }
+
+        /**
+         * Computes the resistance of the cell, {@code (resistance + 0.3) * 0.3}, zero without one, or
+         * {@link #OUT_OF_WORLD}, and stores it before returning it
+         */
+        protected abstract float load(int cell, int x, int y, int z);
+    }
+}
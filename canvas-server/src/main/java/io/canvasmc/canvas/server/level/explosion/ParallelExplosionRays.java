@@ -0,0 +1,233 @@
+package io.canvasmc.canvas.server.level.explosion;
+
+import io.canvasmc.canvas.Config;
+import io.papermc.paper.configuration.GlobalConfiguration;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.level.EntityBasedExplosionDamageCalculator;
+import net.minecraft.world.level.ExplosionDamageCalculator;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.block.piston.PistonHeadBlock;
+import net.minecraft.world.level.block.piston.PistonMovingBlockEntity;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.material.FluidState;
+import net.minecraft.world.phys.Vec3;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+// casts the block rays of an explosion on a small pool of its own, over a lazily filled grid of the loaded chunks
+// around it. the region thread casts a share of the rays itself and waits for the rest, so nothing writes to those
+// chunks while they are read, and hibernated sections in reach are woken before the cast, so the pool only reads.
+// every decision to fall back to the serial cast is made before a random is drawn, and the random powers are
+// drawn on the region thread in ray order, so the level random ends up exactly where the serial cast leaves it.
+// it is a separate cast chosen where the explosion calls it, not a branch in the ray loop, because the serial loop
+// draws each power as it reaches its ray and reads through the explosion's own block cache, which is not safe to
+// share across threads, while this one needs every power drawn up front and reads the grid
+public final class ParallelExplosionRays {
+    // larger grids are explosions far beyond tnt, not worth the allocation
+    private static final int MAX_GRID_SIZE = 64;
+    private static final int MIN_RAYS_PER_TASK = 128;
+    private static final float MAX_POWER_MULTIPLIER = 1.3F;
+    private static final int WORLD_BORDER = 30_000_000;
+    // the region threads of every world share it, so it stays small, and idle workers exit
+    private static final int WORKERS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    private static final ForkJoinPool POOL = new ForkJoinPool(
+        WORKERS,
+        pool -> {
+            final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("Canvas Explosion Ray Worker #" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        },
+        null, false, 0, WORKERS, 1, pool -> true, 30L, TimeUnit.SECONDS
+    );
+    // whether an entity class keeps the default block resistance and block explosion checks of Entity
+    private static final ClassValue<Boolean> DEFAULT_BLOCK_CHECKS = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(@NotNull Class<?> type) {
+            for (Class<?> current = type; current != Entity.class && current != null; current = current.getSuperclass()) {
+                for (final Method method : current.getDeclaredMethods()) {
+                    if (method.getName().equals("getBlockExplosionResistance") || method.getName().equals("shouldBlockExplode")) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    };
+
+    private ParallelExplosionRays() {
+    }
+
+    /**
+     * Computes the blocks the explosion destroys, as {@link net.minecraft.world.level.ServerExplosion} does, or
+     * returns null without touching the level random when the explosion has to be cast serially
+     */
+    public static @Nullable List<BlockPos> calculateExplodedPositions(@NotNull ServerLevel level, @NotNull Vec3 center, float radius, @NotNull ExplosionDamageCalculator calculator, boolean fire) {
+        if (!Config.INSTANCE.blocks.tnt.parallelRayCasting || !isPure(calculator)) {
+            return null;
+        }
+        final int reach = ExplosionRays.reach(radius * MAX_POWER_MULTIPLIER);
+        if (reach * 2 + 1 > MAX_GRID_SIZE) {
+            return null;
+        }
+        final LevelGrid grid = LevelGrid.create(level, center, reach);
+        if (grid == null) {
+            return null;
+        }
+
+        final float[] powers = new float[ExplosionRays.RAY_COUNT];
+        for (int ray = 0; ray < powers.length; ray++) {
+            powers[ray] = radius * (0.7F + level.random.nextFloat() * 0.6F);
+        }
+
+        // the region thread takes the first share
+        final int tasks = Math.max(1, Math.min(WORKERS + 1, ExplosionRays.RAY_COUNT / MIN_RAYS_PER_TASK));
+        final List<CastTask> casts = new ArrayList<>(tasks);
+        for (int task = 0; task < tasks; task++) {
+            casts.add(new CastTask(grid, center, powers, ExplosionRays.RAY_COUNT * task / tasks, ExplosionRays.RAY_COUNT * (task + 1) / tasks));
+        }
+        for (int task = 1; task < tasks; task++) {
+            POOL.execute(casts.get(task));
+        }
+        casts.getFirst().compute();
+        for (int task = 1; task < tasks; task++) {
+            casts.get(task).join();
+        }
+
+        // in ray order, keeping the first time each cell is reached, like the serial cast
+        final ObjectArrayList<BlockPos> exploded = new ObjectArrayList<>();
+        final boolean[] seen = new boolean[grid.resistances.length];
+        final boolean allowHeadlessPistons = GlobalConfiguration.get().unsupportedSettings.allowHeadlessPistons;
+        for (final CastTask cast : casts) {
+            for (int i = 0, size = cast.cells.size(); i < size; i++) {
+                final int cell = cast.cells.getInt(i);
+                if (seen[cell]) {
+                    continue;
+                }
+                seen[cell] = true;
+                final BlockState state = grid.states[cell];
+                if (!fire && state.isAir()) {
+                    continue;
+                }
+                final BlockPos pos = new BlockPos(grid.x(cell), grid.y(cell), grid.z(cell));
+                exploded.add(pos);
+                // Paper - prevent headless pistons from forming
+                if (!allowHeadlessPistons && state.getBlock() == Blocks.MOVING_PISTON) {
+                    final BlockEntity extension = level.getBlockEntity(pos);
+                    if (extension instanceof PistonMovingBlockEntity blockEntity && blockEntity.isSourcePiston()) {
+                        final Direction direction = blockEntity.getBlockState().getValue(PistonHeadBlock.FACING);
+                        exploded.add(pos.relative(direction.getOpposite()));
+                    }
+                }
+            }
+        }
+        return exploded;
+    }
+
+    // the vanilla calculators, which read nothing but the block and fluid and explode every block they reach
+    private static boolean isPure(@NotNull ExplosionDamageCalculator calculator) {
+        if (calculator.getClass() == ExplosionDamageCalculator.class) {
+            return true;
+        }
+        return calculator.getClass() == EntityBasedExplosionDamageCalculator.class
+            && DEFAULT_BLOCK_CHECKS.get(((EntityBasedExplosionDamageCalculator) calculator).source.getClass());
+    }
+
+    private static final class CastTask extends RecursiveAction {
+        private final LevelGrid grid;
+        private final Vec3 center;
+        private final float[] powers;
+        private final int from;
+        private final int to;
+        private final IntArrayList cells = new IntArrayList();
+
+        private CastTask(LevelGrid grid, Vec3 center, float[] powers, int from, int to) {
+            this.grid = grid;
+            this.center = center;
+            this.powers = powers;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            ExplosionRays.cast(this.grid, this.center.x, this.center.y, this.center.z, this.powers, this.from, this.to, this.cells, new int[this.to - this.from]);
+        }
+    }
+
+    private static final class LevelGrid extends ExplosionRays.Grid {
+        private final ServerLevel level;
+        private final LevelChunk[] chunks;
+        private final int minChunkX;
+        private final int minChunkZ;
+        private final int chunkWidth;
+        private final BlockState[] states;
+
+        private LevelGrid(ServerLevel level, int centerX, int centerY, int centerZ, int reach) {
+            super(centerX, centerY, centerZ, reach);
+            this.level = level;
+            this.minChunkX = this.originX >> 4;
+            this.minChunkZ = this.originZ >> 4;
+            this.chunkWidth = ((this.originX + this.size - 1) >> 4) - this.minChunkX + 1;
+            final int chunkDepth = ((this.originZ + this.size - 1) >> 4) - this.minChunkZ + 1;
+            this.chunks = new LevelChunk[this.chunkWidth * chunkDepth];
+            this.states = new BlockState[this.resistances.length];
+        }
+
+        // null if a chunk the rays may reach is not loaded, the serial cast would load it. runs on the region thread
+        private static @Nullable LevelGrid create(@NotNull ServerLevel level, @NotNull Vec3 center, int reach) {
+            final LevelGrid grid = new LevelGrid(level, (int) Math.floor(center.x), (int) Math.floor(center.y), (int) Math.floor(center.z), reach);
+            for (int i = 0; i < grid.chunks.length; i++) {
+                final LevelChunk chunk = level.getChunkIfLoaded(grid.minChunkX + i % grid.chunkWidth, grid.minChunkZ + i / grid.chunkWidth);
+                if (chunk == null) {
+                    return null;
+                }
+                grid.chunks[i] = chunk;
+            }
+            // a read of a hibernated section moves it back onto the heap, which has to happen here and not on the pool
+            final int minY = Math.max(grid.originY, level.getMinY());
+            final int maxY = Math.min(grid.originY + grid.size - 1, level.getMaxY());
+            if (minY <= maxY) {
+                for (final LevelChunk chunk : grid.chunks) {
+                    final LevelChunkSection[] sections = chunk.getSections();
+                    for (int section = level.getSectionIndex(minY); section <= level.getSectionIndex(maxY); section++) {
+                        sections[section].states.canvas$inflate();
+                    }
+                }
+            }
+            return grid;
+        }
+
+        @Override
+        protected float load(int cell, int x, int y, int z) {
+            final float resistance;
+            if (this.level.isOutsideBuildHeight(y) || x < -WORLD_BORDER || z < -WORLD_BORDER || x >= WORLD_BORDER || z >= WORLD_BORDER) {
+                resistance = ExplosionRays.OUT_OF_WORLD;
+            } else {
+                final LevelChunk chunk = this.chunks[((z >> 4) - this.minChunkZ) * this.chunkWidth + (x >> 4) - this.minChunkX];
+                final LevelChunkSection section = chunk.getSections()[this.level.getSectionIndex(y)];
+                final BlockState state = section.hasOnlyAir() ? Blocks.AIR.defaultBlockState() : section.getBlockState(x & 15, y & 15, z & 15);
+                final FluidState fluid = state.getFluidState();
+                this.states[cell] = state;
+                resistance = state.isAir() && fluid.isEmpty() ? 0.0F : (Math.max(state.getBlock().getExplosionResistance(), fluid.getExplosionResistance()) + 0.3F) * 0.3F;
+            }
+            this.resistances[cell] = resistance;
+            return resistance;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package io.canvasmc.canvas.util;
 
+import io.canvasmc.canvas.entity.EntityIdIndex;
 import io.canvasmc.canvas.region.ServerRegions;
 import io.canvasmc.canvas.util.fastutil.Int2ObjectConcurrentHashMap;
 import io.papermc.paper.threadedregions.ThreadedRegionizer;
@@ -13,10 +14,8 @@ import it.unimi.dsi.fastutil.objects.ObjectCollections;
 import it.unimi.dsi.fastutil.objects.ObjectSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
 import net.minecraft.server.level.ChunkMap;
 import net.minecraft.server.level.ServerLevel;
-import net.minecraft.world.entity.Entity;
 import net.minecraft.world.level.ChunkPos;
 import org.agrona.collections.ObjectHashSet;
 import org.jetbrains.annotations.NotNull;
@@ -36,11 +35,7 @@ public class ConcurrentRegionizedEntityMap implements Int2ObjectMap<ChunkMap.Tra
 
     @Override
     public int size() {
-        final AtomicInteger total = new AtomicInteger();
-        if (this.world.server.isRegionized()) {
-            this.world.regioniser.computeForAllRegionsUnsynchronised((region -> total.addAndGet(region.getData().tickData.trackerEntities.size())));
-        } else total.getAndAdd(ServerRegions.getTickData(this.world).trackerEntities.size());
-        return total.get();
+        return this.world.entityIdIndex.trackedSize();
     }
 
     @Override
@@ -52,14 +47,7 @@ public class ConcurrentRegionizedEntityMap implements Int2ObjectMap<ChunkMap.Tra
     public boolean containsValue(final Object value) {
         // the value must be a TrackedEntity
         if (!(value instanceof final ChunkMap.TrackedEntity tracked)) return false;
-        if (this.world.server.isRegionized()) {
-            for (final ThreadedRegionizer.ThreadedRegion<ServerRegions.TickRegionData, ServerRegions.TickRegionSectionData> region : getRegions()) {
-                if (region.getData().tickData.trackerEntities.contains(tracked.entity)) return true;
-            }
-        } else {
-            return ServerRegions.getTickData(this.world).trackerEntities.contains(tracked.entity);
-        }
-        return false;
+        return this.world.entityIdIndex.isTracked(tracked.entity);
     }
 
     @Override
@@ -75,6 +63,7 @@ public class ConcurrentRegionizedEntityMap implements Int2ObjectMap<ChunkMap.Tra
             } else {
                 data.trackerEntities.add(value.entity);
             }
+            this.world.entityIdIndex.setTracked(value.entity, true);
         });
     }
 
@@ -92,113 +81,42 @@ public class ConcurrentRegionizedEntityMap implements Int2ObjectMap<ChunkMap.Tra
     @Override
     public ObjectSet<Entry<ChunkMap.TrackedEntity>> int2ObjectEntrySet() {
         Int2ObjectMap<ChunkMap.TrackedEntity> entrySetMap = new Int2ObjectConcurrentHashMap<>();
-        if (this.world.server.isRegionized()) {
-            for (final ThreadedRegionizer.ThreadedRegion<ServerRegions.TickRegionData, ServerRegions.TickRegionSectionData> region : this.getRegions()) {
-                for (final Entity entity : region.getData().tickData.trackerEntities) {
-                    if (entity != null) entrySetMap.put(entity.getId(), entity.moonrise$getTrackedEntity());
-                }
-            }
-        } else {
-            ServerRegions.WorldTickData data = ServerRegions.getTickData(this.world);
-            for (final Entity trackerEntity : data.trackerEntities) {
-                if (trackerEntity != null)
-                    entrySetMap.put(trackerEntity.getId(), trackerEntity.moonrise$getTrackedEntity());
-            }
-        }
+        this.world.entityIdIndex.forEachTracked((entry) -> entrySetMap.put(entry.entity.getId(), entry.entity.moonrise$getTrackedEntity()));
         return entrySetMap.int2ObjectEntrySet();
     }
 
     @Override
     public @NotNull IntSet keySet() {
         IntSet intSet = IntSets.synchronize(new IntArraySet());
-        if (this.world.server.isRegionized()) {
-            for (final ThreadedRegionizer.ThreadedRegion<ServerRegions.TickRegionData, ServerRegions.TickRegionSectionData> region : this.getRegions()) {
-                for (final Entity entity : region.getData().tickData.trackerEntities) {
-                    if (entity != null) intSet.add(entity.getId());
-                }
-            }
-        } else {
-            ServerRegions.WorldTickData data = ServerRegions.getTickData(this.world);
-            for (final Entity trackerEntity : data.trackerEntities) {
-                if (trackerEntity != null) intSet.add(trackerEntity.getId());
-            }
-        }
+        this.world.entityIdIndex.forEachTracked((entry) -> intSet.add(entry.entity.getId()));
         return intSet;
     }
 
     @Override
     public @NotNull ObjectCollection<ChunkMap.TrackedEntity> values() {
         ObjectCollection<ChunkMap.TrackedEntity> objectCollection = ObjectCollections.synchronize(new ObjectArraySet<>());
-        if (this.world.server.isRegionized()) {
-            for (final ThreadedRegionizer.ThreadedRegion<ServerRegions.TickRegionData, ServerRegions.TickRegionSectionData> region : this.getRegions()) {
-                for (final Entity entity : region.getData().tickData.trackerEntities) {
-                    if (entity != null) objectCollection.add(entity.moonrise$getTrackedEntity());
-                }
-            }
-        } else {
-            ServerRegions.WorldTickData data = ServerRegions.getTickData(this.world);
-            for (final Entity trackerEntity : data.trackerEntities) {
-                if (trackerEntity != null) objectCollection.add(trackerEntity.moonrise$getTrackedEntity());
-            }
-        }
+        this.world.entityIdIndex.forEachTracked((entry) -> objectCollection.add(entry.entity.moonrise$getTrackedEntity()));
         return objectCollection;
     }
 
     @Override
     public ChunkMap.TrackedEntity get(final int key) {
-        if (this.world.server.isRegionized()) {
-            for (final ThreadedRegionizer.ThreadedRegion<ServerRegions.TickRegionData, ServerRegions.TickRegionSectionData> region : getRegions()) {
-                for (final Entity trackerEntity : region.getData().tickData.trackerEntities) {
-                    if (trackerEntity.getId() == key) return trackerEntity.moonrise$getTrackedEntity();
-                }
-            }
-        } else {
-            ServerRegions.WorldTickData data = ServerRegions.getTickData(this.world);
-            for (final Entity trackerEntity : data.trackerEntities) {
-                if (trackerEntity.getId() == key) return trackerEntity.moonrise$getTrackedEntity();
-            }
-        }
-        return null;
+        final EntityIdIndex.Entry entry = this.world.entityIdIndex.getTracked(key);
+        return entry == null ? null : entry.entity.moonrise$getTrackedEntity();
     }
 
     @Override
     public boolean containsKey(final int key) {
-        if (this.world.server.isRegionized()) {
-            for (final ThreadedRegionizer.ThreadedRegion<ServerRegions.TickRegionData, ServerRegions.TickRegionSectionData> region : getRegions()) {
-                for (final Entity trackerEntity : region.getData().tickData.trackerEntities) {
-                    if (trackerEntity.getId() == key) return true;
-                }
-            }
-        } else {
-            ServerRegions.WorldTickData data = ServerRegions.getTickData(this.world);
-            for (final Entity trackerEntity : data.trackerEntities) {
-                if (trackerEntity.getId() == key) return true;
-            }
-        }
-        return false;
+        return this.world.entityIdIndex.getTracked(key) != null;
     }
 
     @Override
     public ChunkMap.TrackedEntity remove(final int key) {
-        if (this.world.server.isRegionized()) {
-            for (final ThreadedRegionizer.ThreadedRegion<ServerRegions.TickRegionData, ServerRegions.TickRegionSectionData> region : getRegions()) {
-                for (final Entity trackerEntity : region.getData().tickData.trackerEntities) {
-                    if (trackerEntity.getId() == key) {
-                        region.getData().tickData.trackerEntities.remove(trackerEntity);
-                        return trackerEntity.moonrise$getTrackedEntity();
-                    }
-                }
-            }
-        } else {
-            ServerRegions.WorldTickData data = ServerRegions.getTickData(this.world);
-            for (final Entity trackerEntity : data.trackerEntities) {
-                if (trackerEntity.getId() == key) {
-                    data.trackerEntities.remove(trackerEntity);
-                    return trackerEntity.moonrise$getTrackedEntity();
-                }
-            }
-        }
-        return null;
+        final EntityIdIndex.Entry entry = this.world.entityIdIndex.getTracked(key);
+        if (entry == null) return null;
+        entry.getOwner().trackerEntities.remove(entry.entity);
+        this.world.entityIdIndex.setTracked(entry.entity, false);
+        return entry.entity.moonrise$getTrackedEntity();
     }
 
     @Override
@@ -0,0 +1,49 @@
+package io.canvasmc.canvas.util.change_tracking;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A publisher kept as a field of the object it publishes changes of, for classes that cannot implement
+ * {@link ChangePublisher} themselves
+ */
+public final class ChangeTracker<T> implements ChangePublisher<T> {
+    private final T source;
+    private ChangeSubscriber<T> subscriber;
+    private int subscriberData;
+
+    public ChangeTracker(@NotNull T source) {
+        this.source = source;
+    }
+
+    @Override
+    public synchronized void lithium$subscribe(ChangeSubscriber<T> subscriber, int subscriberData) {
+        this.subscriber = ChangeSubscriber.combine(this.subscriber, this.subscriberData, subscriber, subscriberData);
+        if (!(this.subscriber instanceof ChangeSubscriber.Multi<?>)) {
+            this.subscriberData = subscriberData;
+        }
+    }
+
+    @Override
+    public synchronized int lithium$unsubscribe(ChangeSubscriber<T> subscriber) {
+        final int data = ChangeSubscriber.dataOf(this.subscriber, subscriber, this.subscriberData);
+        this.subscriberData = ChangeSubscriber.dataWithout(this.subscriber, subscriber, this.subscriberData);
+        this.subscriber = ChangeSubscriber.without(this.subscriber, subscriber);
+        return data;
+    }
+
+    /**
+     * Notifies the subscribers that the source is about to change, or has just changed
+     */
+    public void publish() {
+        final ChangeSubscriber<T> subscriber;
+        final int subscriberData;
+        synchronized (this) {
+            subscriber = this.subscriber;
+            subscriberData = this.subscriberData;
+        }
+        // outside the lock, subscribers usually unsubscribe when notified
+        if (subscriber != null) {
+            subscriber.lithium$notify(this.source, subscriberData);
+        }
+    }
+}
@@ -6,12 +6,15 @@ import it.unimi.dsi.fastutil.ints.IntComparators;
 import java.util.ArrayList;
 import java.util.List;
 import net.minecraft.Util;
+import net.minecraft.core.BlockPos;
 import net.minecraft.core.FrontAndTop;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.NumericTag;
 import net.minecraft.nbt.StringTag;
 import net.minecraft.util.RandomSource;
 import net.minecraft.world.level.block.JigsawBlock;
+import net.minecraft.world.level.block.Rotation;
+import net.minecraft.world.level.levelgen.structure.templatesystem.StructurePlaceSettings;
 import net.minecraft.world.level.levelgen.structure.templatesystem.StructureTemplate;
 import org.jetbrains.annotations.NotNull;
 
@@ -80,6 +83,32 @@ public final class GeneralUtils {
         return tag.get(key) instanceof StringTag stringTag ? stringTag.asString().orElse("") : "";
     }
 
+    // The jigsaw placer asks for the jigsaws of every candidate piece in every rotation at the origin, and only shuffles
+    // them afterwards. The rotated jigsaws at the origin never change for a template, so they are computed once per
+    // rotation and copied, which gives the exact same list without transforming every jigsaw again.
+    public static @NotNull List<StructureTemplate.JigsawBlockInfo> getJigsaws(@NotNull StructureTemplate template, @NotNull BlockPos pos, @NotNull Rotation rotation) {
+        if (!pos.equals(BlockPos.ZERO)) {
+            return template.getJigsaws(pos, rotation);
+        }
+        return new ArrayList<>(getCachedJigsaws(template, rotation));
+    }
+
+    // The cached jigsaws of the template in the rotation at the origin, not to be modified. They are kept on the palette
+    // vanilla picks for the origin, so a template filled from the world or loaded again, which replaces its palettes,
+    // never serves the jigsaws of its old blocks.
+    public static @NotNull List<StructureTemplate.JigsawBlockInfo> getCachedJigsaws(@NotNull StructureTemplate template, @NotNull Rotation rotation) {
+        if (template.palettes.isEmpty()) {
+            return List.of();
+        }
+        final StructureTemplate.Palette palette = new StructurePlaceSettings().setRotation(rotation).getRandomPalette(template.palettes, BlockPos.ZERO);
+        List<StructureTemplate.JigsawBlockInfo> jigsaws = palette.canvas$jigsawsByRotation.get(rotation.ordinal());
+        if (jigsaws == null) {
+            jigsaws = List.copyOf(template.getJigsaws(BlockPos.ZERO, rotation));
+            palette.canvas$jigsawsByRotation.set(rotation.ordinal(), jigsaws);
+        }
+        return jigsaws;
+    }
+
     public static <T> void copyAll(@NotNull List<T> src, List<T> dest) {
         // Do not listen to IDE. This is faster than addAll
         for (int i = 0; i < src.size(); i++) {
@@ -0,0 +1,113 @@
+package io.canvasmc.canvas.util.structure;
+
+import it.unimi.dsi.fastutil.objects.Reference2BooleanOpenHashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import net.minecraft.world.level.block.Rotation;
+import net.minecraft.world.level.levelgen.structure.pools.SinglePoolElement;
+import net.minecraft.world.level.levelgen.structure.pools.StructurePoolElement;
+import net.minecraft.world.level.levelgen.structure.templatesystem.StructureTemplate;
+import net.minecraft.world.level.levelgen.structure.templatesystem.StructureTemplateManager;
+import org.jetbrains.annotations.NotNull;
+
+// the attachment checks of one parent jigsaw against every jigsaw of the candidate pieces of an expansion step,
+// computed on the common pool before the placer walks the candidates. a check only reads the two jigsaw blocks,
+// so the answers are the same on any thread, and the placer still consumes them one by one in its own order,
+// drawing its randoms and testing the free space in between exactly as it does serially. only the jigsaws of
+// single pool elements are known ahead, they are the cached rotated lists the placer shuffles, so a jigsaw the
+// placer reaches is looked up by identity, and anything else is checked when it is reached
+public final class JigsawAttachments {
+    // below this, the checks are cheaper than handing them to other threads
+    public static final int MIN_PARALLEL_CHECKS = 512;
+    private static final int MIN_CHECKS_PER_TASK = 128;
+    private static final Rotation[] ROTATIONS = Rotation.values();
+
+    private final StructureTemplate.JigsawBlockInfo parent;
+    private final List<StructurePoolElement> candidates;
+    private final Reference2BooleanOpenHashMap<StructureTemplate.JigsawBlockInfo> results;
+
+    private JigsawAttachments(StructureTemplate.JigsawBlockInfo parent, List<StructurePoolElement> candidates, Reference2BooleanOpenHashMap<StructureTemplate.JigsawBlockInfo> results) {
+        this.parent = parent;
+        this.candidates = candidates;
+        this.results = results;
+    }
+
+    /**
+     * Checks the parent jigsaw against every jigsaw the candidates have in any rotation at the origin
+     */
+    public static @NotNull JigsawAttachments compute(StructureTemplate.@NotNull JigsawBlockInfo parent, @NotNull List<StructurePoolElement> candidates, @NotNull StructureTemplateManager templateManager) {
+        final List<StructureTemplate.JigsawBlockInfo> jigsaws = new ArrayList<>();
+        for (final StructurePoolElement candidate : candidates) {
+            if (candidate instanceof SinglePoolElement single) {
+                for (final Rotation rotation : ROTATIONS) {
+                    jigsaws.addAll(single.canvas$getJigsaws(templateManager, rotation));
+                }
+            }
+        }
+        return new JigsawAttachments(parent, candidates, check(parent, jigsaws));
+    }
+
+    /**
+     * The attachment of the parent to each of the jigsaws, computed on the common pool when there are enough of them
+     */
+    public static @NotNull Reference2BooleanOpenHashMap<StructureTemplate.JigsawBlockInfo> check(StructureTemplate.@NotNull JigsawBlockInfo parent, @NotNull List<StructureTemplate.JigsawBlockInfo> jigsaws) {
+        final int size = jigsaws.size();
+        final boolean[] attaches = new boolean[size];
+        if (size < MIN_PARALLEL_CHECKS) {
+            new CheckTask(parent, jigsaws, attaches, 0, size).compute();
+        } else {
+            final int tasks = Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism(), size / MIN_CHECKS_PER_TASK));
+            final List<CheckTask> checks = new ArrayList<>(tasks);
+            for (int task = 0; task < tasks; task++) {
+                checks.add(new CheckTask(parent, jigsaws, attaches, size * task / tasks, size * (task + 1) / tasks));
+            }
+            ForkJoinTask.invokeAll(checks);
+        }
+        final Reference2BooleanOpenHashMap<StructureTemplate.JigsawBlockInfo> results = new Reference2BooleanOpenHashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            results.put(jigsaws.get(i), attaches[i]);
+        }
+        return results;
+    }
+
+    public boolean isFor(StructureTemplate.@NotNull JigsawBlockInfo parent, @NotNull List<StructurePoolElement> candidates) {
+        return this.parent == parent && this.candidates == candidates;
+    }
+
+    public boolean isFor(StructureTemplate.@NotNull JigsawBlockInfo parent) {
+        return this.parent == parent;
+    }
+
+    public boolean canAttach(StructureTemplate.@NotNull JigsawBlockInfo jigsaw) {
+        if (this.results.containsKey(jigsaw)) {
+            return this.results.getBoolean(jigsaw);
+        }
+        return GeneralUtils.canJigsawsAttach(this.parent, jigsaw);
+    }
+
+    private static final class CheckTask extends RecursiveAction {
+        private final StructureTemplate.JigsawBlockInfo parent;
+        private final List<StructureTemplate.JigsawBlockInfo> jigsaws;
+        private final boolean[] attaches;
+        private final int from;
+        private final int to;
+
+        private CheckTask(StructureTemplate.JigsawBlockInfo parent, List<StructureTemplate.JigsawBlockInfo> jigsaws, boolean[] attaches, int from, int to) {
+            this.parent = parent;
+            this.jigsaws = jigsaws;
+            this.attaches = attaches;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            for (int i = this.from; i < this.to; i++) {
+                this.attaches[i] = GeneralUtils.canJigsawsAttach(this.parent, this.jigsaws.get(i));
+            }
+        }
+    }
+}
@@ -11,6 +11,7 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.LockSupport;
 import java.util.function.BooleanSupplier;
+import java.util.function.ObjLongConsumer;
 
 public final class ScheduledTaskThreadPool {
 
@@ -100,6 +101,19 @@ public final class ScheduledTaskThreadPool {
         return getThreads(this.aliveThreads);
     }
 
+    // Canvas start - runner utilization
+    /**
+     * Supplies each alive runner thread along with the total nanoseconds it has spent ticking or running tasks.
+     */
+    public void forEachRunnerBusyTime(final ObjLongConsumer<Thread> consumer) {
+        for (final TickThreadRunner runner : this.aliveThreads.getArray()) {
+            if (runner.thread != null) {
+                consumer.accept(runner.thread, runner.busyTimeNS);
+            }
+        }
+    }
+    // Canvas end - runner utilization
+
     /**
      * Adjusts the number of core threads to the specified threads. Has no effect if shutdown.
      * Lowering the number of core threads will cause some scheduled tasks to fail to meet their scheduled start
@@ -703,6 +717,7 @@ public final class ScheduledTaskThreadPool {
 
         private WaitState waitState;
         private ScheduledTickTask watch;
+        private volatile long busyTimeNS; // Canvas - runner utilization, only written by the runner thread
 
         private final ConcurrentSkipListMap<ScheduledTickTask, ScheduledTickTask> scheduledTicks = new ConcurrentSkipListMap<>(ScheduledTickTask.TICK_COMPARATOR);
         private final ConcurrentSkipListMap<ScheduledTickTask, ScheduledTickTask> scheduledTasks = new ConcurrentSkipListMap<>(ScheduledTickTask.TASK_COMPARATOR);
@@ -948,7 +963,10 @@ public final class ScheduledTaskThreadPool {
                 return TickThreadRunner.this.getStateVolatile() == STATE_TASKS && (System.nanoTime() - deadline < 0L);
             };
 
-            if (tick.tick.tasks(canContinue)) {
+            final long start = System.nanoTime(); // Canvas - runner utilization
+            final boolean reinsert = tick.tick.tasks(canContinue);
+            this.busyTimeNS += System.nanoTime() - start; // Canvas - runner utilization
+            if (reinsert) {
                 this.reinsert(tick, tick.owner == null ? this : tick.owner);
             }
 
@@ -1087,7 +1105,10 @@ public final class ScheduledTaskThreadPool {
         }
 
         private void doTick(final ScheduledTickTask tick) {
-            if (tick.tick.tick()) {
+            final long start = System.nanoTime(); // Canvas - runner utilization
+            final boolean reinsert = tick.tick.tick();
+            this.busyTimeNS += System.nanoTime() - start; // Canvas - runner utilization
+            if (reinsert) {
                 this.reinsert(tick, this);
             }
         }